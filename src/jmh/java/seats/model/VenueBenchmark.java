@@ -0,0 +1,55 @@
+package seats.model;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import seats.services.BenchmarkVenues;
+import seats.services.ExpiringTransientSeatHoldingService;
+
+
+/**
+ * <p>
+ * Measures gathering the open seats of a Venue.
+ * </p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class VenueBenchmark {
+
+  @Param({ "1000", "10000", "100000" })
+  public int seatCount;
+
+  @Param({ "0.0", "0.5", "0.9" })
+  public double occupancy;
+
+  // the venue whose open seats are gathered
+  private Venue venue;
+
+  @Setup
+  public void setUp() {
+    venue = BenchmarkVenues.createVenue(seatCount);
+    BenchmarkVenues.occupy(venue, new ExpiringTransientSeatHoldingService(), occupancy);
+  }
+
+  @Benchmark
+  public List<Seat> getOpenSeats() {
+    return venue.getOpenSeats();
+  }
+
+}
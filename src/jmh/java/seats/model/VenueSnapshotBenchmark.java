@@ -0,0 +1,75 @@
+package seats.model;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import seats.services.BenchmarkVenues;
+import seats.services.ExpiringTransientSeatHoldingService;
+
+
+/**
+ * <p>
+ * Measures writing a Venue to a snapshot file and restoring it.
+ * </p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class VenueSnapshotBenchmark {
+
+  @Param({ "10000", "100000" })
+  public int seatCount;
+
+  @Param({ "0.0", "0.5" })
+  public double occupancy;
+
+  // the venue that is written
+  private Venue venue;
+
+  // the snapshot that is restored
+  private Path snapshot;
+
+  @Setup
+  public void setUp() throws IOException {
+    venue = BenchmarkVenues.createVenue(seatCount);
+    BenchmarkVenues.occupy(venue, new ExpiringTransientSeatHoldingService(), occupancy);
+
+    snapshot = Files.createTempFile("venue", ".snapshot");
+    VenueSnapshot.write(venue, snapshot);
+  }
+
+  @TearDown
+  public void tearDown() throws IOException {
+    Files.deleteIfExists(snapshot);
+  }
+
+  @Benchmark
+  public Path write() throws IOException {
+    VenueSnapshot.write(venue, snapshot);
+    return snapshot;
+  }
+
+  @Benchmark
+  public Venue read() throws IOException {
+    return VenueSnapshot.read(snapshot);
+  }
+
+}
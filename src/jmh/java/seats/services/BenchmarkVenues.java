@@ -0,0 +1,117 @@
+package seats.services;
+
+import java.util.List;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Random;
+
+import org.joda.time.DateTime;
+
+import seats.model.Venue;
+import seats.model.VenueFactory;
+import seats.model.Row;
+import seats.model.Seat;
+import seats.model.SeatHold;
+import seats.model.SeatUnavailableException;
+
+import static seats.model.SeatHoldRequestStatusEnum.*;
+
+
+/**
+ * <p>
+ * Builds the venues used by the benchmarks.
+ * </p>
+ *
+ * <p>
+ * Venues have SEATS_PER_ROW seats in every row and are partially
+ * occupied by holds of SEATS_PER_HOLD seats chosen at random with a fixed
+ * seed, so every benchmark run sees the same layout.
+ * </p>
+ */
+public class BenchmarkVenues {
+  // the number of seats in each row
+  public static final int SEATS_PER_ROW = 100;
+
+  // the number of seats in each row that are considered center row
+  public static final int CENTER_ROW_SEAT_COUNT = 20;
+
+  // the number of seats in each hold used to occupy a venue
+  public static final int SEATS_PER_HOLD = 4;
+
+  // the seed used to choose the occupied seats
+  private static final long SEED = 42L;
+
+  // the email address on every benchmark hold
+  public static final String CUSTOMER_EMAIL_ADDRESS = "benchmark@gmail.com";
+
+
+  /**
+   * Private constructor to enforce non-instantiability
+   */
+  private BenchmarkVenues() { }
+
+
+  /**
+   * Creates an open venue with at least seatCount seats
+   */
+  public static Venue createVenue(int seatCount) {
+    int rowCount = Math.max(1, (seatCount + SEATS_PER_ROW - 1) / SEATS_PER_ROW);
+    return VenueFactory.createVenue(rowCount, SEATS_PER_ROW, CENTER_ROW_SEAT_COUNT);
+  }
+
+
+  /**
+   * Holds the fraction of the venue's seats given by occupancy and
+   * records the holds with the seat holding service provided
+   * @return the holds that were created
+   */
+  public static List<SeatHold> occupy(Venue venue,
+                                      SeatHoldingService seatHoldingService,
+                                      double occupancy) {
+    return occupy(venue, seatHoldingService, occupancy, new DateTime());
+  }
+
+
+  /**
+   * Holds the fraction of the venue's seats given by occupancy and
+   * records the holds, created at the time provided, with the seat
+   * holding service provided
+   * @return the holds that were created
+   */
+  public static List<SeatHold> occupy(Venue venue,
+                                      SeatHoldingService seatHoldingService,
+                                      double occupancy,
+                                      DateTime creationTime) {
+    List<Seat> seats = new ArrayList<>();
+    for (Row row : venue.getRows()) {
+      seats.addAll(row.getOpenSeats());
+    }
+    Collections.shuffle(seats, new Random(SEED));
+
+    int seatsToHold = (int) (venue.getOpenSeatCount() * occupancy);
+    List<SeatHold> seatHolds = new ArrayList<>();
+    for (int first = 0; first < seatsToHold; first += SEATS_PER_HOLD) {
+      List<Seat> heldSeats = new ArrayList<>();
+      for (Seat seat : seats.subList(first, Math.min(first + SEATS_PER_HOLD, seatsToHold))) {
+        try {
+          heldSeats.add(venue.holdSeat(seat.getRowNumber(), seat.getSeatNumber(),
+                                       CUSTOMER_EMAIL_ADDRESS));
+        } catch (SeatUnavailableException e) {
+          throw new IllegalStateException(e);
+        }
+      }
+
+      SeatHold seatHold = new SeatHold();
+      seatHold.setCustomerEmailAddress(CUSTOMER_EMAIL_ADDRESS);
+      seatHold.setNumberOfSeatsRequested(heldSeats.size());
+      seatHold.setNumberOfSeatsHeld(heldSeats.size());
+      seatHold.setSeatsHeld(heldSeats);
+      seatHold.setStatus(SUCCESS);
+      seatHold.setCreationTime(creationTime);
+      seatHolds.add(seatHoldingService.addSeatHold(seatHold));
+    }
+
+    return seatHolds;
+  }
+
+}
@@ -0,0 +1,71 @@
+package seats.services;
+
+import java.util.concurrent.TimeUnit;
+
+import org.joda.time.DateTime;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import seats.model.Venue;
+
+
+/**
+ * <p>
+ * Measures ExpiringTransientSeatHoldingService#expireSeatHoldings when
+ * every hold in the service has expired.  A sweep consumes its holds, so
+ * each iteration rebuilds the venue and its holds and times a single
+ * sweep.
+ * </p>
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 10)
+@Measurement(iterations = 30)
+@Fork(1)
+public class SeatHoldingBenchmark {
+
+  @Param({ "1000", "10000", "100000" })
+  public int seatCount;
+
+  @Param({ "0.5", "0.9" })
+  public double occupancy;
+
+  @Param({ "1", "4" })
+  public int shardCount;
+
+  // the service under test; none of its holds have been expired yet
+  private ExpiringTransientSeatHoldingService seatHoldingService;
+
+  @Setup(Level.Iteration)
+  public void setUp() {
+    Venue venue = BenchmarkVenues.createVenue(seatCount);
+
+    seatHoldingService = new ExpiringTransientSeatHoldingService();
+    seatHoldingService.setVenue(venue);
+    seatHoldingService.setExpirationTimeInMilliSeconds(0);
+    seatHoldingService.setShardCount(shardCount);
+
+    // backdate every hold so that all of them have expired
+    DateTime creationTime = new DateTime().minusMinutes(1);
+    BenchmarkVenues.occupy(venue, seatHoldingService, occupancy, creationTime);
+  }
+
+  @Benchmark
+  public int expireSeatHoldings() {
+    seatHoldingService.expireSeatHoldings();
+    return seatHoldingService.getSeatHoldCount();
+  }
+
+}
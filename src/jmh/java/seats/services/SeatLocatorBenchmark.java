@@ -0,0 +1,71 @@
+package seats.services;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import seats.model.Venue;
+import seats.model.Seat;
+import seats.model.ComprehensiveSeatComparator;
+
+
+/**
+ * <p>
+ * Measures ComparatorBasedSeatLocatorService#locateSeats when sorting,
+ * when selecting with a bounded heap, and when walking the open seat
+ * index.  Locating seats does not change the venue so every invocation
+ * sees the same occupancy.
+ * </p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SeatLocatorBenchmark {
+
+  @Param({ "1000", "10000", "100000" })
+  public int seatCount;
+
+  @Param({ "0.0", "0.5", "0.9" })
+  public double occupancy;
+
+  @Param({ "4", "64" })
+  public int numSeats;
+
+  @Param({ "sort", "select", "indexed" })
+  public String mode;
+
+  // the locator under test
+  private ComparatorBasedSeatLocatorService locatorService;
+
+  @Setup
+  public void setUp() {
+    Venue venue = BenchmarkVenues.createVenue(seatCount);
+    BenchmarkVenues.occupy(venue, new ExpiringTransientSeatHoldingService(), occupancy);
+
+    locatorService = new ComparatorBasedSeatLocatorService();
+    locatorService.setVenue(venue);
+    locatorService.setComparator(new ComprehensiveSeatComparator());
+    locatorService.setPartialSelection("select".equals(mode));
+    locatorService.setIndexed("indexed".equals(mode));
+  }
+
+  @Benchmark
+  public List<Seat> locateSeats() throws InsufficientAvailableSeatsException {
+    return locatorService.locateSeats(numSeats);
+  }
+
+}
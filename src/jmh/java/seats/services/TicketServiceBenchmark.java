@@ -0,0 +1,143 @@
+package seats.services;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import seats.model.Venue;
+import seats.model.SeatHold;
+import seats.model.ComprehensiveSeatComparator;
+
+import static seats.model.SeatHoldRequestStatusEnum.*;
+
+
+/**
+ * <p>
+ * Measures GenericTicketService#findAndHoldSeats and
+ * GenericTicketService#reserveSeats.
+ * </p>
+ *
+ * <p>
+ * Holding is measured as a hold followed by its release so that the
+ * venue's occupancy stays constant; benchmark threads share one venue
+ * and contend for the same seats.  Reserving permanently consumes seats,
+ * so each thread reserves in its own venue, which is rebuilt before each
+ * iteration along with a batch of holds to reserve.  Each reserving
+ * iteration times the whole batch.
+ * </p>
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TicketServiceBenchmark {
+  // the number of holds reserved in each iteration; the venue with the
+  // fewest open seats (1000 seats at 0.9 occupancy) has room for 25
+  // holds of 4 seats
+  static final int RESERVE_BATCH_SIZE = 20;
+
+  // the parameters shared by both benchmarks
+  @State(Scope.Benchmark)
+  public abstract static class TicketServiceState {
+    @Param({ "1000", "10000", "100000" })
+    public int seatCount;
+
+    @Param({ "0.0", "0.5", "0.9" })
+    public double occupancy;
+
+    @Param({ "4" })
+    public int numSeats;
+
+    // the venue in which seats are held
+    Venue venue;
+
+    // the holding service that records the holds
+    ExpiringTransientSeatHoldingService seatHoldingService;
+
+    // the service under test
+    GenericTicketService ticketService;
+
+    /**
+     * Builds a partially occupied venue and the services around it
+     */
+    void createTicketService() {
+      venue = BenchmarkVenues.createVenue(seatCount);
+
+      seatHoldingService = new ExpiringTransientSeatHoldingService();
+      seatHoldingService.setVenue(venue);
+      BenchmarkVenues.occupy(venue, seatHoldingService, occupancy);
+
+      ComparatorBasedSeatLocatorService locatorService = new ComparatorBasedSeatLocatorService();
+      locatorService.setVenue(venue);
+      locatorService.setComparator(new ComprehensiveSeatComparator());
+
+      ticketService = new GenericTicketService();
+      ticketService.setVenue(venue);
+      ticketService.setSeatLocatorService(locatorService);
+      ticketService.setSeatHoldingService(seatHoldingService);
+    }
+  }
+
+  @State(Scope.Benchmark)
+  public static class HoldState extends TicketServiceState {
+    @Setup
+    public void setUp() {
+      createTicketService();
+    }
+  }
+
+  @State(Scope.Thread)
+  public static class ReserveState extends TicketServiceState {
+    // the ids of the holds to reserve in this iteration
+    final int[] seatHoldIds = new int[RESERVE_BATCH_SIZE];
+
+    // the number of holds reserved in this iteration
+    int reservedCount;
+
+    @Setup(Level.Iteration)
+    public void holdSeats() {
+      createTicketService();
+      for (int i = 0; i < seatHoldIds.length; i++) {
+        seatHoldIds[i] = ticketService.findAndHoldSeats(numSeats, BenchmarkVenues.CUSTOMER_EMAIL_ADDRESS).getId();
+      }
+      reservedCount = 0;
+    }
+  }
+
+
+  @Benchmark
+  public SeatHold findAndHoldSeats(HoldState state) throws Exception {
+    SeatHold seatHold = state.ticketService.findAndHoldSeats(state.numSeats,
+                                                             BenchmarkVenues.CUSTOMER_EMAIL_ADDRESS);
+
+    // release the hold so the occupancy stays constant
+    if (seatHold.getStatus() == SUCCESS) {
+      state.venue.unholdPackedSeats(seatHold.getHeldSeats().clone());
+      state.seatHoldingService.removeSeatHoldById(seatHold.getId());
+    }
+
+    return seatHold;
+  }
+
+
+  @Benchmark
+  @BenchmarkMode(Mode.SingleShotTime)
+  @Warmup(iterations = 10, batchSize = RESERVE_BATCH_SIZE)
+  @Measurement(iterations = 50, batchSize = RESERVE_BATCH_SIZE)
+  public String reserveSeats(ReserveState state) {
+    return state.ticketService.reserveSeats(state.seatHoldIds[state.reservedCount++],
+                                            BenchmarkVenues.CUSTOMER_EMAIL_ADDRESS);
+  }
+}
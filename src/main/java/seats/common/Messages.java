@@ -22,6 +22,7 @@ public class Messages {
 
   public static String SEAT_DOES_NOT_EXIST = "seat does not exist";
 
+  public static String SEAT_CANNOT_BE_PACKED = "row or seat number is too large to be packed";
   public static String SEAT_IS_NOT_OPEN = "seat is not open";
 
   public static String EMAIL_ADDRESS_IS_NULL_OR_BLANK = "email address is null or blank";
@@ -34,6 +35,17 @@ public class Messages {
 
   public static String INSUFFICIENT_OPEN_SEATS = "insufficient open seats";
 
+  public static String INSUFFICIENT_CONTIGUOUS_OPEN_SEATS = "insufficient contiguous open seats";
+
+  public static String MAXIMUM_ROW_SPAN_MUST_BE_GREATER_THAN_ZERO = "maximum row span must be > 0";
+
+  public static String EXPIRATION_BATCH_SIZE_MUST_BE_GREATER_THAN_ZERO = "expiration batch size must be > 0";
+  public static String RECOVERY_PAGE_SIZE_MUST_BE_GREATER_THAN_ZERO = "recovery page size must be > 0";
+  public static String FLUSH_INTERVAL_MUST_BE_GREATER_THAN_ZERO = "flush interval must be > 0";
+  public static String FLUSH_BATCH_SIZE_MUST_BE_GREATER_THAN_ZERO = "flush batch size must be > 0";
+  public static String WRITE_BEHIND_FLUSH_FAILED = "unable to flush seat hold changes; they will be retried";
+  public static String SHARD_COUNT_MUST_BE_GREATER_THAN_ZERO = "shard count must be > 0";
+
   public static String UNABLE_TO_LOCATE_ZERO_OR_NEGATIVE_SEATS = "unable to locate 0 or negative seats in the venue";
 
   public static String SEAT_IS_OPEN = "seat is open";
@@ -42,12 +54,42 @@ public class Messages {
 
   public static String SEAT_STATE_ALTERED = "seat state has been altered";
 
+  public static String SEAT_STATES_ALTERED = "the state of %d seats has been altered";
+
+  public static String SEAT_HOLD_NOT_RESTORED = "seat hold %d has no seats or customer and was not restored";
+
   public static String INVALID_SEAT_HOLD_ID = "seat hold id unknown";
 
   public static String SEAT_HOLD_CUSTOMER_EMAIL_ADDRESS_MISMATCH = "customer email addresses from seats held do not match specified customer email address";
 
+  public static String SEAT_HOLD_IDS_EXHAUSTED = "no seat hold ids remain to be allocated";
+  public static String ID_BLOCK_SIZE_MUST_BE_GREATER_THAN_ZERO = "id block size must be > 0";
+  public static String EXPIRY_INDEX_NOT_UPDATED = "unable to update the seat hold expiry index; the existing index is used";
+  public static String VENUE_RECOVERED = "restored %d seat holds and %d reservations (%d conflicting seats) in %d ms";
+  public static String SNAPSHOT_IS_CORRUPT = "venue snapshot is corrupt or incomplete";
+  public static String SNAPSHOT_VERSION_IS_UNSUPPORTED = "venue snapshot version is not supported";
+  public static String JOURNAL_SEGMENT_SIZE_IS_TOO_SMALL = "journal segment size is too small to hold a record";
+  public static String COMPACTION_INTERVAL_MUST_NOT_BE_NEGATIVE = "compaction interval must be >= 0";
+  public static String JOURNAL_RECORD_IS_TOO_LARGE = "seat state change is too large for a journal record";
+  public static String JOURNAL_HAS_FAILED = "seat journal could not be written; later seat state changes are not durable";
+  public static String JOURNAL_VERSION_IS_UNSUPPORTED = "seat journal version is not supported";
+  public static String JOURNAL_DOES_NOT_MATCH_VENUE = "seat journal names a seat that is not in the venue";
+  public static String JOURNAL_SEGMENT_IS_TORN = "seat journal segment %s ends in a torn record; replayed the records before it";
+  public static String JOURNAL_COMPACTION_FAILED = "unable to compact the seat journal; retrying next period";
+  public static String JOURNAL_SEGMENT_NOT_PREPARED = "unable to prepare the next seat journal segment; it will be mapped when needed";
+  public static String JOURNAL_NOT_DURABLE = "seat state changes could not be made durable in the journal";
+  public static String EVENT_ID_IS_NULL_OR_BLANK = "event id is null or blank";
+  public static String EVENT_ID_ALREADY_REGISTERED = "an event with this id is already registered";
+  public static String EVENT_ID_UNKNOWN = "event id unknown";
+  public static String EVENT_NOT_STOPPED_CLEANLY = "event %s did not stop cleanly";
+  public static String MAX_BATCH_SIZE_MUST_BE_GREATER_THAN_ZERO = "max batch size must be > 0";
+  public static String SEAT_ALLOCATOR_IS_NOT_RUNNING = "the seat allocator is not running";
+  public static String SEAT_ALLOCATION_BATCH_FAILED = "unable to place a batch of seat hold requests";
+  public static String SEAT_HOLD_REQUEST_FAILED = "unable to place a seat hold request";
   public static String SEAT_HOLD_EXPIRED = "seat hold expired";
 
   public static String SEAT_UNAVAILABLE_FOR_RESERVATION = "seat unavailble for reservation";
+
+  public static String SEATS_UNAVAILABLE_FOR_RESERVATION = "%d of the held seats were unavailable for reservation";
   
 }
@@ -0,0 +1,20 @@
+package seats.dao.repositories;
+
+
+/**
+ * <p>
+ * Maintains the index that lets expired SeatHolds be found, and removed
+ * by the durable store itself, without scanning every SeatHold.
+ * </p>
+ */
+public interface SeatHoldExpiryRepository {
+
+  /**
+   * Ensures SeatHolds are indexed by creation time and that the durable
+   * store removes those older than the age provided
+   * @param expireAfterSeconds the age in seconds at which the store
+   * removes a SeatHold
+   */
+  public void ensureExpiryIndex(long expireAfterSeconds);
+
+}
@@ -0,0 +1,21 @@
+package seats.dao.repositories;
+
+
+/**
+ * <p>
+ * Leases ranges of SeatHold ids from a counter in the durable store so
+ * that ids are never reused, whether across restarts or by several
+ * instances sharing the store.
+ * </p>
+ */
+public interface SeatHoldIdRepository {
+
+  /**
+   * Leases a block of consecutive SeatHold ids that has never been leased
+   * before
+   * @param count the number of ids in the block
+   * @return the first id of the block
+   */
+  public long leaseSeatHoldIds(int count);
+
+}
@@ -2,7 +2,14 @@ package seats.dao.repositories;
 
 import seats.model.SeatHold;
 
-import org.springframework.data.repository.CrudRepository;
+import java.util.List;
+import java.util.Collection;
+
+import org.joda.time.DateTime;
+
+import org.springframework.data.domain.Pageable;
+
+import org.springframework.data.mongodb.repository.MongoRepository;
 
 
 /**
@@ -10,11 +17,44 @@ import org.springframework.data.repository.CrudRepository;
  * Spring data repository for SeatHold
  * </p>
  */
-public interface SeatHoldRepository extends CrudRepository<SeatHold, Integer> {
+public interface SeatHoldRepository
+  extends MongoRepository<SeatHold, Integer>,
+          SeatHoldIdRepository,
+          SeatHoldExpiryRepository,
+          SeatReservationRepository {
 
   /**
    * Locates the SeatHold with the id provided
    */
   public SeatHold findById(Integer id);
 
+
+  /**
+   * Locates a page of the SeatHolds whose ids are greater than the id
+   * provided.  Paging by id rather than by page number keeps each page a
+   * single index range however far the paging has progressed.
+   */
+  public List<SeatHold> findByIdGreaterThan(Integer id, Pageable pageable);
+
+
+  /**
+   * Locates a page of the SeatHolds created before the time provided.
+   * With the index maintained by ensureExpiryIndex only the matching
+   * SeatHolds are visited.
+   */
+  public List<SeatHold> findByCreationTimeLessThan(DateTime creationTime, Pageable pageable);
+
+
+  /**
+   * Locates the SeatHolds with the ids provided in a single query
+   */
+  public List<SeatHold> findByIdIn(Collection<Integer> ids);
+
+
+  /**
+   * Deletes the SeatHolds with the ids provided in a single operation
+   * @return the number of SeatHolds deleted
+   */
+  public Long deleteByIdIn(Collection<Integer> ids);
+
 }
@@ -0,0 +1,136 @@
+package seats.dao.repositories;
+
+import java.util.List;
+import java.util.Collection;
+import java.util.concurrent.TimeUnit;
+
+import com.mongodb.DBObject;
+import com.mongodb.BasicDBObject;
+
+import org.apache.log4j.Logger;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoOperations;
+import org.springframework.data.mongodb.core.index.Index;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+
+import seats.model.SeatHold;
+
+import static seats.common.Messages.*;
+
+import static org.springframework.data.mongodb.core.FindAndModifyOptions.options;
+import static org.springframework.data.mongodb.core.query.Criteria.where;
+import static org.springframework.data.mongodb.core.query.Query.query;
+
+
+/**
+ * <p>
+ * The parts of the SeatHoldRepository that Spring Data cannot derive.
+ * </p>
+ *
+ * <p>
+ * The next unleased id is kept in a single counter document that is
+ * advanced atomically by the size of each block, so leasing a block is a
+ * single round trip however many ids it contains.
+ * </p>
+ *
+ * <p>
+ * The expiry index is a TTL index on the creation time, which also
+ * serves the range queries that locate expired SeatHolds.
+ * </p>
+ *
+ * <p>
+ * Reservations are SeatHold documents in a collection of their own,
+ * which carries no expiry index.
+ * </p>
+ */
+public class SeatHoldRepositoryImpl
+  implements SeatHoldIdRepository, SeatHoldExpiryRepository, SeatReservationRepository {
+  private static final Logger logger = Logger.getLogger(SeatHoldRepositoryImpl.class);
+
+  // the collection and document that hold the counter
+  static final String COUNTER_COLLECTION = "counters";
+  static final String COUNTER_ID = "seatHoldId";
+
+  // the field holding the next unleased id
+  static final String NEXT_ID = "next";
+
+  // the collection that holds the reservations
+  static final String RESERVATION_COLLECTION = "reservations";
+
+  // the field the expiry index covers
+  static final String CREATION_TIME = "creationTime";
+
+  @Autowired
+  private MongoOperations mongoOperations;
+
+
+  /**
+   * @see SeatHoldIdRepository#leaseSeatHoldIds
+   */
+  public long leaseSeatHoldIds(int count) {
+    DBObject counter = mongoOperations.findAndModify(query(where("_id").is(COUNTER_ID)),
+                                                     new Update().inc(NEXT_ID, count),
+                                                     options().upsert(true).returnNew(true),
+                                                     DBObject.class,
+                                                     COUNTER_COLLECTION);
+
+    // the counter now points past the block that was leased
+    return ((Number) counter.get(NEXT_ID)).longValue() - count;
+  }
+
+
+
+  /**
+   * @see SeatHoldExpiryRepository#ensureExpiryIndex
+   */
+  public void ensureExpiryIndex(long expireAfterSeconds) {
+    Index index = new Index().on(CREATION_TIME, Sort.Direction.ASC)
+                             .expire(expireAfterSeconds, TimeUnit.SECONDS);
+    try {
+      mongoOperations.indexOps(SeatHold.class).ensureIndex(index);
+    } catch (DataAccessException e) {
+      /*
+       * an index on the creation time with a different expiry already
+       * exists.  it still serves the expiry queries so keep using it
+       */
+      logger.warn(EXPIRY_INDEX_NOT_UPDATED, e);
+    }
+  }
+
+
+
+  /**
+   * @see SeatReservationRepository#saveReservations
+   */
+  public void saveReservations(Collection<SeatHold> reservations) {
+    if (reservations.isEmpty()) {
+      return;
+    }
+
+    // replace rather than insert so that a retried batch is harmless
+    BulkOperations operations =
+      mongoOperations.bulkOps(BulkOperations.BulkMode.UNORDERED, SeatHold.class, RESERVATION_COLLECTION);
+    for (SeatHold reservation : reservations) {
+      DBObject document = new BasicDBObject();
+      mongoOperations.getConverter().write(reservation, document);
+      operations.upsert(query(where("_id").is(reservation.getId())),
+                        Update.fromDBObject(document, "_id"));
+    }
+    operations.execute();
+  }
+
+
+  /**
+   * @see SeatReservationRepository#findReservationsAfter
+   */
+  public List<SeatHold> findReservationsAfter(int id, int count) {
+    Query page = query(where("_id").gt(id)).with(new Sort(Sort.Direction.ASC, "_id")).limit(count);
+    return mongoOperations.find(page, SeatHold.class, RESERVATION_COLLECTION);
+  }
+
+}
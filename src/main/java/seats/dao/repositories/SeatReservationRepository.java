@@ -0,0 +1,31 @@
+package seats.dao.repositories;
+
+import seats.model.SeatHold;
+
+import java.util.List;
+import java.util.Collection;
+
+
+/**
+ * <p>
+ * Keeps the SeatHolds whose seats have been reserved.  Reservations are
+ * permanent, so they are kept apart from the SeatHolds that may still
+ * expire.
+ * </p>
+ */
+public interface SeatReservationRepository {
+
+  /**
+   * Records the reserved SeatHolds provided in a single operation.
+   * Recording a reservation again replaces it.
+   */
+  public void saveReservations(Collection<SeatHold> reservations);
+
+
+  /**
+   * Locates, in id order, up to count reserved SeatHolds whose ids are
+   * greater than the id provided
+   */
+  public List<SeatHold> findReservationsAfter(int id, int count);
+
+}
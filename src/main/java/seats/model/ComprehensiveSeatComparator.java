@@ -8,8 +8,13 @@ import java.util.Comparator;
  * whether or not they are considered "center row", and whether or not
  * they are an aisle seat.
  * </p>
+ *
+ * <p>
+ * The score only depends on attributes fixed when the seat is created so
+ * it may be cached; see StaticScoreSeatComparator.
+ * </p>
  */
-public class ComprehensiveSeatComparator implements Comparator<Seat> {
+public class ComprehensiveSeatComparator implements StaticScoreSeatComparator {
   protected static int CENTER_SEAT_WEIGHT = 3;
   protected static int CENTER_ROW_WEIGHT = 2;
   protected static int AISLE_SEAT_WEIGHT = 1;
@@ -20,8 +25,9 @@ public class ComprehensiveSeatComparator implements Comparator<Seat> {
   /**
    * Assess a Seat's value based on it's position within the row and it's
    * proximity to the stage.
+   * @see StaticScoreSeatComparator#scoreSeat
    */
-  protected int scoreSeat(Seat seat) {
+  public int scoreSeat(Seat seat) {
     int score = 0;
 
     // the initial score is based on the row
@@ -0,0 +1,142 @@
+package seats.model;
+
+
+/**
+ * <p>
+ * A segment tree over the seats of a Row that records, for every range
+ * of seats, the length of the open run at its start, the open run at its
+ * end, and the longest open run within it.
+ * </p>
+ *
+ * <p>
+ * Updating a seat and finding the first run of a given length both take
+ * time logarithmic in the number of seats.  Instances are not thread-safe;
+ * the Row updates its index while holding the row lock.
+ * </p>
+ */
+class OpenRunIndex {
+  // the number of leaves in the tree; a power of two
+  private final int leafCount;
+
+  // the open run at the start of each node's range
+  private final int[] prefix;
+
+  // the open run at the end of each node's range
+  private final int[] suffix;
+
+  // the longest open run within each node's range
+  private final int[] longest;
+
+
+  /**
+   * Creates an OpenRunIndex in which every seat is closed
+   * @param seatCount the number of seats in the row
+   */
+  OpenRunIndex(int seatCount) {
+    int leaves = 1;
+    while (leaves < seatCount) {
+      leaves <<= 1;
+    }
+
+    leafCount = leaves;
+    prefix = new int[2 * leaves];
+    suffix = new int[2 * leaves];
+    longest = new int[2 * leaves];
+  }
+
+
+  /**
+   * Marks the seat at the zero-based index provided as open or closed
+   */
+  void setOpen(int index, boolean open) {
+    int node = leafCount + index;
+    int value = open ? 1 : 0;
+    prefix[node] = value;
+    suffix[node] = value;
+    longest[node] = value;
+
+    // recombine the ancestors from the leaf up to the root
+    int length = 2;
+    for (node >>= 1; node >= 1; node >>= 1) {
+      combine(node, length);
+      length <<= 1;
+    }
+  }
+
+
+  /**
+   * Recomputes a node from its children
+   * @param node the node to recompute
+   * @param length the number of seats covered by the node
+   */
+  private void combine(int node, int length) {
+    int half = length / 2;
+    int left = 2 * node;
+    int right = left + 1;
+
+    prefix[node] = (prefix[left] == half) ? half + prefix[right] : prefix[left];
+    suffix[node] = (suffix[right] == half) ? half + suffix[left] : suffix[right];
+    longest[node] = Math.max(Math.max(longest[left], longest[right]),
+                             suffix[left] + prefix[right]);
+  }
+
+
+  /**
+   * Returns the length of the longest open run
+   */
+  int getLongestOpenRun() { return longest[1]; }
+
+
+  /**
+   * Returns the zero-based index of the first seat, at or after the
+   * index provided, that starts a run of at least length open seats
+   * @param length the number of consecutive open seats required
+   * @param from the zero-based index at which to begin searching
+   * @return the index of the first seat of the run, or -1 if none exists
+   */
+  int findOpenRun(int length, int from) {
+    if ((length <= 0) || (longest[1] < length)) {
+      return -1;
+    }
+
+    // the open run that ends immediately before the node being visited
+    int[] run = new int[1];
+
+    return findOpenRun(1, 0, leafCount, length, Math.max(from, 0), run);
+  }
+
+
+  /**
+   * Visits the nodes covering [from, leafCount) from left to right,
+   * descending only into nodes that may contain the run
+   */
+  private int findOpenRun(int node, int start, int nodeLength,
+                          int length, int from, int[] run) {
+    // nodes entirely before the search start are skipped
+    if (start + nodeLength <= from) {
+      return -1;
+    }
+
+    if (start >= from) {
+      // the run may begin before this node and finish in its prefix
+      if (run[0] + prefix[node] >= length) {
+        return start - run[0];
+      }
+
+      // the run cannot be within this node so carry its suffix forward
+      if (longest[node] < length) {
+        run[0] = (prefix[node] == nodeLength) ? run[0] + nodeLength : suffix[node];
+        return -1;
+      }
+    }
+
+    int half = nodeLength / 2;
+    int found = findOpenRun(2 * node, start, half, length, from, run);
+    if (found >= 0) {
+      return found;
+    }
+
+    return findOpenRun((2 * node) + 1, start + half, half, length, from, run);
+  }
+
+}
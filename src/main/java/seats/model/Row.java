@@ -1,6 +1,9 @@
 package seats.model;
 
 import java.util.List;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.concurrent.locks.ReentrantLock;
 
 import static seats.common.Messages.*;
 
@@ -14,6 +17,30 @@ import static seats.common.Messages.*;
  * Rows with lower row numbers are considered more favorable as they
  * are closer to the stage.
  * </p>
+ *
+ * <p>
+ * In addition to the Seat instances a Row keeps a packed bitmap of seat
+ * states, two bits per seat, so that open seats can be counted and
+ * located with word-level operations rather than by visiting every
+ * Seat.  The bitmap is kept current by the Seat instances in the row.
+ * </p>
+ *
+ * <p>
+ * The row also maintains counts of its open, held, and reserved seats
+ * and forwards every change to the Venue that contains it so that
+ * availability can be read without visiting any seats.
+ * </p>
+ *
+ * <p>
+ * Each row has its own lock.  The Venue takes it around every seat state
+ * transition so that holds in different rows proceed in parallel, and
+ * the row takes it whenever it updates its bitmap and counts.
+ * </p>
+ *
+ * <p>
+ * An OpenRunIndex tracks the runs of consecutive open seats so that a
+ * block of adjacent open seats can be found in logarithmic time.
+ * </p>
  */
 public class Row {
   // the numerical id of the row
@@ -22,6 +49,34 @@ public class Row {
   // the seats in the row
   private List<Seat> seats;
 
+  // the number of seat states packed into each word of the bitmap
+  static final int SEATS_PER_WORD = Long.SIZE / 2;
+
+  // the low bit of each seat state; set when a seat is held
+  static final long HELD_BITS = 0x5555555555555555L;
+
+  // the seat states recorded in the bitmap
+  static final int OPEN = 0;
+  static final int HELD = 1;
+  static final int RESERVED = 2;
+
+  // two bits per seat: 00 open, 01 held, 1x reserved
+  private long[] seatStates = new long[0];
+
+  // the runs of consecutive open seats in the row
+  private OpenRunIndex openRuns = new OpenRunIndex(0);
+
+  // the number of seats in each state
+  private int openSeatCount;
+  private int heldSeatCount;
+  private int reservedSeatCount;
+
+  // the venue that contains this row, if any
+  private Venue venue;
+
+  // guards the state of the seats in this row
+  private final ReentrantLock lock = new ReentrantLock();
+
   /**
    * Creates an empty Row
    */
@@ -46,7 +101,79 @@ public class Row {
   /**
    * Sets the seats in the row
    */
-  public void setSeats(List<Seat> seats) { this.seats = seats; }
+  public void setSeats(List<Seat> seats) {
+    lock();
+    try {
+      replaceSeats(seats);
+    } finally {
+      unlock();
+    }
+  }
+
+
+  /**
+   * Replaces the seats in the row while the row lock is held
+   */
+  private void replaceSeats(List<Seat> seats) {
+    // remove the previous seats from the venue's counts
+    if (venue != null) {
+      venue.updateSeatCounts(-openSeatCount, -heldSeatCount, -reservedSeatCount);
+    }
+
+    this.seats = seats;
+
+    // size the bitmap and record the current state of every seat
+    seatStates = new long[(seats.size() + SEATS_PER_WORD - 1) / SEATS_PER_WORD];
+    openRuns = new OpenRunIndex(seats.size());
+    openSeatCount = 0;
+    heldSeatCount = 0;
+    reservedSeatCount = 0;
+    for (Seat seat : seats) {
+      seat.setRow(this);
+
+      int state = recordSeatState(seat);
+      if (state == OPEN) {
+        openSeatCount++;
+        openRuns.setOpen(seat.getSeatNumber() - 1, true);
+      } else if (state == HELD) {
+        heldSeatCount++;
+      } else if (state == RESERVED) {
+        reservedSeatCount++;
+      }
+    }
+
+    // add the new seats to the venue's counts
+    if (venue != null) {
+      venue.updateSeatCounts(openSeatCount, heldSeatCount, reservedSeatCount);
+    }
+  }
+
+
+  /**
+   * Acquires the lock that guards the state of the seats in this row
+   */
+  void lock() { lock.lock(); }
+
+  /**
+   * Releases the lock that guards the state of the seats in this row
+   */
+  void unlock() { lock.unlock(); }
+
+
+  /**
+   * Sets the venue that is informed of changes to the seat counts
+   */
+  void setVenue(Venue venue) { this.venue = venue; }
+
+  /**
+   * Returns the number of seats in the row that are held but not reserved
+   */
+  public int getHeldSeatCount() { return heldSeatCount; }
+
+  /**
+   * Returns the number of seats in the row that are reserved
+   */
+  public int getReservedSeatCount() { return reservedSeatCount; }
 
   /**
    * Returns the number of seats in the row
@@ -62,7 +189,7 @@ public class Row {
       throw new IllegalArgumentException(SEAT_DOES_NOT_EXIST);
     }
     
-    if (seatNumber > (getSeatCount() + 1)) {
+    if (seatNumber > getSeatCount()) {
       throw new IllegalArgumentException(SEAT_DOES_NOT_EXIST);
     }
   }
@@ -76,6 +203,243 @@ public class Row {
     
     return seats.get(seatNumber - 1);
   }
-  
+
+
+  /**
+   * Records the current state of the seat provided in the bitmap and
+   * adjusts the row's and venue's counts.  Seats call this whenever they
+   * are held, unheld, or reserved.
+   */
+  void updateSeatState(Seat seat) {
+    lock();
+    try {
+      recordSeatStateChange(seat);
+    } finally {
+      unlock();
+    }
+  }
+
+
+  /**
+   * Records a change in the state of the seat provided while the row
+   * lock is held
+   */
+  private void recordSeatStateChange(Seat seat) {
+    recordSeatStateChanges(Collections.singletonList(seat));
+  }
+
+
+  /**
+   * Records changes in the state of the seats provided while the row
+   * lock is held.  The venue is informed of the combined change once.
+   */
+  void recordSeatStateChanges(List<Seat> changedSeats) {
+    int openDelta = 0;
+    int heldDelta = 0;
+    int reservedDelta = 0;
+    for (Seat seat : changedSeats) {
+      int oldState = getSeatState(seat);
+      int newState = recordSeatState(seat);
+      if ((oldState < 0) || (oldState == newState)) {
+        continue;
+      }
+
+      // record the new state in the venue's journal, in row lock order
+      if (venue != null) {
+        venue.journalSeatState(seat, newState);
+      }
+
+      // move the seat from the old count to the new one
+      openDelta += (newState == OPEN ? 1 : 0) - (oldState == OPEN ? 1 : 0);
+      heldDelta += (newState == HELD ? 1 : 0) - (oldState == HELD ? 1 : 0);
+      reservedDelta += (newState == RESERVED ? 1 : 0) - (oldState == RESERVED ? 1 : 0);
+
+      if ((oldState == OPEN) != (newState == OPEN)) {
+        openRuns.setOpen(seat.getSeatNumber() - 1, newState == OPEN);
+      }
+    }
+
+    openSeatCount += openDelta;
+    heldSeatCount += heldDelta;
+    reservedSeatCount += reservedDelta;
+
+    if (venue != null) {
+      venue.updateSeatCounts(openDelta, heldDelta, reservedDelta);
+    }
+  }
+
+
+  /**
+   * Returns the state recorded in the bitmap for the seat provided, or
+   * -1 if the seat is not part of this row
+   */
+  int getSeatState(Seat seat) {
+    int index = seat.getSeatNumber() - 1;
+    if ((index < 0) || (index >= seats.size())) {
+      return -1;
+    }
+
+    int shift = (index % SEATS_PER_WORD) * 2;
+    int bits = (int) ((seatStates[index / SEATS_PER_WORD] >>> shift) & 3L);
+
+    return (bits >= RESERVED) ? RESERVED : bits;
+  }
+
+
+  /**
+   * Writes the current state of the seat provided into the bitmap without
+   * adjusting any counts
+   * @return the state that was recorded, or -1 if the seat is not part
+   * of this row
+   */
+  private int recordSeatState(Seat seat) {
+    int index = seat.getSeatNumber() - 1;
+    if ((index < 0) || (index >= seats.size())) {
+      return -1;
+    }
+
+    int state = OPEN;
+    if (seat.isReserved()) {
+      state = RESERVED;
+    } else if (seat.isHeld()) {
+      state = HELD;
+    }
+
+    int word = index / SEATS_PER_WORD;
+    int shift = (index % SEATS_PER_WORD) * 2;
+    seatStates[word] = (seatStates[word] & ~(3L << shift)) | (((long) state) << shift);
+
+    return state;
+  }
+
+
+  /**
+   * Returns a word of the bitmap with one bit set (at the low bit of each
+   * seat's state) for every open seat that word covers
+   */
+  long openSeatBits(int word) {
+    long bits = seatStates[word];
+    long openBits = ~(bits | (bits >>> 1)) & HELD_BITS;
+
+    // mask off the unused seat positions in the final word
+    int remainder = seats.size() - (word * SEATS_PER_WORD);
+    if (remainder < SEATS_PER_WORD) {
+      openBits &= (1L << (remainder * 2)) - 1;
+    }
+
+    return openBits;
+  }
+
+
+  /**
+   * Returns true if the seat with the seatNumber provided is open
+   * @throws IllegalArgumentException if the seat does not exist
+   */
+  public boolean isSeatOpen(int seatNumber) {
+    validateSeatNumber(seatNumber);
+
+    int index = seatNumber - 1;
+    int shift = (index % SEATS_PER_WORD) * 2;
+
+    return ((seatStates[index / SEATS_PER_WORD] >>> shift) & 3L) == 0L;
+  }
+
+
+  /**
+   * Returns the number of seats in the row that are neither held nor
+   * reserved
+   */
+  public int getOpenSeatCount() { return openSeatCount; }
+
+
+  /**
+   * Returns the lowest numbered open seat in the row, or 0 if every seat
+   * in the row is held or reserved
+   */
+  public int getFirstOpenSeatNumber() {
+    for (int word = 0; word < seatStates.length; word++) {
+      long openBits = openSeatBits(word);
+      if (openBits != 0L) {
+        int index = (word * SEATS_PER_WORD) + (Long.numberOfTrailingZeros(openBits) / 2);
+        return index + 1;
+      }
+    }
+
+    return 0;
+  }
+
+
+  /**
+   * Returns the open seats in the row in seat number order
+   */
+  public List<Seat> getOpenSeats() {
+    List<Seat> openSeats = new ArrayList<>();
+    for (int word = 0; word < seatStates.length; word++) {
+      long openBits = openSeatBits(word);
+
+      // visit each set bit, clearing the lowest one as we go
+      while (openBits != 0L) {
+        int index = (word * SEATS_PER_WORD) + (Long.numberOfTrailingZeros(openBits) / 2);
+        openSeats.add(seats.get(index));
+        openBits &= openBits - 1;
+      }
+    }
+
+    return openSeats;
+  }
+
+
+  /**
+   * Returns the length of the longest run of consecutive open seats
+   */
+  public int getLongestOpenRun() { return openRuns.getLongestOpenRun(); }
+
+
+  /**
+   * Returns the seat number of the first seat, at or after the seat
+   * number provided, that begins a run of at least length consecutive
+   * open seats
+   * @param length the number of consecutive open seats required
+   * @param fromSeatNumber the seat number at which to begin searching
+   * @return the seat number that begins the run, or 0 if there is none
+   */
+  public int findOpenRun(int length, int fromSeatNumber) {
+    int index = openRuns.findOpenRun(length, fromSeatNumber - 1);
+    if ((index < 0) || (index + length > seats.size())) {
+      return 0;
+    }
+
+    return index + 1;
+  }
+
+
+  /**
+   * Returns the seat number of the last open seat in the run of
+   * consecutive open seats that contains the seat number provided, or 0
+   * if that seat is not open
+   * @throws IllegalArgumentException if the seat does not exist
+   */
+  public int getOpenRunEnd(int seatNumber) {
+    if (! isSeatOpen(seatNumber)) {
+      return 0;
+    }
+
+    int index = seatNumber - 1;
+    int word = index / SEATS_PER_WORD;
+
+    // ignore the seats before the one provided
+    long openBits = openSeatBits(word) | ((1L << ((index % SEATS_PER_WORD) * 2)) - 1);
+    while (true) {
+      long closedBits = ~openBits & HELD_BITS;
+      if (closedBits != 0L) {
+        return (word * SEATS_PER_WORD) + (Long.numberOfTrailingZeros(closedBits) / 2);
+      }
+
+      if (++word == seatStates.length) {
+        return seats.size();
+      }
+      openBits = openSeatBits(word);
+    }
+  }
 
 }
@@ -12,7 +12,14 @@ import java.util.Comparator;
  * is closer to the stage (has the lower row number)
  * </p>
  */
-public class RowPrioritizedSeatComparator implements Comparator<Seat> {
+public class RowPrioritizedSeatComparator implements StaticScoreSeatComparator {
+
+  /**
+   * Scores a seat by its row number alone
+   * @see StaticScoreSeatComparator#scoreSeat
+   */
+  public int scoreSeat(Seat seat) { return seat.getRowNumber(); }
+
 
   /**
    * @see Comparator#compare
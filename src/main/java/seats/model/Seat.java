@@ -5,6 +5,9 @@ import static seats.common.Messages.*;
 import seats.utils.SeatUtils;
 
 import java.lang.IllegalArgumentException;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+
+import org.springframework.data.annotation.Transient;
 
 
 /**
@@ -22,6 +25,15 @@ import java.lang.IllegalArgumentException;
  * maximum rowNumber is bounded by Integer.MAX_VALUE.  As the row
  * number of a seat increases it's value decreases.  
  * </p>
+ *
+ * <p>
+ * The held and reserved flags are packed into a single state word that
+ * is only changed with compare-and-set, so concurrent attempts to hold
+ * the same open seat cannot both succeed and no monitor is needed to
+ * claim a seat.  While the customer email address is being written the
+ * state carries a busy bit so the email address and state are published
+ * together.
+ * </p>
  */
 public class Seat {
   // the location of the seat in relation to distance from the stage
@@ -42,14 +54,25 @@ public class Seat {
    */
   private boolean isCenterSeat = false;
 
-  // set to true to indicate the seat is held
-  private boolean isHeld = false;
+  // the bits of the packed state word
+  static final int OPEN = 0;
+  static final int HELD = 1;
+  static final int RESERVED = 2;
+  static final int BUSY = 4;
+
+  // atomically updates the state word
+  private static final AtomicIntegerFieldUpdater<Seat> STATE =
+    AtomicIntegerFieldUpdater.newUpdater(Seat.class, "state");
 
-  // set to true to indicate the seat is reserved
-  private boolean isReserved = false;
+  // the held and reserved flags; reserved seats remain held
+  private volatile int state = OPEN;
 
   // the email address of the customer who has held or reserved the seat
-  private String customerEmailAddress;
+  private volatile String customerEmailAddress;
+
+  // the row that contains this seat, if any; never persisted
+  @Transient
+  private transient Row row;
 
 
   /**
@@ -79,6 +102,22 @@ public class Seat {
   public void setSeatNumber(int seatNumber) { this.seatNumber = seatNumber; }
 
   
+  /**
+   * Sets the row that tracks the state of this seat
+   */
+  void setRow(Row row) { this.row = row; }
+
+  /**
+   * Informs the containing row, if any, that the state of this seat
+   * has changed
+   */
+  private void notifyRow() {
+    if (row != null) {
+      row.updateSeatState(this);
+    }
+  }
+
+  
   /**
    * Returns true if this seat is considered an aisle seat
    */
@@ -121,44 +160,104 @@ public class Seat {
   /**
    * Returns true if this seat is held
    */
-  public boolean isHeld() { return isHeld; }
+  public boolean isHeld() { return (state & HELD) != 0; }
 
   
   /**
-   * Holds the seat for potential reservation
+   * Holds the seat for potential reservation.  Only an open seat can be
+   * held; if another caller holds the seat first this call has no effect.
    * @param customerEmailAddress the email address of the seat holder
+   * @return true if the seat was open and is now held by the customer
+   */
+  public boolean hold(String customerEmailAddress) {
+    return hold(customerEmailAddress, true);
+  }
+
+  /**
+   * Holds the seat, informing the containing row of the change only if
+   * notify is true.  Batch operations pass false and have the row record
+   * all of their changes at once.
+   * @return true if the seat was open and is now held by the customer
    */
-  public void hold(String customerEmailAddress) {
-    this.isHeld = true;
+  boolean hold(String customerEmailAddress, boolean notify) {
+    if (! STATE.compareAndSet(this, OPEN, HELD | BUSY)) {
+      return false;
+    }
+
     this.customerEmailAddress = customerEmailAddress;
+    state = HELD;
+    if (notify) {
+      notifyRow();
+    }
+
+    return true;
+  }
+
+  /**
+   * Unholds the seat, returning it to open state.  Reserved seats cannot
+   * be unheld.
+   * @return true if the seat was held and is now open
+   */
+  public boolean unhold() {
+    return unhold(true);
   }
 
   /**
-   * Unholds the seat, returning it to open state
+   * Unholds the seat, informing the containing row of the change only if
+   * notify is true.  Batch operations pass false and have the row record
+   * all of their changes at once.
+   * @return true if the seat was held and is now open
    */
-  public void unhold() {
-    this.isHeld = false;
+  boolean unhold(boolean notify) {
+    if (! STATE.compareAndSet(this, HELD, HELD | BUSY)) {
+      return false;
+    }
+
     this.customerEmailAddress = null;
+    state = OPEN;
+    if (notify) {
+      notifyRow();
+    }
+
+    return true;
   }
 
   
   /**
    * Returns true if this seat is reserved
    */
-  public boolean isReserved() { return isReserved; }
+  public boolean isReserved() { return (state & RESERVED) != 0; }
 
   /**
-   * Reserves the seat 
+   * Reserves the held seat
+   * @return true if the seat was held and is now reserved
    */
-  public void reserve() { this.isReserved = true; }
+  public boolean reserve() {
+    return reserve(true);
+  }
+
+  /**
+   * Reserves the held seat, informing the containing row of the change
+   * only if notify is true
+   * @return true if the seat was held and is now reserved
+   */
+  boolean reserve(boolean notify) {
+    if (! STATE.compareAndSet(this, HELD, HELD | RESERVED)) {
+      return false;
+    }
+
+    if (notify) {
+      notifyRow();
+    }
+
+    return true;
+  }
 
   
   /**
    * Returns true if the Seat has not been held or reserved
    */
-  public boolean isOpen() {
-    return (!isHeld() && !isReserved());
-  }
+  public boolean isOpen() { return state == OPEN; }
 
 
   /**
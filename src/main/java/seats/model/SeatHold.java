@@ -3,17 +3,40 @@ package seats.model;
 import java.util.List;
 import java.util.ArrayList;
 
+import static seats.common.Messages.*;
+
 import javax.persistence.Id;
 import static javax.persistence.GenerationType.*;
 
 import org.joda.time.DateTime;
 
+import org.springframework.data.mongodb.core.mapping.Field;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
 
 /**
  * <p> 
  * A representation of a request, on behalf of a customer with an
  * email address, to hold a fixed number of seats at a venue.
  * </p>
+ *
+ * <p>
+ * The held seats are recorded as packed ints, the row number in the
+ * high 16 bits and the seat number in the low 16 bits, rather than as
+ * Seat instances.  This keeps holds small in memory and when they are
+ * persisted or serialized, and lets the venue release and reserve them
+ * without touching a Seat until it has to.  The live Seat instances are
+ * resolved from the Venue on request.
+ * </p>
+ *
+ * <p>
+ * The packed seats are not serialized to JSON; responses carry the row
+ * and seat numbers of the held seats as seatsHeld instead.  Holds that
+ * were stored before the seats were packed keep their seats as Seat
+ * documents under seatsHeld, and are packed when they are first read.
+ * </p>
  */
 public class SeatHold {
   // universely unique id of this hold
@@ -29,8 +52,19 @@ public class SeatHold {
   // the email address of the customer who held the seats
   private String customerEmailAddress;
 
-  // the seats that are being held
-  private List<Seat> seatsHeld;
+  // the packed row and seat numbers of the seats that are being held
+  private int[] heldSeats;
+
+  // the largest row and seat numbers that can be packed
+  public static final int MAXIMUM_PACKED_ROW_NUMBER = 0x7FFF;
+  public static final int MAXIMUM_PACKED_SEAT_NUMBER = 0xFFFF;
+
+  // shared by holds that hold no seats
+  private static final int[] NO_SEATS = new int[0];
+
+  // the seats of a hold stored before seats were packed, if any
+  @Field("seatsHeld")
+  private List<Seat> legacySeatsHeld;
 
   // the status of the seat hold request
   private SeatHoldRequestStatusEnum status;
@@ -46,7 +80,7 @@ public class SeatHold {
    * Creates a SeatHold
    */
   public SeatHold() {
-    seatsHeld = new ArrayList<>();
+    heldSeats = NO_SEATS;
     creationTime = new DateTime();
   }
 
@@ -104,15 +138,105 @@ public class SeatHold {
 
   
   /**
-   * Returns the Seat instances that are held
+   * Returns the packed row and seat numbers of the seats that are held,
+   * packing the seats of a hold stored before seats were packed
+   * @see #packSeat
    */
-  public List<Seat> getSeatsHeld() { return seatsHeld; }
+  @JsonIgnore
+  public int[] getHeldSeats() {
+    if (legacySeatsHeld != null) {
+      setSeatsHeld(legacySeatsHeld);
+      legacySeatsHeld = null;
+    }
+
+    return heldSeats;
+  }
+
+  /**
+   * Sets the packed row and seat numbers of the seats that are held
+   * @see #packSeat
+   */
+  @JsonIgnore
+  public void setHeldSeats(int[] heldSeats) {
+    this.heldSeats = (heldSeats != null) ? heldSeats : NO_SEATS;
+    this.legacySeatsHeld = null;
+  }
+
+
+  /**
+   * Returns the row and seat numbers of the seats that are held; this is
+   * how the held seats are serialized to JSON
+   */
+  @JsonProperty("seatsHeld")
+  public List<HeldSeat> getHeldSeatNumbers() {
+    int[] packedSeats = getHeldSeats();
+    List<HeldSeat> seats = new ArrayList<>(packedSeats.length);
+    for (int packedSeat : packedSeats) {
+      seats.add(new HeldSeat(unpackRowNumber(packedSeat), unpackSeatNumber(packedSeat)));
+    }
+
+    return seats;
+  }
+
+
+  /**
+   * Returns the Seat instances that are held, resolved from the venue
+   * provided
+   * @throws IllegalArgumentException if a held seat does not exist in
+   * the venue
+   */
+  public List<Seat> getSeatsHeld(Venue venue) {
+    int[] heldSeats = getHeldSeats();
+    List<Seat> seats = new ArrayList<>(heldSeats.length);
+    for (int packedSeat : heldSeats) {
+      seats.add(venue.findSeat(unpackRowNumber(packedSeat), unpackSeatNumber(packedSeat)));
+    }
+
+    return seats;
+  }
 
   
   /**
    * Sets the Seat instances that are held
+   * @throws IllegalArgumentException if a seat's row or seat number is
+   * too large to be packed
+   */
+  public void setSeatsHeld(List<Seat> seatsHeld) {
+    int[] packedSeats = new int[seatsHeld.size()];
+    for (int i = 0; i < packedSeats.length; i++) {
+      Seat seat = seatsHeld.get(i);
+      packedSeats[i] = packSeat(seat.getRowNumber(), seat.getSeatNumber());
+    }
+
+    this.heldSeats = packedSeats;
+    this.legacySeatsHeld = null;
+  }
+
+
+  /**
+   * Packs a row number and seat number into a single int whose natural
+   * order is row number order, then seat number order
+   * @throws IllegalArgumentException if the row or seat number is 0,
+   * negative, or too large to be packed
+   */
+  public static int packSeat(int rowNumber, int seatNumber) {
+    if ((rowNumber <= 0) || (rowNumber > MAXIMUM_PACKED_ROW_NUMBER) ||
+        (seatNumber <= 0) || (seatNumber > MAXIMUM_PACKED_SEAT_NUMBER)) {
+      throw new IllegalArgumentException(SEAT_CANNOT_BE_PACKED);
+    }
+
+    return (rowNumber << 16) | seatNumber;
+  }
+
+  /**
+   * Returns the row number of a packed seat
+   */
+  public static int unpackRowNumber(int packedSeat) { return packedSeat >>> 16; }
+
+  /**
+   * Returns the seat number of a packed seat
    */
-  public void setSeatsHeld(List<Seat> seatsHeld) { this.seatsHeld = seatsHeld; }
+  public static int unpackSeatNumber(int packedSeat) { return packedSeat & 0xFFFF; }
 
   
   /**
@@ -153,4 +277,36 @@ public class SeatHold {
     this.creationTime = creationTime;
   }
 
+
+  /**
+   * <p>
+   * The row and seat number of a held seat, as it is serialized to JSON
+   * </p>
+   */
+  public static class HeldSeat {
+    // the row number of the seat
+    private final int rowNumber;
+
+    // the seat number of the seat
+    private final int seatNumber;
+
+    /**
+     * Creates a HeldSeat
+     */
+    HeldSeat(int rowNumber, int seatNumber) {
+      this.rowNumber = rowNumber;
+      this.seatNumber = seatNumber;
+    }
+
+    /**
+     * Returns the row number of the seat
+     */
+    public int getRowNumber() { return rowNumber; }
+
+    /**
+     * Returns the seat number of the seat
+     */
+    public int getSeatNumber() { return seatNumber; }
+  }
+
 }
@@ -0,0 +1,57 @@
+package seats.model;
+
+
+/**
+ * <p>
+ * A request, on behalf of a customer with an email address, to hold a
+ * fixed number of seats.  Batches of these are passed to
+ * TicketService#findAndHoldSeats(List).
+ * </p>
+ */
+public class SeatHoldRequest {
+  // the number of seats to hold
+  private int numSeats;
+
+  // the email address of the customer
+  private String customerEmailAddress;
+
+
+  /**
+   * Creates a SeatHoldRequest
+   */
+  public SeatHoldRequest() { }
+
+  /**
+   * Creates a SeatHoldRequest for the number of seats and customer
+   * provided
+   */
+  public SeatHoldRequest(int numSeats, String customerEmailAddress) {
+    this.numSeats = numSeats;
+    this.customerEmailAddress = customerEmailAddress;
+  }
+
+
+  /**
+   * Returns the number of seats to hold
+   */
+  public int getNumSeats() { return numSeats; }
+
+  /**
+   * Sets the number of seats to hold
+   */
+  public void setNumSeats(int numSeats) { this.numSeats = numSeats; }
+
+
+  /**
+   * Returns the email address of the customer
+   */
+  public String getCustomerEmailAddress() { return customerEmailAddress; }
+
+  /**
+   * Sets the email address of the customer
+   */
+  public void setCustomerEmailAddress(String customerEmailAddress) {
+    this.customerEmailAddress = customerEmailAddress;
+  }
+
+}
@@ -14,5 +14,6 @@ package seats.model;
 public enum SeatHoldRequestStatusEnum {
   SUCCESS,
   FAILURE_DUE_TO_INVALID_PARAMETERS,
-  FAILURE_DUE_TO_INSUFFICIENT_OPEN_SEATS
+  FAILURE_DUE_TO_INSUFFICIENT_OPEN_SEATS,
+  FAILURE_DUE_TO_UNEXPECTED_ERROR
 }
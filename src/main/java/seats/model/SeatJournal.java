@@ -0,0 +1,728 @@
+package seats.model;
+
+import static seats.common.Messages.*;
+
+import org.apache.log4j.Logger;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+import java.util.zip.CRC32;
+
+
+/**
+ * <p>
+ * An append-only, memory-mapped journal of every seat state change in a
+ * Venue, from which the venue is rebuilt on startup.
+ * </p>
+ *
+ * <p>
+ * Rows append a record whenever they record a new seat state, while
+ * their lock is held, so the records of any one seat appear in the order
+ * its states were recorded.  Each record holds the packed seat, its new
+ * state, the customer email address, and a checksum.  A record states
+ * where a seat ended up rather than how it got there, so replaying a
+ * record the venue already reflects is harmless.
+ * </p>
+ *
+ * <p>
+ * Records are written into a mapped segment file and become durable
+ * when the mapping is forced.  Callers that need durability call sync,
+ * which waits for a single force covering every record appended before
+ * the call; concurrent callers share that force, so each commit costs a
+ * memory copy rather than a write to disk.  The next segment is mapped
+ * ahead of time on the journal's segment thread, so an append that
+ * fills a segment only switches to it.  The full segment is forced on
+ * that thread too, and sync forces it first if it has not been yet, so
+ * no append waits on the disk while other rows wait on the journal.
+ * </p>
+ *
+ * <p>
+ * Compaction starts a new segment, writes a VenueSnapshot named after
+ * it, and deletes the older segments and snapshots.  Recovery reads the
+ * latest snapshot, or creates the venue from the layout provided if
+ * there is none, and replays the segments written since, stopping at
+ * the first record that is torn or fails its checksum.  Appending then
+ * continues in a new segment.
+ * </p>
+ *
+ * <p>
+ * The journal owns the reservations of the venue, not its holds.  Holds
+ * belong to the seat holding service, which expires them and, if it is
+ * durable, restores them itself, so a hold recovered from the journal
+ * would have no SeatHold to release it.  Every seat that is held but
+ * not reserved once the segments are replayed is therefore opened
+ * again.
+ * </p>
+ */
+public class SeatJournal implements Closeable {
+  // identifies a segment file; "JRNL" in ASCII
+  static final int MAGIC = 0x4A524E4C;
+
+  // the version of the format that is written
+  static final short VERSION = 1;
+
+  // the magic number, version, reserved short, and segment index
+  static final int SEGMENT_HEADER_SIZE = 4 + 2 + 2 + 8;
+
+  // the packed seat, state, customer length, and checksum of a record
+  static final int RECORD_OVERHEAD = 4 + 1 + 2 + 4;
+
+  // the file names of segments and snapshots, followed by their index
+  static final String SEGMENT_PREFIX = "segment-";
+  static final String SEGMENT_SUFFIX = ".journal";
+  static final String SNAPSHOT_PREFIX = "snapshot-";
+  static final String SNAPSHOT_SUFFIX = ".venue";
+
+  // the directory holding the segments and snapshots
+  private final Path directory;
+
+  // the size of each segment file in bytes
+  private int segmentSize = 64 * 1024 * 1024;
+
+  // the time between compactions; 0 compacts only when asked
+  private long compactionIntervalInMilliSeconds = 0;
+
+  // the venue being journaled; set by recover
+  private Venue venue;
+
+  // the segment being appended to and its index; guarded by this
+  private MappedByteBuffer segment;
+  private long segmentIndex;
+
+  // the next segment, mapped ahead of time, and its index; guarded by this
+  private MappedByteBuffer spareSegment;
+  private long spareSegmentIndex;
+
+  // the highest index of any segment file created; guarded by this
+  private long createdSegmentIndex;
+
+  // full segments that have not been forced yet; guarded by this
+  private final List<MappedByteBuffer> retiredSegments = new ArrayList<>();
+
+  // maps spare segments and forces full ones off the append path
+  private ExecutorService segmentExecutor;
+
+  // the number of records appended; guarded by this
+  private long appendedCount;
+
+  // the number of records known to be durable; guarded by syncLock
+  private long durableCount;
+
+  // serializes forces so that waiting callers share them
+  private final Object syncLock = new Object();
+
+  // serializes compactions
+  private final Object compactionLock = new Object();
+
+  // the first failure to append; records after it are not written
+  private volatile IOException failure;
+
+  // runs periodic compactions, if any
+  private ScheduledExecutorService compactor;
+
+  private static Logger logger = Logger.getLogger(SeatJournal.class);
+
+
+  /**
+   * Creates a SeatJournal that keeps its files in the directory provided
+   */
+  public SeatJournal(Path directory) {
+    this.directory = directory;
+  }
+
+
+  /**
+   * Returns the size of each segment file in bytes
+   */
+  public int getSegmentSize() { return segmentSize; }
+
+  /**
+   * Sets the size of each segment file in bytes
+   * @throws IllegalArgumentException if the segment size cannot hold a
+   * header and a record
+   */
+  public void setSegmentSize(int segmentSize) {
+    if (segmentSize < SEGMENT_HEADER_SIZE + RECORD_OVERHEAD + 256) {
+      throw new IllegalArgumentException(JOURNAL_SEGMENT_SIZE_IS_TOO_SMALL);
+    }
+
+    this.segmentSize = segmentSize;
+  }
+
+
+  /**
+   * Returns the time between compactions in milliseconds, 0 if the
+   * journal is only compacted when asked
+   */
+  public long getCompactionIntervalInMilliSeconds() {
+    return compactionIntervalInMilliSeconds;
+  }
+
+  /**
+   * Sets the time between compactions in milliseconds, 0 to compact
+   * only when asked.  Takes effect when the venue is recovered.
+   * @throws IllegalArgumentException if the interval is negative
+   */
+  public void setCompactionIntervalInMilliSeconds(long compactionIntervalInMilliSeconds) {
+    if (compactionIntervalInMilliSeconds < 0) {
+      throw new IllegalArgumentException(COMPACTION_INTERVAL_MUST_NOT_BE_NEGATIVE);
+    }
+
+    this.compactionIntervalInMilliSeconds = compactionIntervalInMilliSeconds;
+  }
+
+
+  /**
+   * Returns the venue being journaled, or null if it has not been
+   * recovered yet
+   */
+  public Venue getVenue() { return venue; }
+
+
+  /**
+   * Rebuilds the venue from the latest snapshot and the segments written
+   * since, then journals every later change to it
+   * @param layout creates the venue with every seat open, used when
+   * there is no snapshot
+   * @return the recovered venue
+   * @throws IOException if the files cannot be read or do not match the
+   * venue
+   */
+  public synchronized Venue recover(Supplier<Venue> layout) throws IOException {
+    Files.createDirectories(directory);
+
+    // start from the latest snapshot, if any
+    SortedMap<Long, Path> snapshots = listFiles(SNAPSHOT_PREFIX, SNAPSHOT_SUFFIX);
+    long firstSegmentIndex = 0;
+    Venue recovered;
+    if (snapshots.isEmpty()) {
+      recovered = layout.get();
+    } else {
+      firstSegmentIndex = snapshots.lastKey();
+      recovered = VenueSnapshot.read(snapshots.get(firstSegmentIndex));
+    }
+
+    /*
+     * replay the segments written since the snapshot.  a torn record
+     * only ends its own segment: every recovery continues in a new
+     * segment, so the segments after a torn one were written after it
+     */
+    segmentIndex = firstSegmentIndex;
+    for (Map.Entry<Long, Path> entry : listFiles(SEGMENT_PREFIX, SEGMENT_SUFFIX).entrySet()) {
+      segmentIndex = Math.max(segmentIndex, entry.getKey());
+      if ((entry.getKey() >= firstSegmentIndex) && ! replay(recovered, entry.getValue())) {
+        logger.warn(String.format(JOURNAL_SEGMENT_IS_TORN, entry.getValue().getFileName()));
+      }
+    }
+
+    // holds are restored by the seat holding service, if at all
+    openHeldSeats(recovered);
+
+    // continue in a new segment so that a torn tail is never appended to
+    venue = recovered;
+    createdSegmentIndex = segmentIndex;
+    segmentExecutor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "seat-journal-segments");
+        thread.setDaemon(true);
+        return thread;
+      });
+    roll();
+    venue.setJournal(this);
+
+    if (compactionIntervalInMilliSeconds > 0) {
+      compactor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+          Thread thread = new Thread(runnable, "seat-journal-compactor");
+          thread.setDaemon(true);
+          return thread;
+        });
+      compactor.scheduleWithFixedDelay(this::compactQuietly,
+                                       compactionIntervalInMilliSeconds,
+                                       compactionIntervalInMilliSeconds,
+                                       TimeUnit.MILLISECONDS);
+    }
+
+    return recovered;
+  }
+
+
+  /**
+   * Appends the state of the seat provided.  Rows call this with their
+   * lock held.  A failure is kept and reported by sync.
+   */
+  synchronized void append(Seat seat, int state) {
+    if ((segment == null) || (failure != null)) {
+      return;
+    }
+
+    String customer = (state == Row.OPEN) ? null : seat.getCustomerEmailAddress();
+    byte[] encoded = (customer == null) ? new byte[0] : customer.getBytes(StandardCharsets.UTF_8);
+    try {
+      int packedSeat = SeatHold.packSeat(seat.getRowNumber(), seat.getSeatNumber());
+      int size = RECORD_OVERHEAD + encoded.length;
+      if ((encoded.length > 0xFFFF) || (size > segmentSize - SEGMENT_HEADER_SIZE)) {
+        throw new IOException(JOURNAL_RECORD_IS_TOO_LARGE);
+      }
+      if (segment.remaining() < size) {
+        roll();
+      }
+
+      int start = segment.position();
+      segment.putInt(packedSeat);
+      segment.put((byte) state);
+      segment.putShort((short) encoded.length);
+      segment.put(encoded);
+      segment.putInt(checksumOf(segment, start, segment.position()));
+      appendedCount++;
+    } catch (IOException e) {
+      failure = e;
+    } catch (IllegalArgumentException e) {
+      failure = new IOException(JOURNAL_RECORD_IS_TOO_LARGE, e);
+    }
+  }
+
+
+  /**
+   * Waits until every record appended before the call is durable.  One
+   * caller forces the segment on behalf of every caller waiting behind
+   * it.
+   * @throws IOException if a record could not be appended or the
+   * segment could not be forced
+   */
+  public void sync() throws IOException {
+    long target;
+    synchronized (this) {
+      target = appendedCount;
+    }
+
+    synchronized (syncLock) {
+      checkFailure();
+      if (durableCount >= target) {
+        return;
+      }
+
+      // cover everything appended so far, not just this caller's records
+      long covered;
+      MappedByteBuffer current;
+      List<MappedByteBuffer> retired;
+      synchronized (this) {
+        covered = appendedCount;
+        current = segment;
+        retired = takeRetiredSegments();
+      }
+      for (MappedByteBuffer full : retired) {
+        full.force();
+      }
+      if (current != null) {
+        current.force();
+      }
+      durableCount = covered;
+    }
+  }
+
+
+  /**
+   * Starts a new segment, snapshots the venue, and deletes the segments
+   * and snapshots the new snapshot replaces
+   * @throws IOException if the snapshot cannot be written
+   */
+  public void compact() throws IOException {
+    synchronized (compactionLock) {
+      /*
+       * every record in the older segments was recorded before the new
+       * segment started, so the snapshot taken afterwards reflects it.
+       * records in the new segment may also be reflected, which replay
+       * tolerates
+       */
+      long firstSegmentIndex;
+      synchronized (this) {
+        if (segment == null) {
+          return;
+        }
+        roll();
+        firstSegmentIndex = segmentIndex;
+      }
+
+      checkFailure();
+      VenueSnapshot.write(venue, snapshotPath(firstSegmentIndex));
+
+      for (Map.Entry<Long, Path> entry : listFiles(SEGMENT_PREFIX, SEGMENT_SUFFIX).entrySet()) {
+        if (entry.getKey() < firstSegmentIndex) {
+          Files.deleteIfExists(entry.getValue());
+        }
+      }
+      for (Map.Entry<Long, Path> entry : listFiles(SNAPSHOT_PREFIX, SNAPSHOT_SUFFIX).entrySet()) {
+        if (entry.getKey() < firstSegmentIndex) {
+          Files.deleteIfExists(entry.getValue());
+        }
+      }
+    }
+  }
+
+
+  /**
+   * Stops journaling the venue after making every record durable, and
+   * waits for the segment thread to finish
+   * @throws IOException if the records cannot be made durable
+   */
+  public void close() throws IOException {
+    if (compactor != null) {
+      compactor.shutdownNow();
+    }
+
+    synchronized (compactionLock) {
+      if (venue != null) {
+        venue.setJournal(null);
+      }
+      sync();
+      synchronized (this) {
+        segment = null;
+        spareSegment = null;
+      }
+    }
+
+    // let a spare being mapped finish so no file changes after close
+    if (segmentExecutor != null) {
+      segmentExecutor.shutdown();
+      try {
+        segmentExecutor.awaitTermination(1, TimeUnit.MINUTES);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+    }
+  }
+
+
+  /**
+   * Compacts the journal, logging rather than throwing a failure so that
+   * the next period tries again
+   */
+  private void compactQuietly() {
+    try {
+      compact();
+    } catch (IOException | RuntimeException e) {
+      logger.warn(JOURNAL_COMPACTION_FAILED, e);
+    }
+  }
+
+
+  /**
+   * Throws the failure to append, if any
+   */
+  private void checkFailure() throws IOException {
+    IOException current = failure;
+    if (current != null) {
+      throw new IOException(JOURNAL_HAS_FAILED, current);
+    }
+  }
+
+
+  /**
+   * Retires the current segment, if any, and continues in the spare
+   * segment, mapping a new segment only if the spare is not ready.  The
+   * retired segment is forced and the next spare mapped on the segment
+   * thread.  Called with the journal's monitor held.
+   */
+  private void roll() throws IOException {
+    if (segment != null) {
+      retiredSegments.add(segment);
+      segmentExecutor.execute(this::forceRetiredSegments);
+    }
+
+    // a spare mapped before a segment was created without it is too old
+    if ((spareSegment != null) && (spareSegmentIndex > segmentIndex)) {
+      segment = spareSegment;
+      segmentIndex = spareSegmentIndex;
+    } else {
+      segmentIndex = ++createdSegmentIndex;
+      segment = mapSegment(segmentIndex);
+    }
+    spareSegment = null;
+    segmentExecutor.execute(this::prepareSpareSegment);
+  }
+
+
+  /**
+   * Creates and maps the segment with the index provided and writes its
+   * header
+   * @throws IOException if the segment already exists or cannot be mapped
+   */
+  private MappedByteBuffer mapSegment(long index) throws IOException {
+    MappedByteBuffer mapped;
+    try (FileChannel channel = FileChannel.open(segmentPath(index),
+                                                StandardOpenOption.CREATE_NEW,
+                                                StandardOpenOption.READ,
+                                                StandardOpenOption.WRITE)) {
+      mapped = channel.map(FileChannel.MapMode.READ_WRITE, 0, segmentSize);
+    }
+
+    mapped.putInt(MAGIC);
+    mapped.putShort(VERSION);
+    mapped.putShort((short) 0);
+    mapped.putLong(index);
+
+    return mapped;
+  }
+
+
+  /**
+   * Maps the segment that the next roll continues in, unless there is
+   * one already.  Runs on the segment thread.  A spare that is never used
+   * holds only its header, which replays as an empty segment.
+   */
+  private void prepareSpareSegment() {
+    long index;
+    synchronized (this) {
+      if ((segment == null) || (spareSegment != null)) {
+        return;
+      }
+      index = ++createdSegmentIndex;
+    }
+
+    try {
+      MappedByteBuffer prepared = mapSegment(index);
+      synchronized (this) {
+        if ((segment != null) && (index > segmentIndex)) {
+          spareSegment = prepared;
+          spareSegmentIndex = index;
+        }
+      }
+    } catch (IOException e) {
+      logger.warn(JOURNAL_SEGMENT_NOT_PREPARED, e);
+    }
+  }
+
+
+  /**
+   * Forces the full segments that have not been forced yet.  Runs on the
+   * segment thread, sharing the sync lock with callers of sync.
+   */
+  private void forceRetiredSegments() {
+    synchronized (syncLock) {
+      List<MappedByteBuffer> retired;
+      synchronized (this) {
+        retired = takeRetiredSegments();
+      }
+      for (MappedByteBuffer full : retired) {
+        full.force();
+      }
+    }
+  }
+
+
+  /**
+   * Removes and returns the full segments that have not been forced yet.
+   * Called with the journal's monitor held.
+   */
+  private List<MappedByteBuffer> takeRetiredSegments() {
+    if (retiredSegments.isEmpty()) {
+      return Collections.emptyList();
+    }
+
+    List<MappedByteBuffer> retired = new ArrayList<>(retiredSegments);
+    retiredSegments.clear();
+
+    return retired;
+  }
+
+
+  /**
+   * Applies the records in the segment provided to the venue
+   * @return false if the segment ends in a torn or corrupt record, after
+   * which nothing further in the segment is replayed
+   * @throws IOException if the segment cannot be read or a record names
+   * a seat the venue does not have
+   */
+  static boolean replay(Venue venue, Path path) throws IOException {
+    MappedByteBuffer buffer;
+    try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+      buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+    }
+
+    if ((buffer.remaining() < SEGMENT_HEADER_SIZE) || (buffer.getInt() != MAGIC)) {
+      return false;
+    }
+
+    // a spare segment's header may be cut short while it is mapped
+    short version = buffer.getShort();
+    if (version == 0) {
+      return false;
+    }
+    if (version != VERSION) {
+      throw new IOException(JOURNAL_VERSION_IS_UNSUPPORTED);
+    }
+    buffer.getShort();
+    buffer.getLong();
+
+    try {
+      while (buffer.remaining() >= RECORD_OVERHEAD) {
+        int start = buffer.position();
+        int packedSeat = buffer.getInt();
+
+        // the unwritten remainder of a segment is zero
+        if (packedSeat == 0) {
+          return true;
+        }
+
+        int state = buffer.get();
+        byte[] encoded = new byte[buffer.getShort() & 0xFFFF];
+        buffer.get(encoded);
+        int expected = checksumOf(buffer, start, buffer.position());
+        if (buffer.getInt() != expected) {
+          return false;
+        }
+
+        String customer = (encoded.length == 0) ? null : new String(encoded, StandardCharsets.UTF_8);
+        apply(venue, packedSeat, state, customer);
+      }
+    } catch (BufferUnderflowException e) {
+      return false;
+    }
+
+    return true;
+  }
+
+
+  /**
+   * Puts the seat provided into the state provided, unless it is already
+   * reserved
+   * @throws IOException if the venue has no such seat
+   */
+  static void apply(Venue venue, int packedSeat, int state, String customer) throws IOException {
+    Row row;
+    Seat seat;
+    try {
+      row = venue.getRow(SeatHold.unpackRowNumber(packedSeat));
+      seat = row.getSeat(SeatHold.unpackSeatNumber(packedSeat));
+    } catch (IllegalArgumentException e) {
+      throw new IOException(JOURNAL_DOES_NOT_MATCH_VENUE, e);
+    }
+
+    row.lock();
+    try {
+      // reservations are final
+      if (seat.isReserved()) {
+        return;
+      }
+
+      // keep a hold by the same customer; replace any other
+      boolean keepHold = (state != Row.OPEN) && seat.isHeld()
+        && Objects.equals(customer, seat.getCustomerEmailAddress());
+      if ((state == Row.HELD) && keepHold) {
+        return;
+      }
+
+      if (! keepHold) {
+        seat.unhold(false);
+        if (state != Row.OPEN) {
+          seat.hold(customer, false);
+        }
+      }
+      if (state == Row.RESERVED) {
+        seat.reserve(false);
+      }
+
+      row.recordSeatStateChanges(Collections.singletonList(seat));
+    } finally {
+      row.unlock();
+    }
+  }
+
+
+  /**
+   * Opens every seat of the venue that is held but not reserved
+   */
+  static void openHeldSeats(Venue venue) {
+    for (Row row : venue.getRows()) {
+      row.lock();
+      try {
+        List<Seat> openedSeats = new ArrayList<>();
+        for (Seat seat : row.getSeats()) {
+          if (seat.unhold(false)) {
+            openedSeats.add(seat);
+          }
+        }
+        if (! openedSeats.isEmpty()) {
+          row.recordSeatStateChanges(openedSeats);
+        }
+      } finally {
+        row.unlock();
+      }
+    }
+  }
+
+
+  /**
+   * Returns the checksum of the bytes of the buffer provided between
+   * start and end
+   */
+  private static int checksumOf(ByteBuffer buffer, int start, int end) {
+    ByteBuffer record = buffer.duplicate();
+    record.limit(end);
+    record.position(start);
+
+    CRC32 crc = new CRC32();
+    crc.update(record);
+
+    return (int) crc.getValue();
+  }
+
+
+  /**
+   * Returns the files in the directory with the prefix and suffix
+   * provided, by the index between them
+   */
+  private SortedMap<Long, Path> listFiles(String prefix, String suffix) throws IOException {
+    SortedMap<Long, Path> files = new TreeMap<>();
+    try (DirectoryStream<Path> paths = Files.newDirectoryStream(directory, prefix + "*" + suffix)) {
+      for (Path path : paths) {
+        String name = path.getFileName().toString();
+        try {
+          files.put(Long.parseLong(name.substring(prefix.length(), name.length() - suffix.length())), path);
+        } catch (NumberFormatException e) {
+          // not one of ours
+        }
+      }
+    }
+
+    return files;
+  }
+
+
+  /**
+   * Returns the path of the segment with the index provided
+   */
+  private Path segmentPath(long index) {
+    return directory.resolve(String.format("%s%020d%s", SEGMENT_PREFIX, index, SEGMENT_SUFFIX));
+  }
+
+
+  /**
+   * Returns the path of the snapshot that precedes the segment with the
+   * index provided
+   */
+  private Path snapshotPath(long index) {
+    return directory.resolve(String.format("%s%020d%s", SNAPSHOT_PREFIX, index, SNAPSHOT_SUFFIX));
+  }
+
+}
@@ -0,0 +1,85 @@
+package seats.model;
+
+
+/**
+ * <p>
+ * The outcome of a request to reserve the seats of a seat hold: a
+ * confirmation code when the seats were reserved, or the reason they
+ * were not.
+ * </p>
+ */
+public class SeatReservation {
+  // the id of the seat hold that was to be reserved
+  private int seatHoldId;
+
+  // the status of the reservation request
+  private SeatReservationStatusEnum status;
+
+  // additional information about the status of the reservation
+  private String statusDetails;
+
+  // the confirmation code of a successful reservation
+  private String confirmationCode;
+
+
+  /**
+   * Creates a SeatReservation
+   */
+  public SeatReservation() { }
+
+  /**
+   * Creates a SeatReservation for the seat hold id provided
+   */
+  public SeatReservation(int seatHoldId) {
+    this.seatHoldId = seatHoldId;
+  }
+
+
+  /**
+   * Returns the id of the seat hold that was to be reserved
+   */
+  public int getSeatHoldId() { return seatHoldId; }
+
+  /**
+   * Sets the id of the seat hold that was to be reserved
+   */
+  public void setSeatHoldId(int seatHoldId) { this.seatHoldId = seatHoldId; }
+
+
+  /**
+   * Returns the status of the reservation request
+   */
+  public SeatReservationStatusEnum getStatus() { return status; }
+
+  /**
+   * Sets the status of the reservation request
+   */
+  public void setStatus(SeatReservationStatusEnum status) { this.status = status; }
+
+
+  /**
+   * Returns additional information about the status of the reservation
+   */
+  public String getStatusDetails() { return statusDetails; }
+
+  /**
+   * Sets additional information about the status of the reservation
+   */
+  public void setStatusDetails(String statusDetails) {
+    this.statusDetails = statusDetails;
+  }
+
+
+  /**
+   * Returns the confirmation code of a successful reservation
+   */
+  public String getConfirmationCode() { return confirmationCode; }
+
+  /**
+   * Sets the confirmation code of a successful reservation
+   */
+  public void setConfirmationCode(String confirmationCode) {
+    this.confirmationCode = confirmationCode;
+  }
+
+}
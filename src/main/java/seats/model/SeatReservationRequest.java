@@ -0,0 +1,57 @@
+package seats.model;
+
+
+/**
+ * <p>
+ * A request, on behalf of a customer with an email address, to reserve
+ * the seats of a seat hold.  Batches of these are passed to
+ * TicketService#reserveSeats(List).
+ * </p>
+ */
+public class SeatReservationRequest {
+  // the id of the seat hold to reserve
+  private int seatHoldId;
+
+  // the email address of the customer
+  private String customerEmailAddress;
+
+
+  /**
+   * Creates a SeatReservationRequest
+   */
+  public SeatReservationRequest() { }
+
+  /**
+   * Creates a SeatReservationRequest for the seat hold and customer
+   * provided
+   */
+  public SeatReservationRequest(int seatHoldId, String customerEmailAddress) {
+    this.seatHoldId = seatHoldId;
+    this.customerEmailAddress = customerEmailAddress;
+  }
+
+
+  /**
+   * Returns the id of the seat hold to reserve
+   */
+  public int getSeatHoldId() { return seatHoldId; }
+
+  /**
+   * Sets the id of the seat hold to reserve
+   */
+  public void setSeatHoldId(int seatHoldId) { this.seatHoldId = seatHoldId; }
+
+
+  /**
+   * Returns the email address of the customer
+   */
+  public String getCustomerEmailAddress() { return customerEmailAddress; }
+
+  /**
+   * Sets the email address of the customer
+   */
+  public void setCustomerEmailAddress(String customerEmailAddress) {
+    this.customerEmailAddress = customerEmailAddress;
+  }
+
+}
@@ -0,0 +1,20 @@
+package seats.model;
+
+/**
+ * <p>
+ * Captures the state of a seat reservation request
+ * </p>
+ * 
+ * <p>
+ * The seats of a hold may be reserved successfully or they may not be
+ * reserved due to a variety of different reasons.  This enumerated type
+ * captures those failure pathways so they may be logged appropriately or
+ * returned to the caller.
+ * </p>
+ */
+public enum SeatReservationStatusEnum {
+  SUCCESS,
+  FAILURE_DUE_TO_INVALID_PARAMETERS,
+  FAILURE_DUE_TO_UNKNOWN_SEAT_HOLD,
+  FAILURE_DUE_TO_UNAVAILABLE_SEATS
+}
@@ -0,0 +1,85 @@
+package seats.model;
+
+
+/**
+ * <p>
+ * The scores a StaticScoreSeatComparator assigns to every seat in a
+ * Venue, computed once and stored by seat ordinal.
+ * </p>
+ *
+ * <p>
+ * Ordinals number the seats of the venue in row and seat number order
+ * starting at 0, so ordering seats by ordinal matches the order in
+ * which the venue returns them.  Rows must not be added or replaced
+ * after the scores are computed.
+ * </p>
+ */
+public class SeatScores {
+  // the ordinal of the first seat in each row, indexed by row number - 1
+  private final int[] rowOffsets;
+
+  // the seats of the venue indexed by ordinal
+  private final Seat[] seats;
+
+  // the score of each seat indexed by ordinal
+  private final int[] scores;
+
+
+  /**
+   * Computes the score of every seat in the venue provided
+   * @param venue the venue whose seats are scored
+   * @param comparator the comparator that scores the seats
+   */
+  public SeatScores(Venue venue, StaticScoreSeatComparator comparator) {
+    rowOffsets = new int[venue.getRowCount()];
+
+    int seatCount = 0;
+    for (Row row : venue.getRows()) {
+      rowOffsets[row.getRowNumber() - 1] = seatCount;
+      seatCount += row.getSeatCount();
+    }
+
+    seats = new Seat[seatCount];
+    scores = new int[seatCount];
+    for (Row row : venue.getRows()) {
+      for (Seat seat : row.getSeats()) {
+        int ordinal = getOrdinal(seat);
+        seats[ordinal] = seat;
+        scores[ordinal] = comparator.scoreSeat(seat);
+      }
+    }
+  }
+
+
+  /**
+   * Returns the number of seats that were scored
+   */
+  public int getSeatCount() { return seats.length; }
+
+
+  /**
+   * Returns the ordinal of the seat provided
+   */
+  public int getOrdinal(Seat seat) {
+    return rowOffsets[seat.getRowNumber() - 1] + seat.getSeatNumber() - 1;
+  }
+
+
+  /**
+   * Returns the seat with the ordinal provided
+   */
+  public Seat getSeat(int ordinal) { return seats[ordinal]; }
+
+
+  /**
+   * Returns the score of the seat with the ordinal provided
+   */
+  public int getScore(int ordinal) { return scores[ordinal]; }
+
+
+  /**
+   * Returns the score of the seat provided
+   */
+  public int getScore(Seat seat) { return scores[getOrdinal(seat)]; }
+
+}
@@ -0,0 +1,51 @@
+package seats.model;
+
+import java.util.List;
+
+
+/**
+ * <p>
+ * Receives notification when a Seat in a Venue changes state.
+ * </p>
+ *
+ * <p>
+ * Listeners are invoked on the thread that performed the state change
+ * and should therefore return quickly.
+ * </p>
+ */
+public interface SeatStateListener {
+
+  /**
+   * Invoked after an open seat has been held
+   * @param seat the seat that was held
+   */
+  public void seatHeld(Seat seat);
+
+
+  /**
+   * Invoked after a held seat has been returned to the open state
+   * @param seat the seat that was unheld
+   */
+  public void seatUnheld(Seat seat);
+
+
+  /**
+   * Invoked after a batch of held seats has been returned to the open
+   * state.  Listeners that can apply a batch more cheaply than one seat
+   * at a time should override this.
+   * @param seats the seats that were unheld
+   */
+  public default void seatsUnheld(List<Seat> seats) {
+    for (Seat seat : seats) {
+      seatUnheld(seat);
+    }
+  }
+
+
+  /**
+   * Invoked after a held seat has been reserved
+   * @param seat the seat that was reserved
+   */
+  public void seatReserved(Seat seat);
+
+}
@@ -0,0 +1,31 @@
+package seats.model;
+
+import java.util.Comparator;
+
+
+/**
+ * <p>
+ * A Comparator for Seat instances that orders seats by an integer score,
+ * lower scores being more favorable.
+ * </p>
+ *
+ * <p>
+ * Implementations declare that a seat's score depends only on attributes
+ * that are fixed once the seat is created, such as its row number and
+ * whether it is an aisle or center seat, and never on its state.  This
+ * allows locators to compute every score once per venue with SeatScores
+ * and to order seats by the cached scores instead of calling the
+ * comparator.  compare must order seats exactly as their scores do.
+ * </p>
+ *
+ * @see SeatScores
+ */
+public interface StaticScoreSeatComparator extends Comparator<Seat> {
+
+  /**
+   * Returns the score of the seat provided
+   * @param seat the seat to score
+   */
+  public int scoreSeat(Seat seat);
+
+}
@@ -1,9 +1,15 @@
 package seats.model;
 
+import java.io.IOException;
 import java.util.Map;
 import java.util.HashMap;
 import java.util.List;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import static seats.common.Messages.*;
 
@@ -14,17 +20,46 @@ import org.apache.commons.lang.StringUtils;
  * <p>
  * Representation of the performance house.
  * </p>
+ *
+ * <p>
+ * Seat state transitions are guarded by the lock of the Row containing
+ * the seat rather than by a venue-wide monitor, so requests against
+ * different rows do not contend.  Operations that span rows acquire the
+ * row locks in ascending row number order.  Listeners are notified after
+ * the row locks have been released.
+ * </p>
+ *
+ * <p>
+ * Because a Seat changes state with compare-and-set, open seats may also
+ * be claimed without any lock through claimSeats.  The row locks keep
+ * the checks made by the other operations consistent with one another.
+ * </p>
  */
 public class Venue {
   // all of the rows in the venue
   private List<Row> rows;
 
+  // parties interested in changes to the state of seats in the venue
+  private List<SeatStateListener> seatStateListeners;
+
+  // records every seat state change, if journaling is enabled
+  private volatile SeatJournal journal;
+
+  // the number of seats in each state, maintained by the rows
+  private AtomicInteger openSeatCount;
+  private AtomicInteger heldSeatCount;
+  private AtomicInteger reservedSeatCount;
+
 
   /**
    * Creates a Venue
    */
   public Venue() {
     rows = new ArrayList<>();
+    seatStateListeners = new CopyOnWriteArrayList<>();
+    openSeatCount = new AtomicInteger();
+    heldSeatCount = new AtomicInteger();
+    reservedSeatCount = new AtomicInteger();
   }
 
   /**
@@ -35,12 +70,115 @@ public class Venue {
   /**
    * Sets the rows in the venue
    */
-  public void setRows(List<Row> rows) { this.rows = rows; }
+  public void setRows(List<Row> rows) {
+    // detach the previous rows and reset the counts
+    for (Row row : this.rows) {
+      row.setVenue(null);
+    }
+    openSeatCount.set(0);
+    heldSeatCount.set(0);
+    reservedSeatCount.set(0);
+
+    this.rows = rows;
+    for (Row row : rows) {
+      attachRow(row);
+    }
+  }
 
   /**
    * Adds a row to the venue
    */
-  public void addRow(Row row) { rows.add(row); }
+  public void addRow(Row row) {
+    rows.add(row);
+    attachRow(row);
+  }
+
+  /**
+   * Registers the venue with the row and adds the row's seats to the
+   * venue's counts
+   */
+  private void attachRow(Row row) {
+    row.setVenue(this);
+    updateSeatCounts(row.getOpenSeatCount(),
+                     row.getHeldSeatCount(),
+                     row.getReservedSeatCount());
+  }
+
+  /**
+   * Adjusts the number of open, held, and reserved seats.  Rows call this
+   * as the state of their seats changes.
+   */
+  void updateSeatCounts(int openDelta, int heldDelta, int reservedDelta) {
+    if (openDelta != 0) {
+      openSeatCount.addAndGet(openDelta);
+    }
+    if (heldDelta != 0) {
+      heldSeatCount.addAndGet(heldDelta);
+    }
+    if (reservedDelta != 0) {
+      reservedSeatCount.addAndGet(reservedDelta);
+    }
+  }
+
+  /**
+   * Sets the journal that records every seat state change, or null to
+   * stop journaling.  SeatJournal attaches itself once it has recovered
+   * the venue.
+   */
+  void setJournal(SeatJournal journal) { this.journal = journal; }
+
+  /**
+   * Appends the state of the seat provided to the journal, if any.  Rows
+   * call this with their lock held whenever a seat changes state.
+   */
+  void journalSeatState(Seat seat, int state) {
+    SeatJournal current = journal;
+    if (current != null) {
+      current.append(seat, state);
+    }
+  }
+
+  /**
+   * Waits until every seat state change made so far is durable in the
+   * journal.  Returns immediately if the venue is not journaled.
+   * @throws IOException if the journal cannot be written
+   */
+  public void syncJournal() throws IOException {
+    SeatJournal current = journal;
+    if (current != null) {
+      current.sync();
+    }
+  }
+
+  /**
+   * Returns the number of seats in the venue that are neither held nor
+   * reserved
+   */
+  public int getOpenSeatCount() { return openSeatCount.get(); }
+
+  /**
+   * Returns the number of seats in the venue that are held but not reserved
+   */
+  public int getHeldSeatCount() { return heldSeatCount.get(); }
+
+  /**
+   * Returns the number of seats in the venue that are reserved
+   */
+  public int getReservedSeatCount() { return reservedSeatCount.get(); }
+
+  /**
+   * Registers a listener to be notified of seat state changes
+   */
+  public void addSeatStateListener(SeatStateListener listener) {
+    seatStateListeners.add(listener);
+  }
+
+  /**
+   * Unregisters a listener previously added with addSeatStateListener
+   */
+  public void removeSeatStateListener(SeatStateListener listener) {
+    seatStateListeners.remove(listener);
+  }
 
   /**
    * Validates that the rowNumber provided exists.
@@ -137,20 +275,152 @@ public class Venue {
 
     // locate the seat
     Seat seat = findSeat(rowNumber, seatNumber);
-    
-    // if the seat is not open then throw an exception
-    if (! seat.isOpen()) {
-      throw new SeatUnavailableException(SEAT_IS_NOT_OPEN);
+    Row row = rows.get(rowNumber - 1);
+
+    row.lock();
+    try {
+      // hold the seat, throwing an exception if it is not open
+      if (! seat.hold(customerEmailAddress)) {
+        throw new SeatUnavailableException(SEAT_IS_NOT_OPEN);
+      }
+    } finally {
+      row.unlock();
     }
 
-    // hold the seat
-    seat.hold(customerEmailAddress);
+    // notify the listeners
+    for (SeatStateListener listener : seatStateListeners) {
+      listener.seatHeld(seat);
+    }
 
     // return the seat
     return seat;
   }
 
 
+  /**
+   * Holds a group of seats, possibly spanning several rows, for a single
+   * customer.  Either every seat is held or none are.
+   * @param seats the seats to hold
+   * @param customerEmailAddress the email address for the customer
+   * holding the seats
+   * @return the held seats
+   * @throws IllegalArgumentException if a seat does not exist or the email address is blank or empty
+   * @throws SeatUnavailableException if any of the seats is not open
+   */
+  public List<Seat> holdSeats(List<Seat> seats,
+                              String customerEmailAddress)
+    throws SeatUnavailableException {
+
+    // verify the email address is not blank or null
+    validateEmailAddress(customerEmailAddress);
+
+    // locate the seats and the rows that contain them
+    List<Seat> seatsToHold = new ArrayList<>();
+    SortedMap<Integer, Row> rowsToLock = new TreeMap<>();
+    for (Seat seat : seats) {
+      int rowNumber = seat.getRowNumber();
+      seatsToHold.add(findSeat(rowNumber, seat.getSeatNumber()));
+      rowsToLock.put(rowNumber, rows.get(rowNumber - 1));
+    }
+
+    /*
+     * lock the rows in ascending row number order.  every multi-row
+     * operation acquires row locks in this order so two of them can
+     * never wait on each other
+     */
+    List<Row> lockedRows = new ArrayList<>();
+    List<Seat> heldSeats = new ArrayList<>();
+    boolean allSeatsHeld = true;
+    try {
+      for (Row row : rowsToLock.values()) {
+        row.lock();
+        lockedRows.add(row);
+      }
+
+      /*
+       * hold the seats.  seats can also be claimed without a row lock
+       * (see claimSeats) so if any seat cannot be held then release the
+       * ones that were
+       */
+      for (Seat seat : seatsToHold) {
+        if (! seat.hold(customerEmailAddress)) {
+          allSeatsHeld = false;
+          break;
+        }
+        heldSeats.add(seat);
+      }
+
+      if (! allSeatsHeld) {
+        for (Seat heldSeat : heldSeats) {
+          heldSeat.unhold();
+        }
+      }
+    } finally {
+      for (int i = lockedRows.size() - 1; i >= 0; i--) {
+        lockedRows.get(i).unlock();
+      }
+    }
+
+    if (! allSeatsHeld) {
+      /*
+       * listeners may have observed the released seats while they were
+       * briefly held, so tell them the seats are open again
+       */
+      for (Seat seat : heldSeats) {
+        for (SeatStateListener listener : seatStateListeners) {
+          listener.seatUnheld(seat);
+        }
+      }
+
+      throw new SeatUnavailableException(SEAT_IS_NOT_OPEN);
+    }
+
+    // notify the listeners
+    for (Seat seat : seatsToHold) {
+      for (SeatStateListener listener : seatStateListeners) {
+        listener.seatHeld(seat);
+      }
+    }
+
+    return seatsToHold;
+  }
+
+
+  /**
+   * Claims as many of the seats provided as possible for a single
+   * customer without taking any locks.  Each seat is held with a single
+   * compare-and-set so a seat claimed concurrently by another caller is
+   * simply reported back as a conflict.
+   * @param seats the seats to claim
+   * @param customerEmailAddress the email address for the customer
+   * holding the seats
+   * @return the seats that could not be claimed because they were no
+   * longer open; the remaining seats are held by the customer
+   * @throws IllegalArgumentException if the email address is blank or empty
+   */
+  public List<Seat> claimSeats(List<Seat> seats,
+                               String customerEmailAddress) {
+
+    // verify the email address is not blank or null
+    validateEmailAddress(customerEmailAddress);
+
+    List<Seat> conflictingSeats = new ArrayList<>();
+    for (Seat seat : seats) {
+      if (! seat.hold(customerEmailAddress)) {
+        conflictingSeats.add(seat);
+        continue;
+      }
+
+      // notify the listeners
+      for (SeatStateListener listener : seatStateListeners) {
+        listener.seatHeld(seat);
+      }
+    }
+
+    return conflictingSeats;
+  }
+
+
   /**
    * Reserves a seat in the venue
    * @param rowNumber the row number of the seat
@@ -171,26 +441,39 @@ public class Venue {
 
     // locate the seat
     Seat seat = findSeat(rowNumber, seatNumber);
+    Row row = rows.get(rowNumber - 1);
 
-    // verify the seat is held
-    if (! seat.isHeld()) {
-      throw new SeatUnavailableException(SEAT_IS_NOT_HELD);
-    }
+    row.lock();
+    try {
+      // verify the seat is held
+      if (! seat.isHeld()) {
+        throw new SeatUnavailableException(SEAT_IS_NOT_HELD);
+      }
 
-    // verify the seat is not already reserved
-    if (seat.isReserved()) {
-      throw new SeatUnavailableException(SEAT_IS_RESERVED);
-    }
+      // verify the seat is not already reserved
+      if (seat.isReserved()) {
+        throw new SeatUnavailableException(SEAT_IS_RESERVED);
+      }
 
-    // verify the email address matches
-    String heldEmailAddress = seat.getCustomerEmailAddress();
-    boolean emailAddressMatches = customerEmailAddress.equals(heldEmailAddress);
-    if (! emailAddressMatches) {
-      throw new IllegalArgumentException(EMAIL_ADDRESS_DOES_NOT_MATCH);
+      // verify the email address matches
+      String heldEmailAddress = seat.getCustomerEmailAddress();
+      boolean emailAddressMatches = customerEmailAddress.equals(heldEmailAddress);
+      if (! emailAddressMatches) {
+        throw new IllegalArgumentException(EMAIL_ADDRESS_DOES_NOT_MATCH);
+      }
+
+      // reserve the seat
+      if (! seat.reserve()) {
+        throw new SeatUnavailableException(SEAT_IS_NOT_HELD);
+      }
+    } finally {
+      row.unlock();
     }
 
-    // reserve the seat
-    seat.reserve();
+    // notify the listeners
+    for (SeatStateListener listener : seatStateListeners) {
+      listener.seatReserved(seat);
+    }
 
     // return the seat
     return seat;
@@ -202,11 +485,7 @@ public class Venue {
   public List<Seat> getOpenSeats() {
     List<Seat> seats = new ArrayList<>();
     for (Row row : getRows()) {
-      for (Seat seat : row.getSeats()) {
-        if (seat.isOpen()) {
-          seats.add(seat);
-        }
-      }
+      seats.addAll(row.getOpenSeats());
     }
 
     return seats;
@@ -226,22 +505,301 @@ public class Venue {
     
     // locate the seat
     Seat seat = findSeat(rowNumber, seatNumber);
+    Row row = rows.get(rowNumber - 1);
 
-    // reserved seats cannot be unheld
-    if (seat.isReserved()) {
-      throw new SeatNotHeldException(SEAT_IS_RESERVED);
-    }
+    row.lock();
+    try {
+      // reserved seats cannot be unheld
+      if (seat.isReserved()) {
+        throw new SeatNotHeldException(SEAT_IS_RESERVED);
+      }
+
+      // open seats cannot be unheld
+      if (seat.isOpen()) {
+        throw new SeatNotHeldException(SEAT_IS_OPEN);
+      }
 
-    // open seats cannot be unheld
-    if (seat.isOpen()) {
-      throw new SeatNotHeldException(SEAT_IS_OPEN);
+      // unhold the seat
+      if (! seat.unhold()) {
+        throw new SeatNotHeldException(SEAT_IS_NOT_HELD);
+      }
+    } finally {
+      row.unlock();
     }
 
-    // unhold the seat
-    seat.unhold();
+    // notify the listeners
+    for (SeatStateListener listener : seatStateListeners) {
+      listener.seatUnheld(seat);
+    }
 
     return seat;
   }
-  
+
+
+  /**
+   * Reserves the seats of the holds provided for the customers of the
+   * holds.  The seats of every hold are sorted together so that they are
+   * grouped by row in ascending row number order, and each row is
+   * locked and records its changes once.  The listeners are notified
+   * after the row locks have been released.  Seats that are not held by
+   * the customer of their hold are skipped.
+   * @return the packed seats of each hold, in the order of the holds
+   * provided, that were reserved; a hold's own array is returned when
+   * every one of its seats was reserved
+   * @throws IllegalArgumentException if a seat does not exist
+   */
+  public int[][] reserveSeatHolds(List<SeatHold> seatHolds) {
+    // pair each packed seat with the index of its hold and sort by seat
+    int seatCount = 0;
+    for (SeatHold seatHold : seatHolds) {
+      seatCount += seatHold.getHeldSeats().length;
+    }
+
+    long[] keys = new long[seatCount];
+    int offset = 0;
+    for (int holdIndex = 0; holdIndex < seatHolds.size(); holdIndex++) {
+      for (int packedSeat : seatHolds.get(holdIndex).getHeldSeats()) {
+        keys[offset++] = ((long) packedSeat << 32) | holdIndex;
+      }
+    }
+    Arrays.sort(keys);
+
+    // resolve every seat before any row is locked
+    Seat[] seats = new Seat[keys.length];
+    for (int i = 0; i < keys.length; i++) {
+      int packedSeat = (int) (keys[i] >>> 32);
+      seats[i] = findSeat(SeatHold.unpackRowNumber(packedSeat), SeatHold.unpackSeatNumber(packedSeat));
+    }
+
+    List<Seat> reservedSeats = new ArrayList<>();
+    int[][] reservedPackedSeats = new int[seatHolds.size()][];
+    int[] reservedCounts = new int[seatHolds.size()];
+    for (int holdIndex = 0; holdIndex < reservedPackedSeats.length; holdIndex++) {
+      reservedPackedSeats[holdIndex] = new int[seatHolds.get(holdIndex).getHeldSeats().length];
+    }
+    int start = 0;
+    while (start < seats.length) {
+      Row row = rows.get(seats[start].getRowNumber() - 1);
+      int end = start;
+      row.lock();
+      try {
+        List<Seat> reservedRowSeats = new ArrayList<>();
+        for (; (end < seats.length) && (seats[end].getRowNumber() == row.getRowNumber()); end++) {
+          Seat seat = seats[end];
+          int holdIndex = (int) keys[end];
+          String customerEmailAddress = seatHolds.get(holdIndex).getCustomerEmailAddress();
+          if (! seat.isReserved() && StringUtils.equals(customerEmailAddress, seat.getCustomerEmailAddress())
+              && seat.reserve(false)) {
+            reservedRowSeats.add(seat);
+            reservedPackedSeats[holdIndex][reservedCounts[holdIndex]++] = (int) (keys[end] >>> 32);
+          }
+        }
+
+        row.recordSeatStateChanges(reservedRowSeats);
+        reservedSeats.addAll(reservedRowSeats);
+      } finally {
+        row.unlock();
+      }
+      start = end;
+    }
+
+    // notify the listeners
+    for (Seat seat : reservedSeats) {
+      for (SeatStateListener listener : seatStateListeners) {
+        listener.seatReserved(seat);
+      }
+    }
+
+    for (int holdIndex = 0; holdIndex < reservedPackedSeats.length; holdIndex++) {
+      int[] heldSeats = seatHolds.get(holdIndex).getHeldSeats();
+      reservedPackedSeats[holdIndex] = (reservedCounts[holdIndex] == heldSeats.length)
+        ? heldSeats
+        : Arrays.copyOf(reservedPackedSeats[holdIndex], reservedCounts[holdIndex]);
+    }
+
+    return reservedPackedSeats;
+  }
+
+
+  /**
+   * Returns the seats of the holds provided to the open state.
+   * @see #unholdSeats
+   */
+  public List<Seat> releaseSeatHolds(List<SeatHold> seatHolds) {
+    int seatCount = 0;
+    for (SeatHold seatHold : seatHolds) {
+      seatCount += seatHold.getHeldSeats().length;
+    }
+
+    int[] packedSeats = new int[seatCount];
+    int offset = 0;
+    for (SeatHold seatHold : seatHolds) {
+      int[] heldSeats = seatHold.getHeldSeats();
+      System.arraycopy(heldSeats, 0, packedSeats, offset, heldSeats.length);
+      offset += heldSeats.length;
+    }
+
+    return unholdPackedSeats(packedSeats);
+  }
+
+
+  /**
+   * Returns a batch of held seats to the open state.
+   * @see #unholdPackedSeats
+   */
+  public List<Seat> unholdSeats(List<Seat> seats) {
+    int[] packedSeats = new int[seats.size()];
+    for (int i = 0; i < packedSeats.length; i++) {
+      Seat seat = seats.get(i);
+      packedSeats[i] = SeatHold.packSeat(seat.getRowNumber(), seat.getSeatNumber());
+    }
+
+    return unholdPackedSeats(packedSeats);
+  }
+
+
+  /**
+   * Returns a batch of held seats, identified by packed row and seat
+   * number, to the open state.  The seats are sorted so that they are
+   * grouped by row in ascending row number order, and each row is
+   * validated, locked, and records its changes once.  The listeners are
+   * notified once for the whole batch.  Seats that are not held are
+   * skipped.
+   * @param packedSeats the packed seats to unhold; sorted in place
+   * @return the seats that could not be unheld because they were not held
+   * @throws IllegalArgumentException if a seat does not exist
+   * @see SeatHold#packSeat
+   */
+  public List<Seat> unholdPackedSeats(int[] packedSeats) {
+    List<Seat> unheldSeats = new ArrayList<>();
+    List<Seat> notHeldSeats = new ArrayList<>();
+    for (Seat[] rowSeats : resolvePackedSeatsByRow(packedSeats)) {
+      Row row = rows.get(rowSeats[0].getRowNumber() - 1);
+      row.lock();
+      try {
+        List<Seat> unheldRowSeats = new ArrayList<>(rowSeats.length);
+        for (Seat seat : rowSeats) {
+          if (seat.unhold(false)) {
+            unheldRowSeats.add(seat);
+          } else {
+            notHeldSeats.add(seat);
+          }
+        }
+
+        row.recordSeatStateChanges(unheldRowSeats);
+        unheldSeats.addAll(unheldRowSeats);
+      } finally {
+        row.unlock();
+      }
+    }
+
+    // notify the listeners
+    if (! unheldSeats.isEmpty()) {
+      for (SeatStateListener listener : seatStateListeners) {
+        listener.seatsUnheld(unheldSeats);
+      }
+    }
+
+    return notHeldSeats;
+  }
+
+
+
+  /**
+   * Restores a batch of seats, identified by packed row and seat number,
+   * to the held or reserved state for a single customer, as when
+   * rebuilding the venue from a durable store.  The seats are grouped by
+   * row in ascending row number order and each row is locked and records
+   * its changes once.  Seats that are not open are skipped; a seat that
+   * is already reserved by the customer, as after its reservation was
+   * recovered from a SeatJournal, is left as it is and is not reported
+   * when it is restored as reserved.
+   * @param packedSeats the packed seats to restore; sorted in place
+   * @param customerEmailAddress the email address for the customer
+   * holding the seats
+   * @param reserved true to reserve the seats, false to hold them
+   * @return the seats that could not be restored because they were not open
+   * @throws IllegalArgumentException if a seat does not exist or the email address is blank or empty
+   * @see SeatHold#packSeat
+   */
+  public List<Seat> restorePackedSeats(int[] packedSeats,
+                                       String customerEmailAddress,
+                                       boolean reserved) {
+
+    // verify the email address is not blank or null
+    validateEmailAddress(customerEmailAddress);
+
+    List<Seat> restoredSeats = new ArrayList<>();
+    List<Seat> notOpenSeats = new ArrayList<>();
+    for (Seat[] rowSeats : resolvePackedSeatsByRow(packedSeats)) {
+      Row row = rows.get(rowSeats[0].getRowNumber() - 1);
+      row.lock();
+      try {
+        List<Seat> restoredRowSeats = new ArrayList<>(rowSeats.length);
+        for (Seat seat : rowSeats) {
+          if (seat.hold(customerEmailAddress, false)) {
+            if (reserved) {
+              seat.reserve(false);
+            }
+            restoredRowSeats.add(seat);
+          } else if (! reserved || ! seat.isReserved() ||
+                     ! customerEmailAddress.equals(seat.getCustomerEmailAddress())) {
+            notOpenSeats.add(seat);
+          }
+        }
+
+        row.recordSeatStateChanges(restoredRowSeats);
+        restoredSeats.addAll(restoredRowSeats);
+      } finally {
+        row.unlock();
+      }
+    }
+
+    // notify the listeners
+    for (Seat seat : restoredSeats) {
+      for (SeatStateListener listener : seatStateListeners) {
+        listener.seatHeld(seat);
+        if (reserved) {
+          listener.seatReserved(seat);
+        }
+      }
+    }
+
+    return notOpenSeats;
+  }
+
+
+
+  /**
+   * Sorts the packed seats provided and resolves them into one array of
+   * seats per row, in ascending row number order
+   * @throws IllegalArgumentException if a seat does not exist
+   */
+  private List<Seat[]> resolvePackedSeatsByRow(int[] packedSeats) {
+    Arrays.sort(packedSeats);
+
+    List<Seat[]> seatsByRow = new ArrayList<>();
+    int start = 0;
+    while (start < packedSeats.length) {
+      // find the seats in the same row
+      int rowNumber = SeatHold.unpackRowNumber(packedSeats[start]);
+      int end = start + 1;
+      while ((end < packedSeats.length) &&
+             (SeatHold.unpackRowNumber(packedSeats[end]) == rowNumber)) {
+        end++;
+      }
+
+      Row row = getRow(rowNumber);
+      Seat[] rowSeats = new Seat[end - start];
+      for (int i = start; i < end; i++) {
+        rowSeats[i - start] = row.getSeat(SeatHold.unpackSeatNumber(packedSeats[i]));
+      }
+      seatsByRow.add(rowSeats);
+
+      start = end;
+    }
+
+    return seatsByRow;
+  }
 
 }
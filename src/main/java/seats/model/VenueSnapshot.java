@@ -0,0 +1,262 @@
+package seats.model;
+
+import static seats.common.Messages.*;
+
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.ArrayList;
+import java.util.Map;
+import java.util.HashMap;
+
+
+/**
+ * <p>
+ * Writes the complete seat state of a Venue to a file in a compact,
+ * versioned binary format and reads it back.
+ * </p>
+ *
+ * <p>
+ * The file starts with a magic number and a format version, followed by
+ * a table of the distinct customer email addresses and then each row in
+ * turn: its row number, its seat count, and a flags byte per seat
+ * recording the aisle, center row, center seat, held, and reserved
+ * flags.  A held or reserved seat is followed by the index of its
+ * customer in the table.  Seat numbers are implied by position.  All
+ * values are big-endian.
+ * </p>
+ *
+ * <p>
+ * Files are read through a memory mapping, so restoring a venue costs
+ * little more than creating its seats.  A snapshot of a venue in use is
+ * consistent within each row, whose lock is held while the row is
+ * copied, but not across rows.
+ * </p>
+ */
+public class VenueSnapshot {
+  // identifies a snapshot file; "SEAT" in ASCII
+  static final int MAGIC = 0x53454154;
+
+  // the version of the format that is written
+  static final short VERSION = 1;
+
+  // the bits of the flags byte of each seat
+  static final int AISLE_SEAT = 1;
+  static final int CENTER_ROW = 2;
+  static final int CENTER_SEAT = 4;
+  static final int HELD_SEAT = 8;
+  static final int RESERVED_SEAT = 16;
+
+  // marks a customer index for a seat without a customer
+  static final int NO_CUSTOMER = -1;
+
+
+  /**
+   * Private constructor to enforce non-instantiability
+   */
+  private VenueSnapshot() { }
+
+
+  /**
+   * Writes the seat state of the venue provided to the file provided,
+   * replacing the file only once the snapshot is complete
+   * @throws IOException if the file cannot be written
+   */
+  public static void write(Venue venue, Path path) throws IOException {
+    // copy the state of each row while holding its lock
+    List<String> customers = new ArrayList<>();
+    Map<String, Integer> customerIndexes = new HashMap<>();
+    List<int[]> rowStates = new ArrayList<>();
+    for (Row row : venue.getRows()) {
+      row.lock();
+      try {
+        List<Seat> seats = row.getSeats();
+        int[] states = new int[seats.size() * 2];
+        for (int i = 0; i < seats.size(); i++) {
+          Seat seat = seats.get(i);
+          states[2 * i] = flagsOf(seat);
+          states[(2 * i) + 1] = NO_CUSTOMER;
+          if (seat.isHeld()) {
+            states[(2 * i) + 1] =
+              customerIndexes.computeIfAbsent(seat.getCustomerEmailAddress(), customer -> {
+                  customers.add(customer);
+                  return customers.size() - 1;
+                });
+          }
+        }
+        rowStates.add(states);
+      } finally {
+        row.unlock();
+      }
+    }
+
+    // size the file
+    List<byte[]> encodedCustomers = new ArrayList<>();
+    long size = 4 + 2 + 2 + 4;
+    for (String customer : customers) {
+      byte[] encoded = (customer == null ? "" : customer).getBytes(StandardCharsets.UTF_8);
+      encodedCustomers.add(encoded);
+      size += 4 + encoded.length;
+    }
+    size += 4;
+    for (int[] states : rowStates) {
+      size += 4 + 4;
+      for (int i = 0; i < states.length; i += 2) {
+        size += 1 + (states[i + 1] != NO_CUSTOMER ? 4 : 0);
+      }
+    }
+
+    // write everything to a temporary file through a single buffer
+    ByteBuffer buffer = ByteBuffer.allocate(Math.toIntExact(size));
+    buffer.putInt(MAGIC);
+    buffer.putShort(VERSION);
+    buffer.putShort((short) 0);
+    buffer.putInt(encodedCustomers.size());
+    for (byte[] encoded : encodedCustomers) {
+      buffer.putInt(encoded.length);
+      buffer.put(encoded);
+    }
+    buffer.putInt(rowStates.size());
+    List<Row> rows = venue.getRows();
+    for (int rowIndex = 0; rowIndex < rowStates.size(); rowIndex++) {
+      int[] states = rowStates.get(rowIndex);
+      buffer.putInt(rows.get(rowIndex).getRowNumber());
+      buffer.putInt(states.length / 2);
+      for (int i = 0; i < states.length; i += 2) {
+        buffer.put((byte) states[i]);
+        if (states[i + 1] != NO_CUSTOMER) {
+          buffer.putInt(states[i + 1]);
+        }
+      }
+    }
+    buffer.flip();
+
+    Path temporary = path.resolveSibling(path.getFileName() + ".tmp");
+    try (FileChannel channel = FileChannel.open(temporary,
+                                                StandardOpenOption.CREATE,
+                                                StandardOpenOption.TRUNCATE_EXISTING,
+                                                StandardOpenOption.WRITE)) {
+      while (buffer.hasRemaining()) {
+        channel.write(buffer);
+      }
+      channel.force(true);
+    }
+    Files.move(temporary, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+  }
+
+
+  /**
+   * Reads a Venue from the snapshot file provided
+   * @throws IOException if the file cannot be read or is not a snapshot
+   * in a supported version of the format
+   */
+  public static Venue read(Path path) throws IOException {
+    try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+      MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+      return read(buffer);
+    } catch (BufferUnderflowException | IndexOutOfBoundsException | IllegalArgumentException e) {
+      throw new IOException(SNAPSHOT_IS_CORRUPT, e);
+    }
+  }
+
+
+  /**
+   * Reads a Venue from the snapshot in the buffer provided
+   */
+  static Venue read(ByteBuffer buffer) throws IOException {
+    if ((buffer.remaining() < 8) || (buffer.getInt() != MAGIC)) {
+      throw new IOException(SNAPSHOT_IS_CORRUPT);
+    }
+    if (buffer.getShort() != VERSION) {
+      throw new IOException(SNAPSHOT_VERSION_IS_UNSUPPORTED);
+    }
+    buffer.getShort();
+
+    // read the customer table
+    String[] customers = new String[readCount(buffer, 4)];
+    for (int i = 0; i < customers.length; i++) {
+      byte[] encoded = new byte[readCount(buffer, 1)];
+      buffer.get(encoded);
+      customers[i] = new String(encoded, StandardCharsets.UTF_8);
+    }
+
+    // rebuild each row with its seats already in their recorded state
+    int rowCount = readCount(buffer, 8);
+    List<Row> rows = new ArrayList<>(rowCount);
+    for (int rowIndex = 0; rowIndex < rowCount; rowIndex++) {
+      int rowNumber = buffer.getInt();
+      int seatCount = readCount(buffer, 1);
+      List<Seat> seats = new ArrayList<>(seatCount);
+      for (int seatNumber = 1; seatNumber <= seatCount; seatNumber++) {
+        int flags = buffer.get();
+
+        Seat seat = new Seat();
+        seat.setRowNumber(rowNumber);
+        seat.setSeatNumber(seatNumber);
+        seat.setAisleSeat((flags & AISLE_SEAT) != 0);
+        seat.setCenterRow((flags & CENTER_ROW) != 0);
+        seat.setCenterSeat((flags & CENTER_SEAT) != 0);
+        if ((flags & (HELD_SEAT | RESERVED_SEAT)) != 0) {
+          seat.hold(customers[buffer.getInt()], false);
+          if ((flags & RESERVED_SEAT) != 0) {
+            seat.reserve(false);
+          }
+        }
+        seats.add(seat);
+      }
+
+      Row row = new Row();
+      row.setRowNumber(rowNumber);
+      row.setSeats(seats);
+      rows.add(row);
+    }
+
+    Venue venue = new Venue();
+    venue.setRows(rows);
+
+    return venue;
+  }
+
+
+  /**
+   * Reads a count of entries that each take at least the number of bytes
+   * provided
+   * @throws IOException if the count is negative or there are too few
+   * bytes left for that many entries
+   */
+  private static int readCount(ByteBuffer buffer, int minimumEntrySize) throws IOException {
+    int count = buffer.getInt();
+    if ((count < 0) || (count > (buffer.remaining() / minimumEntrySize))) {
+      throw new IOException(SNAPSHOT_IS_CORRUPT);
+    }
+
+    return count;
+  }
+
+
+  /**
+   * Returns the flags byte of the seat provided
+   */
+  private static int flagsOf(Seat seat) {
+    int flags = 0;
+    flags |= seat.isAisleSeat() ? AISLE_SEAT : 0;
+    flags |= seat.isCenterRow() ? CENTER_ROW : 0;
+    flags |= seat.isCenterSeat() ? CENTER_SEAT : 0;
+    if (seat.isReserved()) {
+      flags |= RESERVED_SEAT;
+    } else if (seat.isHeld()) {
+      flags |= HELD_SEAT;
+    }
+
+    return flags;
+  }
+
+}
@@ -0,0 +1,91 @@
+package seats.services;
+
+
+/**
+ * <p>
+ * A snapshot of the request queue and allocation batches of a
+ * CoalescingTicketService.
+ * </p>
+ *
+ * <p>
+ * The queue depth is the number of hold requests waiting for the
+ * allocator thread.  A depth that keeps growing means requests arrive
+ * faster than the allocator can place them; a batch size close to the
+ * maximum means the allocator is draining full batches.
+ * </p>
+ */
+public class AllocationQueueMetrics {
+  // the number of requests presently waiting in the queue
+  private final int queueDepth;
+
+  // the largest number of requests that have waited in the queue
+  private final int maxQueueDepth;
+
+  // the number of batches the allocator has run
+  private final long batchCount;
+
+  // the number of requests the allocator has placed
+  private final long requestCount;
+
+  // the number of requests in the most recent batch
+  private final int lastBatchSize;
+
+  // the largest number of requests in a batch
+  private final int largestBatchSize;
+
+
+  /**
+   * Creates an AllocationQueueMetrics
+   */
+  public AllocationQueueMetrics(int queueDepth,
+                                int maxQueueDepth,
+                                long batchCount,
+                                long requestCount,
+                                int lastBatchSize,
+                                int largestBatchSize) {
+    this.queueDepth = queueDepth;
+    this.maxQueueDepth = maxQueueDepth;
+    this.batchCount = batchCount;
+    this.requestCount = requestCount;
+    this.lastBatchSize = lastBatchSize;
+    this.largestBatchSize = largestBatchSize;
+  }
+
+  /**
+   * Returns the number of requests presently waiting in the queue
+   */
+  public int getQueueDepth() { return queueDepth; }
+
+  /**
+   * Returns the largest number of requests that have waited in the queue
+   */
+  public int getMaxQueueDepth() { return maxQueueDepth; }
+
+  /**
+   * Returns the number of batches the allocator has run
+   */
+  public long getBatchCount() { return batchCount; }
+
+  /**
+   * Returns the number of requests the allocator has placed
+   */
+  public long getRequestCount() { return requestCount; }
+
+  /**
+   * Returns the number of requests in the most recent batch
+   */
+  public int getLastBatchSize() { return lastBatchSize; }
+
+  /**
+   * Returns the largest number of requests in a batch
+   */
+  public int getLargestBatchSize() { return largestBatchSize; }
+
+  /**
+   * Returns the mean number of requests in a batch
+   */
+  public double getMeanBatchSize() {
+    return (batchCount == 0) ? 0 : ((double) requestCount / batchCount);
+  }
+
+}
@@ -0,0 +1,361 @@
+package seats.services;
+
+import java.util.List;
+import java.util.ArrayList;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+
+import org.apache.log4j.Logger;
+
+import seats.model.SeatHold;
+import seats.model.SeatHoldRequest;
+import seats.model.SeatReservation;
+import seats.model.SeatReservationRequest;
+import static seats.model.SeatHoldRequestStatusEnum.*;
+
+import static seats.common.Messages.*;
+
+
+/**
+ * <p>
+ * A TicketService that places every hold request on a single allocator
+ * thread rather than on the calling thread.
+ * </p>
+ *
+ * <p>
+ * Callers add their requests to a lock-free queue and wait on a future.
+ * The allocator thread drains the queue a batch at a time and passes
+ * each batch to the delegate's batch findAndHoldSeats, which locates the
+ * seats for the whole batch with one call to the seat locator and hands
+ * them out in arrival order, then completes each caller's future.  With
+ * every hold placed by one thread, requests never contend with each
+ * other for the locator or the venue, and a burst of requests costs one
+ * locator call per batch rather than one per request.
+ * </p>
+ *
+ * <p>
+ * A request that fails is reported in the status of its SeatHold rather
+ * than thrown, as the delegate's batch findAndHoldSeats reports it; if
+ * the delegate throws anyway, every request of that batch is reported
+ * as failed.  Only errors are passed on to the callers.
+ * </p>
+ *
+ * <p>
+ * Reservations and availability are passed straight to the delegate.
+ * The queue depth and batch sizes are available from getMetrics.
+ * </p>
+ */
+public class CoalescingTicketService implements TicketService {
+  private static final Logger logger = Logger.getLogger(CoalescingTicketService.class);
+
+  // the service that places each batch
+  private TicketService delegate;
+
+  // the largest number of requests placed in one batch
+  private int maxBatchSize = 256;
+
+  // the hold requests waiting for the allocator
+  private final ConcurrentLinkedQueue<PendingHold> queue = new ConcurrentLinkedQueue<>();
+
+  // the number of requests in the queue; the queue's own size is O(n)
+  private final AtomicInteger queueDepth = new AtomicInteger();
+
+  // the largest queue depth seen
+  private final AtomicInteger maxQueueDepth = new AtomicInteger();
+
+  // batch statistics; written only by the allocator thread
+  private volatile long batchCount;
+  private volatile long requestCount;
+  private volatile int lastBatchSize;
+  private volatile int largestBatchSize;
+
+  // the thread that places the requests
+  private volatile Thread allocator;
+
+  // true while the allocator accepts requests
+  private volatile boolean running;
+
+  // a hold request and the future of its result
+  static class PendingHold {
+    final SeatHoldRequest request;
+    final CompletableFuture<SeatHold> result = new CompletableFuture<>();
+
+    PendingHold(SeatHoldRequest request) {
+      this.request = request;
+    }
+  }
+
+
+  /**
+   * Creates a CoalescingTicketService
+   */
+  public CoalescingTicketService() { }
+
+
+  /**
+   * Returns the service that places each batch
+   */
+  public TicketService getDelegate() { return delegate; }
+
+  /**
+   * Sets the service that places each batch
+   */
+  public void setDelegate(TicketService delegate) { this.delegate = delegate; }
+
+
+  /**
+   * Returns the largest number of requests placed in one batch
+   */
+  public int getMaxBatchSize() { return maxBatchSize; }
+
+  /**
+   * Sets the largest number of requests placed in one batch
+   * @throws IllegalArgumentException if the size is 0 or negative
+   */
+  public void setMaxBatchSize(int maxBatchSize) {
+    if (maxBatchSize <= 0) {
+      throw new IllegalArgumentException(MAX_BATCH_SIZE_MUST_BE_GREATER_THAN_ZERO);
+    }
+
+    this.maxBatchSize = maxBatchSize;
+  }
+
+
+  /**
+   * Returns a snapshot of the queue depth and batch sizes
+   */
+  public AllocationQueueMetrics getMetrics() {
+    return new AllocationQueueMetrics(queueDepth.get(),
+                                      maxQueueDepth.get(),
+                                      batchCount,
+                                      requestCount,
+                                      lastBatchSize,
+                                      largestBatchSize);
+  }
+
+
+  @PostConstruct
+  public synchronized void init() {
+    if (allocator != null) {
+      return;
+    }
+
+    running = true;
+    allocator = new Thread(this::allocate, "seat-allocator");
+    allocator.setDaemon(true);
+    allocator.start();
+  }
+
+
+  /**
+   * Stops accepting requests and waits for the allocator to place the
+   * requests already queued
+   */
+  @PreDestroy
+  public synchronized void destroy() throws InterruptedException {
+    Thread current = allocator;
+    if (current == null) {
+      return;
+    }
+
+    running = false;
+    LockSupport.unpark(current);
+    current.join();
+    allocator = null;
+  }
+
+
+  /**
+   * @see TicketService#numSeatsAvailable
+   */
+  public int numSeatsAvailable() {
+    return delegate.numSeatsAvailable();
+  }
+
+
+  /**
+   * Queues a hold request for the allocator thread
+   * @return the future SeatHold of the request
+   * @throws IllegalStateException if the allocator is not running
+   */
+  public CompletableFuture<SeatHold> findAndHoldSeatsAsync(int numSeats,
+                                                          String customerEmailAddress) {
+    if (! running) {
+      throw new IllegalStateException(SEAT_ALLOCATOR_IS_NOT_RUNNING);
+    }
+
+    PendingHold pending = new PendingHold(new SeatHoldRequest(numSeats, customerEmailAddress));
+    queue.offer(pending);
+    int depth = queueDepth.incrementAndGet();
+    maxQueueDepth.accumulateAndGet(depth, Math::max);
+
+    // the allocator may have stopped after the check above
+    if (! running && queue.remove(pending)) {
+      queueDepth.decrementAndGet();
+      throw new IllegalStateException(SEAT_ALLOCATOR_IS_NOT_RUNNING);
+    }
+
+    LockSupport.unpark(allocator);
+
+    return pending.result;
+  }
+
+
+  /**
+   * Waits for the allocator thread to place the request.
+   * @see TicketService#findAndHoldSeats
+   * @throws IllegalStateException if the allocator is not running
+   */
+  public SeatHold findAndHoldSeats(int numSeats, String customerEmailAddress) {
+    return await(findAndHoldSeatsAsync(numSeats, customerEmailAddress));
+  }
+
+
+  /**
+   * Queues every request of the batch and waits for the allocator thread
+   * to place them; they may be placed alongside other callers' requests.
+   * Every request is waited for, and a request that fails, including one
+   * that could not be queued because the allocator is not running, is
+   * reported in its SeatHold.  An error is rethrown once every request
+   * has been waited for.
+   * @see TicketService#findAndHoldSeats(List)
+   */
+  public List<SeatHold> findAndHoldSeats(List<SeatHoldRequest> requests) {
+    List<CompletableFuture<SeatHold>> results = new ArrayList<>(requests.size());
+    for (SeatHoldRequest request : requests) {
+      try {
+        results.add(findAndHoldSeatsAsync(request.getNumSeats(), request.getCustomerEmailAddress()));
+      } catch (IllegalStateException e) {
+        CompletableFuture<SeatHold> failed = new CompletableFuture<>();
+        failed.completeExceptionally(e);
+        results.add(failed);
+      }
+    }
+
+    List<SeatHold> seatHolds = new ArrayList<>(results.size());
+    Error error = null;
+    for (int i = 0; i < results.size(); i++) {
+      try {
+        seatHolds.add(await(results.get(i)));
+      } catch (RuntimeException e) {
+        seatHolds.add(createFailedSeatHold(requests.get(i), e));
+      } catch (Error e) {
+        seatHolds.add(createFailedSeatHold(requests.get(i), e));
+        error = (error != null) ? error : e;
+      }
+    }
+
+    if (error != null) {
+      throw error;
+    }
+
+    return seatHolds;
+  }
+
+
+  /**
+   * Creates the SeatHold that reports a request that failed unexpectedly
+   */
+  private static SeatHold createFailedSeatHold(SeatHoldRequest request, Throwable e) {
+    SeatHold seatHold = new SeatHold();
+    seatHold.setCustomerEmailAddress(request.getCustomerEmailAddress());
+    seatHold.setNumberOfSeatsRequested(request.getNumSeats());
+    seatHold.setStatus(FAILURE_DUE_TO_UNEXPECTED_ERROR);
+    seatHold.setStatusDetails(e.getMessage());
+
+    return seatHold;
+  }
+
+
+  /**
+   * @see TicketService#reserveSeats
+   */
+  public String reserveSeats(int seatHoldId, String customerEmailAddress) {
+    return delegate.reserveSeats(seatHoldId, customerEmailAddress);
+  }
+
+
+  /**
+   * @see TicketService#reserveSeats(List)
+   */
+  public List<SeatReservation> reserveSeats(List<SeatReservationRequest> requests) {
+    return delegate.reserveSeats(requests);
+  }
+
+
+  /**
+   * Waits for the future provided, rethrowing the runtime exception or
+   * error that failed it, if any
+   */
+  private SeatHold await(CompletableFuture<SeatHold> result) {
+    try {
+      return result.join();
+    } catch (CompletionException e) {
+      if (e.getCause() instanceof RuntimeException) {
+        throw (RuntimeException) e.getCause();
+      }
+      if (e.getCause() instanceof Error) {
+        throw (Error) e.getCause();
+      }
+      throw e;
+    }
+  }
+
+
+  /**
+   * Drains the queue a batch at a time until the service is stopped and
+   * the queue is empty, parking while there is nothing to do
+   */
+  private void allocate() {
+    List<PendingHold> batch = new ArrayList<>(maxBatchSize);
+    List<SeatHoldRequest> requests = new ArrayList<>(maxBatchSize);
+    while (running || ! queue.isEmpty()) {
+      PendingHold pending;
+      while ((batch.size() < maxBatchSize) && ((pending = queue.poll()) != null)) {
+        batch.add(pending);
+        requests.add(pending.request);
+      }
+
+      if (batch.isEmpty()) {
+        // producers unpark the allocator after queueing, so no wakeup is lost
+        LockSupport.park(this);
+        continue;
+      }
+
+      queueDepth.addAndGet(-batch.size());
+      batchCount++;
+      requestCount += batch.size();
+      lastBatchSize = batch.size();
+      largestBatchSize = Math.max(largestBatchSize, batch.size());
+
+      try {
+        List<SeatHold> seatHolds = delegate.findAndHoldSeats(requests);
+        for (int i = 0; i < batch.size(); i++) {
+          batch.get(i).result.complete(seatHolds.get(i));
+        }
+      } catch (RuntimeException e) {
+        // the delegate reports failed requests itself, so this is unexpected
+        logger.error(SEAT_ALLOCATION_BATCH_FAILED, e);
+        for (PendingHold failed : batch) {
+          failed.result.complete(createFailedSeatHold(failed.request, e));
+        }
+      } catch (Throwable e) {
+        // an error must not leave callers waiting on a dead allocator
+        logger.error(SEAT_ALLOCATION_BATCH_FAILED, e);
+        for (PendingHold failed : batch) {
+          failed.result.completeExceptionally(e);
+        }
+      }
+
+      batch.clear();
+      requests.clear();
+    }
+  }
+
+}
@@ -2,14 +2,22 @@ package seats.services;
 
 import seats.model.Venue;
 import seats.model.Seat;
+import seats.model.SeatStateListener;
 import seats.model.RowPrioritizedSeatComparator;
+import seats.model.SeatScores;
+import seats.model.StaticScoreSeatComparator;
 
 import static seats.common.Messages.*;
 
 import java.util.List;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Comparator;
 import java.util.Collections;
+import java.util.Iterator;
+import java.util.NavigableSet;
+import java.util.PriorityQueue;
+import java.util.TreeSet;
 
 
 /**
@@ -17,16 +25,118 @@ import java.util.Collections;
  * An implementation of the SeatLocatorService that uses a Comparator<Seat>
  * to locate the best seat in the house.
  * </p>
+ *
+ * <p>
+ * By default every request sorts all of the open seats in the venue.
+ * When indexed the service instead keeps the open seats in a set that
+ * is ordered by the comparator and updated as seats are held, unheld,
+ * and reserved so that locating N seats only visits the first N
+ * entries.  Seats held directly through Seat#hold (rather than the
+ * Venue) are pruned from the index lazily the next time they are
+ * encountered.
+ * </p>
+ *
+ * <p>
+ * Only the index is guarded by the service's monitor.  When sorting, each
+ * request works on its own copy of the open seats so requests locate
+ * seats in parallel; callers claim the located seats through the Venue,
+ * which resolves any conflicts between them.
+ * </p>
+ *
+ * <p>
+ * When the comparator is a StaticScoreSeatComparator the score of every
+ * seat is computed once per venue and the open seats are sorted, or
+ * indexed, by those cached scores rather than by calling the comparator.
+ * </p>
+ *
+ * <p>
+ * In partial selection mode the open seats are not sorted at all.  A
+ * bounded heap keeps the best numSeats seats seen so far, so a request
+ * takes O(n log k) time for n open seats and k requested seats, and only
+ * those k seats are sorted.  The seats are returned in the same order a
+ * full sort would produce.
+ * </p>
  * 
  * @see ComprehensiveSeatComparator
  * @see RowPrioritizedSeatComparator
  */
 public class ComparatorBasedSeatLocatorService implements SeatLocatorService {
   // the venue to use
-  private Venue venue;
+  private volatile Venue venue;
 
   // the comparator to use
-  private Comparator<Seat> comparator;
+  private volatile Comparator<Seat> comparator;
+
+  // the cached seat scores when the comparator declares static scores
+  private volatile SeatScores seatScores;
+
+  // set to true to maintain an incremental index of the open seats
+  private volatile boolean indexed = false;
+
+  // set to true to select the best seats with a bounded heap
+  private volatile boolean partialSelection = false;
+
+  // the open seats ordered by the comparator; built on first use
+  private NavigableSet<Seat> openSeatIndex;
+
+  // keeps the open seat index current as seats change state
+  private SeatStateListener openSeatIndexListener;
+
+  // a listener that keeps the open seat index in step with the venue
+  class OpenSeatIndexListener implements SeatStateListener {
+    OpenSeatIndexListener() { }
+
+    /**
+     * @see SeatStateListener#seatHeld
+     */
+    public void seatHeld(Seat seat) {
+      removeUnlessOpen(seat);
+    }
+
+    /**
+     * @see SeatStateListener#seatUnheld
+     */
+    public void seatUnheld(Seat seat) {
+      synchronized (ComparatorBasedSeatLocatorService.this) {
+        if (openSeatIndex != null) {
+          openSeatIndex.add(seat);
+        }
+      }
+    }
+
+    /**
+     * @see SeatStateListener#seatsUnheld
+     */
+    public void seatsUnheld(List<Seat> seats) {
+      synchronized (ComparatorBasedSeatLocatorService.this) {
+        if (openSeatIndex != null) {
+          openSeatIndex.addAll(seats);
+        }
+      }
+    }
+
+    /**
+     * @see SeatStateListener#seatReserved
+     */
+    public void seatReserved(Seat seat) {
+      removeUnlessOpen(seat);
+    }
+
+    /**
+     * Removes the seat provided from the index unless it is open again.
+     * Listeners are notified after the row lock is released, so a
+     * seatHeld may arrive after the seatUnheld that followed it; removing
+     * the seat then would drop an open seat from the index for good.
+     * Held seats that stay in the index are pruned lazily.
+     */
+    private void removeUnlessOpen(Seat seat) {
+      synchronized (ComparatorBasedSeatLocatorService.this) {
+        if ((openSeatIndex != null) && ! seat.isOpen()) {
+          openSeatIndex.remove(seat);
+        }
+      }
+    }
+  }
 
 
   /**
@@ -37,7 +147,11 @@ public class ComparatorBasedSeatLocatorService implements SeatLocatorService {
   /**
    * Sets the Venue to use
    */
-  public void setVenue(Venue venue) { this.venue = venue; }
+  public synchronized void setVenue(Venue venue) {
+    discardOpenSeatIndex();
+    seatScores = null;
+    this.venue = venue;
+  }
 
 
   /**
@@ -48,16 +162,111 @@ public class ComparatorBasedSeatLocatorService implements SeatLocatorService {
   /**
    * Sets the Comparator to use
    */
-  public void setComparator(Comparator<Seat> comparator) {
+  public synchronized void setComparator(Comparator<Seat> comparator) {
+    discardOpenSeatIndex();
+    seatScores = null;
     this.comparator = comparator;
   }
+
+
+  /**
+   * Returns true if the open seats are maintained in an incremental index
+   */
+  public boolean isIndexed() { return indexed; }
+
+  /**
+   * Sets whether the open seats are maintained in an incremental index
+   * rather than sorted on every request
+   */
+  public synchronized void setIndexed(boolean indexed) {
+    discardOpenSeatIndex();
+    this.indexed = indexed;
+  }
+
+
+  /**
+   * Returns true if the best seats are selected without sorting every
+   * open seat
+   */
+  public boolean isPartialSelection() { return partialSelection; }
+
+  /**
+   * Sets whether the best seats are selected with a bounded heap rather
+   * than by sorting every open seat
+   */
+  public void setPartialSelection(boolean partialSelection) {
+    this.partialSelection = partialSelection;
+  }
+
+
+  /**
+   * Returns the cached seat scores, computing them if necessary, or null
+   * if the comparator does not declare static scores
+   */
+  SeatScores getSeatScores() {
+    SeatScores current = seatScores;
+    if ((current != null) || !(comparator instanceof StaticScoreSeatComparator)) {
+      return current;
+    }
+
+    synchronized (this) {
+      if ((seatScores == null) && (comparator instanceof StaticScoreSeatComparator)) {
+        seatScores = new SeatScores(venue, (StaticScoreSeatComparator) comparator);
+      }
+      return seatScores;
+    }
+  }
+
+
+  /**
+   * Builds the open seat index from the current state of the venue and
+   * registers for updates
+   */
+  void buildOpenSeatIndex() {
+    /*
+     * ties are broken by row and seat number so that distinct seats
+     * never collapse into one entry and so that the order matches a
+     * stable sort of the venue's open seats.  cached scores stand in for
+     * the comparator when available; the ordinal breaks ties the same way
+     */
+    Comparator<Seat> indexComparator;
+    SeatScores scores = getSeatScores();
+    if (scores != null) {
+      indexComparator = Comparator.<Seat>comparingInt(scores::getScore)
+        .thenComparingInt(scores::getOrdinal);
+    } else {
+      indexComparator = comparator
+        .thenComparingInt(Seat::getRowNumber)
+        .thenComparingInt(Seat::getSeatNumber);
+    }
+
+    openSeatIndex = new TreeSet<>(indexComparator);
+    openSeatIndex.addAll(venue.getOpenSeats());
+
+    openSeatIndexListener = new OpenSeatIndexListener();
+    venue.addSeatStateListener(openSeatIndexListener);
+  }
+
+
+  /**
+   * Unregisters from the venue and drops the open seat index so that it
+   * is rebuilt on the next request
+   */
+  void discardOpenSeatIndex() {
+    if ((venue != null) && (openSeatIndexListener != null)) {
+      venue.removeSeatStateListener(openSeatIndexListener);
+    }
+
+    openSeatIndexListener = null;
+    openSeatIndex = null;
+  }
   
   
   /**
    * @see SeatLocatorService#locateSeats
    * @throws IllegalArgumentException if the numSeats is 0 or negative
    */
-  public synchronized List<Seat> locateSeats(int numSeats)
+  public List<Seat> locateSeats(int numSeats)
     throws InsufficientAvailableSeatsException {
 
     // make sure callers request a positive number of seats
@@ -65,14 +274,37 @@ public class ComparatorBasedSeatLocatorService implements SeatLocatorService {
       throw new IllegalArgumentException(UNABLE_TO_LOCATE_ZERO_OR_NEGATIVE_SEATS);
     }
 
+    // walk the index instead of sorting when configured to do so
+    if (indexed) {
+      return locateIndexedSeats(numSeats);
+    }
+
+    // throw an exception if there are not sufficient open seats
+    if (numSeats > venue.getOpenSeatCount()) {
+      throw new InsufficientAvailableSeatsException(INSUFFICIENT_OPEN_SEATS);
+    }
+
     // get all of the open seats in the venue
     List<Seat> openSeats = venue.getOpenSeats();
 
-    // throw an exception if there are not sufficient open seats
+    // the count may have changed while the seats were gathered
     if (numSeats > openSeats.size()) {
       throw new InsufficientAvailableSeatsException(INSUFFICIENT_OPEN_SEATS);
     }
 
+    // sort on the cached scores when the comparator declares them static
+    SeatScores scores = getSeatScores();
+    if (scores != null) {
+      return partialSelection
+        ? selectTopScoredSeats(scores, openSeats, numSeats)
+        : selectScoredSeats(scores, openSeats, numSeats);
+    }
+
+    // keep only the best seats rather than sorting all of them
+    if (partialSelection) {
+      return selectTopSeats(openSeats, numSeats);
+    }
+
     // sort the open seats
     Collections.sort(openSeats, comparator);
 
@@ -85,4 +317,169 @@ public class ComparatorBasedSeatLocatorService implements SeatLocatorService {
     return locatedSeats;
   }
 
+
+  /**
+   * Orders the open seats provided by their cached scores and returns
+   * the first numSeats of them.  Each seat is packed into a long with its
+   * score in the high 32 bits and its ordinal in the low 32 bits so that
+   * a primitive sort orders by score and then, like a stable sort of
+   * the venue's open seats, by row and seat number.
+   */
+  List<Seat> selectScoredSeats(SeatScores scores, List<Seat> openSeats,
+                               int numSeats) {
+    long[] keys = new long[openSeats.size()];
+    for (int i = 0; i < keys.length; i++) {
+      int ordinal = scores.getOrdinal(openSeats.get(i));
+      keys[i] = ((long) scores.getScore(ordinal) << 32) | ordinal;
+    }
+
+    Arrays.sort(keys);
+
+    List<Seat> locatedSeats = new ArrayList<>();
+    for (int i = 0; i < numSeats; i++) {
+      locatedSeats.add(scores.getSeat((int) keys[i]));
+    }
+
+    return locatedSeats;
+  }
+
+
+  /**
+   * Selects the best numSeats of the open seats provided with a bounded
+   * heap whose root is the worst seat kept so far.  Ties are broken by
+   * row and seat number, the order in which the venue returns its open
+   * seats, so the result matches a stable sort.
+   */
+  List<Seat> selectTopSeats(List<Seat> openSeats, int numSeats) {
+    Comparator<Seat> order = comparator
+      .thenComparingInt(Seat::getRowNumber)
+      .thenComparingInt(Seat::getSeatNumber);
+
+    PriorityQueue<Seat> heap = new PriorityQueue<>(numSeats, order.reversed());
+    for (Seat seat : openSeats) {
+      if (heap.size() < numSeats) {
+        heap.add(seat);
+      } else if (order.compare(seat, heap.peek()) < 0) {
+        heap.poll();
+        heap.add(seat);
+      }
+    }
+
+    List<Seat> locatedSeats = new ArrayList<>(heap);
+    Collections.sort(locatedSeats, order);
+
+    return locatedSeats;
+  }
+
+
+  /**
+   * Selects the best numSeats of the open seats provided by their cached
+   * scores.  The keys are packed as in selectScoredSeats and kept in a
+   * primitive max-heap of numSeats entries.
+   */
+  List<Seat> selectTopScoredSeats(SeatScores scores, List<Seat> openSeats,
+                                  int numSeats) {
+    long[] heap = new long[numSeats];
+    int size = 0;
+    for (Seat seat : openSeats) {
+      int ordinal = scores.getOrdinal(seat);
+      long key = ((long) scores.getScore(ordinal) << 32) | ordinal;
+      if (size < numSeats) {
+        heap[size] = key;
+        siftUp(heap, size++);
+      } else if (key < heap[0]) {
+        heap[0] = key;
+        siftDown(heap, size);
+      }
+    }
+
+    Arrays.sort(heap);
+
+    List<Seat> locatedSeats = new ArrayList<>();
+    for (long key : heap) {
+      locatedSeats.add(scores.getSeat((int) key));
+    }
+
+    return locatedSeats;
+  }
+
+
+  /**
+   * Moves the key at the index provided toward the root of a max-heap
+   */
+  private static void siftUp(long[] heap, int index) {
+    long key = heap[index];
+    while (index > 0) {
+      int parent = (index - 1) / 2;
+      if (heap[parent] >= key) {
+        break;
+      }
+      heap[index] = heap[parent];
+      index = parent;
+    }
+    heap[index] = key;
+  }
+
+
+  /**
+   * Moves the root of a max-heap of the size provided toward the leaves
+   */
+  private static void siftDown(long[] heap, int size) {
+    long key = heap[0];
+    int index = 0;
+    while (true) {
+      int child = (2 * index) + 1;
+      if (child >= size) {
+        break;
+      }
+      if ((child + 1 < size) && (heap[child + 1] > heap[child])) {
+        child++;
+      }
+      if (heap[child] <= key) {
+        break;
+      }
+      heap[index] = heap[child];
+      index = child;
+    }
+    heap[index] = key;
+  }
+
+
+  /**
+   * Locates the seats by walking the open seat index in order
+   * @throws InsufficientAvailableSeatsException if the index does not
+   * contain numSeats open seats
+   */
+  synchronized List<Seat> locateIndexedSeats(int numSeats)
+    throws InsufficientAvailableSeatsException {
+
+    // fail fast rather than walking the whole index
+    if (numSeats > venue.getOpenSeatCount()) {
+      throw new InsufficientAvailableSeatsException(INSUFFICIENT_OPEN_SEATS);
+    }
+
+    if (openSeatIndex == null) {
+      buildOpenSeatIndex();
+    }
+
+    // take the first open seats, pruning any that are no longer open
+    List<Seat> locatedSeats = new ArrayList<>();
+    Iterator<Seat> iterator = openSeatIndex.iterator();
+    while (iterator.hasNext() && (locatedSeats.size() < numSeats)) {
+      Seat seat = iterator.next();
+      if (seat.isOpen()) {
+        locatedSeats.add(seat);
+      } else {
+        iterator.remove();
+      }
+    }
+
+    // throw an exception if there are not sufficient open seats
+    if (locatedSeats.size() < numSeats) {
+      throw new InsufficientAvailableSeatsException(INSUFFICIENT_OPEN_SEATS);
+    }
+
+    return locatedSeats;
+  }
+
 }
@@ -0,0 +1,337 @@
+package seats.services;
+
+import seats.model.Venue;
+import seats.model.Row;
+import seats.model.Seat;
+import seats.model.ComprehensiveSeatComparator;
+import seats.model.StaticScoreSeatComparator;
+import seats.model.SeatScores;
+
+import static seats.common.Messages.*;
+
+import java.util.List;
+import java.util.ArrayList;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+
+/**
+ * <p>
+ * An implementation of the SeatLocatorService for parties that want to
+ * sit together.  It locates the best block of adjacent open seats in a
+ * single row, where a block is scored by summing the scores its seats
+ * receive from a StaticScoreSeatComparator, by default a
+ * ComprehensiveSeatComparator.
+ * </p>
+ *
+ * <p>
+ * Rows keep an index of their runs of open seats, so a row without a
+ * long enough run is rejected immediately and each qualifying run is
+ * found in logarithmic time rather than by visiting every seat.  Every
+ * block in a run is scored in constant time with per-row prefix sums
+ * that are computed once, so any StaticScoreSeatComparator is honoured.
+ * A run that contains the row's best block were every seat open needs
+ * no scoring beyond that block.
+ * </p>
+ *
+ * <p>
+ * If no single row can seat the party and the maximum row span is
+ * greater than one, the party is split into nearly equal blocks that sit
+ * one behind the other in adjacent rows.  Spans are tried from the
+ * smallest to the largest.
+ * </p>
+ *
+ * <p>
+ * The located seats must be held together; see
+ * GenericTicketService#locateAndHoldSeatGroup.
+ * </p>
+ */
+public class ContiguousSeatLocatorService implements SeatLocatorService {
+  // the venue to use
+  private volatile Venue venue;
+
+  // scores the seats in each block
+  private volatile StaticScoreSeatComparator comparator =
+    new ComprehensiveSeatComparator();
+
+  // the most adjacent rows a party may be split across
+  private volatile int maximumRowSpan = 1;
+
+  // the seat scores of the venue; built on first use
+  private volatile ScoreTable scoreTable;
+
+  // seat scores that never change once the venue is built
+  static class ScoreTable {
+    // the running total of the seat scores in each row, indexed by row
+    // number - 1 and seat number; element 0 of each row is 0
+    final int[][] prefixSums;
+
+    // the best first seat number for a block of each size in each row
+    // were every seat open, indexed by block size then row number - 1
+    final Map<Integer, int[]> idealFirstSeats = new ConcurrentHashMap<>();
+
+    ScoreTable(int[][] prefixSums) {
+      this.prefixSums = prefixSums;
+    }
+
+    /**
+     * Returns the score of the block of seats provided
+     */
+    int scoreBlock(int rowNumber, int firstSeatNumber, int size) {
+      int[] sums = prefixSums[rowNumber - 1];
+      return sums[firstSeatNumber - 1 + size] - sums[firstSeatNumber - 1];
+    }
+
+    /**
+     * Returns the best first seat number for a block of the size
+     * provided in the row provided were every seat open
+     */
+    int idealFirstSeat(int rowNumber, int size) {
+      int[] firstSeats = idealFirstSeats.computeIfAbsent(size, this::computeIdealFirstSeats);
+      return firstSeats[rowNumber - 1];
+    }
+
+    private int[] computeIdealFirstSeats(int size) {
+      int[] firstSeats = new int[prefixSums.length];
+      for (int rowIndex = 0; rowIndex < prefixSums.length; rowIndex++) {
+        int seatCount = prefixSums[rowIndex].length - 1;
+        int bestScore = Integer.MAX_VALUE;
+        firstSeats[rowIndex] = 1;
+        for (int first = 1; first + size - 1 <= seatCount; first++) {
+          int score = scoreBlock(rowIndex + 1, first, size);
+          if (score < bestScore) {
+            bestScore = score;
+            firstSeats[rowIndex] = first;
+          }
+        }
+      }
+
+      return firstSeats;
+    }
+  }
+
+  // a block of adjacent seats in a row
+  static class Block {
+    final Row row;
+    final int firstSeatNumber;
+    final int size;
+    final int score;
+
+    Block(Row row, int firstSeatNumber, int size, int score) {
+      this.row = row;
+      this.firstSeatNumber = firstSeatNumber;
+      this.size = size;
+      this.score = score;
+    }
+  }
+
+
+  /**
+   * Returns the Venue that is used
+   */
+  public Venue getVenue() { return venue; }
+
+  /**
+   * Sets the Venue to use
+   */
+  public void setVenue(Venue venue) {
+    this.venue = venue;
+    this.scoreTable = null;
+  }
+
+
+  /**
+   * Returns the Comparator whose seat scores are used
+   */
+  public StaticScoreSeatComparator getComparator() { return comparator; }
+
+  /**
+   * Sets the Comparator whose seat scores are used
+   */
+  public void setComparator(StaticScoreSeatComparator comparator) {
+    this.comparator = comparator;
+    this.scoreTable = null;
+  }
+
+
+  /**
+   * Returns the most adjacent rows a party may be split across
+   */
+  public int getMaximumRowSpan() { return maximumRowSpan; }
+
+  /**
+   * Sets the most adjacent rows a party may be split across.  A value of
+   * 1 requires every party to sit in a single row.
+   * @throws IllegalArgumentException if the maximumRowSpan is 0 or negative
+   */
+  public void setMaximumRowSpan(int maximumRowSpan) {
+    if (maximumRowSpan <= 0) {
+      throw new IllegalArgumentException(MAXIMUM_ROW_SPAN_MUST_BE_GREATER_THAN_ZERO);
+    }
+
+    this.maximumRowSpan = maximumRowSpan;
+  }
+
+
+  /**
+   * @see SeatLocatorService#locatesSeatGroups
+   */
+  public boolean locatesSeatGroups() { return true; }
+
+
+  /**
+   * Returns the seat scores of the venue, computing them if necessary
+   */
+  ScoreTable getScoreTable() {
+    ScoreTable current = scoreTable;
+    if (current != null) {
+      return current;
+    }
+
+    synchronized (this) {
+      if (scoreTable == null) {
+        SeatScores scores = new SeatScores(venue, comparator);
+        int[][] prefixSums = new int[venue.getRowCount()][];
+        for (Row row : venue.getRows()) {
+          int[] sums = new int[row.getSeatCount() + 1];
+          for (Seat seat : row.getSeats()) {
+            int seatNumber = seat.getSeatNumber();
+            sums[seatNumber] = sums[seatNumber - 1] + scores.getScore(seat);
+          }
+          prefixSums[row.getRowNumber() - 1] = sums;
+        }
+        scoreTable = new ScoreTable(prefixSums);
+      }
+      return scoreTable;
+    }
+  }
+
+
+  /**
+   * @see SeatLocatorService#locateSeats
+   * @throws IllegalArgumentException if the numSeats is 0 or negative
+   */
+  public List<Seat> locateSeats(int numSeats)
+    throws InsufficientAvailableSeatsException {
+
+    // make sure callers request a positive number of seats
+    if (numSeats <= 0) {
+      throw new IllegalArgumentException(UNABLE_TO_LOCATE_ZERO_OR_NEGATIVE_SEATS);
+    }
+
+    // throw an exception if there are not sufficient open seats
+    if (numSeats > venue.getOpenSeatCount()) {
+      throw new InsufficientAvailableSeatsException(INSUFFICIENT_OPEN_SEATS);
+    }
+
+    ScoreTable scores = getScoreTable();
+    List<Row> rows = venue.getRows();
+
+    // prefer the fewest rows, then the lowest total score
+    int span = Math.min(maximumRowSpan, Math.min(numSeats, rows.size()));
+    for (int rowSpan = 1; rowSpan <= span; rowSpan++) {
+      List<Block> bestBlocks = null;
+      int bestScore = Integer.MAX_VALUE;
+      for (int first = 0; first + rowSpan <= rows.size(); first++) {
+        List<Block> blocks = locateBlocks(scores, rows.subList(first, first + rowSpan), numSeats);
+        if (blocks == null) {
+          continue;
+        }
+
+        int score = 0;
+        for (Block block : blocks) {
+          score += block.score;
+        }
+        if (score < bestScore) {
+          bestScore = score;
+          bestBlocks = blocks;
+        }
+      }
+
+      if (bestBlocks != null) {
+        List<Seat> locatedSeats = new ArrayList<>();
+        for (Block block : bestBlocks) {
+          for (int seatNumber = block.firstSeatNumber;
+               seatNumber < block.firstSeatNumber + block.size; seatNumber++) {
+            locatedSeats.add(block.row.getSeat(seatNumber));
+          }
+        }
+        return locatedSeats;
+      }
+    }
+
+    throw new InsufficientAvailableSeatsException(INSUFFICIENT_CONTIGUOUS_OPEN_SEATS);
+  }
+
+
+  /**
+   * Splits the party into one nearly equal block per row provided, the
+   * larger blocks in the front rows, and locates the best block in each
+   * @return the blocks, or null if any of the rows cannot seat its block
+   */
+  List<Block> locateBlocks(ScoreTable scores, List<Row> rows, int numSeats) {
+    List<Block> blocks = new ArrayList<>();
+    for (int index = 0; index < rows.size(); index++) {
+      int size = numSeats / rows.size();
+      if (index < numSeats % rows.size()) {
+        size++;
+      }
+
+      Block block = locateBlock(scores, rows.get(index), size);
+      if (block == null) {
+        return null;
+      }
+      blocks.add(block);
+    }
+
+    return blocks;
+  }
+
+
+  /**
+   * Locates the best block of adjacent open seats of the size provided
+   * in the row provided
+   * @return the block, or null if the row has no run of open seats
+   * that is long enough
+   */
+  Block locateBlock(ScoreTable scores, Row row, int size) {
+    // reject rows without a long enough run without searching them
+    if (row.getLongestOpenRun() < size) {
+      return null;
+    }
+
+    int rowNumber = row.getRowNumber();
+    int idealFirstSeat = scores.idealFirstSeat(rowNumber, size);
+
+    Block bestBlock = null;
+    int runStart = row.findOpenRun(size, 1);
+    while (runStart > 0) {
+      int runEnd = row.getOpenRunEnd(runStart);
+      if (runEnd < runStart + size - 1) {
+        // the run was taken while we were searching
+        runStart = row.findOpenRun(size, runStart + 1);
+        continue;
+      }
+
+      // the row's ideal block beats every other block in the run
+      int lastFirstSeat = runEnd - size + 1;
+      int firstSeat = runStart;
+      if ((idealFirstSeat >= runStart) && (idealFirstSeat <= lastFirstSeat)) {
+        firstSeat = lastFirstSeat = idealFirstSeat;
+      }
+
+      // otherwise score every block in the run
+      for (; firstSeat <= lastFirstSeat; firstSeat++) {
+        int score = scores.scoreBlock(rowNumber, firstSeat, size);
+        if ((bestBlock == null) || (score < bestBlock.score)) {
+          bestBlock = new Block(row, firstSeat, size, score);
+        }
+      }
+
+      runStart = (runEnd + 2 <= row.getSeatCount()) ? row.findOpenRun(size, runEnd + 2) : 0;
+    }
+
+    return bestBlock;
+  }
+
+}
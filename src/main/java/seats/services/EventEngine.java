@@ -0,0 +1,159 @@
+package seats.services;
+
+import org.apache.log4j.Logger;
+
+import seats.model.Venue;
+import seats.model.SeatJournal;
+
+import static seats.common.Messages.*;
+
+
+/**
+ * <p>
+ * The ticketing engine of a single event: its venue, seat locator, seat
+ * holding service, the ticket service that combines them, and the
+ * journal of the venue, if any.
+ * </p>
+ *
+ * <p>
+ * Nothing in an engine is shared with another event.  Each venue has its
+ * own row locks and seat state, each locator its own ranking, and each
+ * holding service its own index and expiry threads, so load on one event
+ * never waits on another.
+ * </p>
+ */
+public class EventEngine {
+  // the id the event is registered under
+  private String eventId;
+
+  // the venue of the event
+  private Venue venue;
+
+  // locates the best seats in the venue
+  private SeatLocatorService seatLocatorService;
+
+  // keeps track of the seats held in the venue
+  private SeatHoldingService seatHoldingService;
+
+  // serves requests for the event
+  private TicketService ticketService;
+
+  // records the seat state changes of the venue, if journaled
+  private SeatJournal journal;
+
+  private static Logger logger = Logger.getLogger(EventEngine.class);
+
+
+  /**
+   * Creates an EventEngine
+   */
+  public EventEngine() { }
+
+
+  /**
+   * Returns the id the event is registered under
+   */
+  public String getEventId() { return eventId; }
+
+  /**
+   * Sets the id the event is registered under
+   */
+  public void setEventId(String eventId) { this.eventId = eventId; }
+
+
+  /**
+   * Returns the Venue of the event
+   */
+  public Venue getVenue() { return venue; }
+
+  /**
+   * Sets the Venue of the event
+   */
+  public void setVenue(Venue venue) { this.venue = venue; }
+
+
+  /**
+   * Returns the SeatLocatorService of the event
+   */
+  public SeatLocatorService getSeatLocatorService() { return seatLocatorService; }
+
+  /**
+   * Sets the SeatLocatorService of the event
+   */
+  public void setSeatLocatorService(SeatLocatorService seatLocatorService) {
+    this.seatLocatorService = seatLocatorService;
+  }
+
+
+  /**
+   * Returns the SeatHoldingService of the event
+   */
+  public SeatHoldingService getSeatHoldingService() { return seatHoldingService; }
+
+  /**
+   * Sets the SeatHoldingService of the event
+   */
+  public void setSeatHoldingService(SeatHoldingService seatHoldingService) {
+    this.seatHoldingService = seatHoldingService;
+  }
+
+
+  /**
+   * Returns the TicketService of the event
+   */
+  public TicketService getTicketService() { return ticketService; }
+
+  /**
+   * Sets the TicketService of the event
+   */
+  public void setTicketService(TicketService ticketService) {
+    this.ticketService = ticketService;
+  }
+
+
+  /**
+   * Returns the SeatJournal of the event's venue, or null if the venue
+   * is not journaled
+   */
+  public SeatJournal getJournal() { return journal; }
+
+  /**
+   * Sets the SeatJournal of the event's venue
+   */
+  public void setJournal(SeatJournal journal) { this.journal = journal; }
+
+
+  /**
+   * Stops the background work of every component of the event.  The
+   * ticket service is stopped first so that no more requests reach the
+   * seat holding service, and the journal is closed last once nothing
+   * changes the venue.  A component that fails to stop does not keep the
+   * others from stopping.
+   */
+  public void stop() {
+    if (ticketService != null) {
+      try {
+        ticketService.destroy();
+      } catch (Exception e) {
+        logger.warn(String.format(EVENT_NOT_STOPPED_CLEANLY, eventId), e);
+      }
+    }
+
+    if (seatHoldingService != null) {
+      try {
+        seatHoldingService.destroy();
+      } catch (Exception e) {
+        logger.warn(String.format(EVENT_NOT_STOPPED_CLEANLY, eventId), e);
+      }
+    }
+
+    if (journal != null) {
+      try {
+        journal.close();
+      } catch (Exception e) {
+        logger.warn(String.format(EVENT_NOT_STOPPED_CLEANLY, eventId), e);
+      }
+    }
+  }
+
+}
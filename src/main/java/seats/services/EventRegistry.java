@@ -0,0 +1,209 @@
+package seats.services;
+
+import org.apache.commons.lang.StringUtils;
+
+import seats.model.Venue;
+import seats.model.ComprehensiveSeatComparator;
+
+import static seats.common.Messages.*;
+
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import javax.annotation.PreDestroy;
+
+
+/**
+ * <p>
+ * Hosts the EventEngine of every event on sale, keyed by event id.
+ * </p>
+ *
+ * <p>
+ * Engines are kept in a concurrent map, so finding the engine of an
+ * event takes no lock and a busy event never delays requests for another.
+ * Events may be registered and removed while requests are served.
+ * </p>
+ */
+public class EventRegistry {
+  // the engines of the registered events by event id
+  private final ConcurrentMap<String, EventEngine> events = new ConcurrentHashMap<>();
+
+  // how long seats are held in events created by the registry
+  private int expirationTimeInMilliSeconds = 60000;
+
+  // how often events created by the registry look for expired holds
+  private int expirationCheckCycleTimeInMilliSeconds = 1000;
+
+  // the number of seat hold shards of events created by the registry
+  private int shardCount = 1;
+
+
+  /**
+   * Creates an EventRegistry
+   */
+  public EventRegistry() { }
+
+
+  /**
+   * Returns how long seats are held in events created by the registry
+   */
+  public int getExpirationTimeInMilliSeconds() { return expirationTimeInMilliSeconds; }
+
+  /**
+   * Sets how long seats are held in events created by the registry
+   */
+  public void setExpirationTimeInMilliSeconds(int expirationTimeInMilliSeconds) {
+    this.expirationTimeInMilliSeconds = expirationTimeInMilliSeconds;
+  }
+
+
+  /**
+   * Returns how often events created by the registry look for expired
+   * holds
+   */
+  public int getExpirationCheckCycleTimeInMilliSeconds() {
+    return expirationCheckCycleTimeInMilliSeconds;
+  }
+
+  /**
+   * Sets how often events created by the registry look for expired holds
+   */
+  public void setExpirationCheckCycleTimeInMilliSeconds(int expirationCheckCycleTimeInMilliSeconds) {
+    this.expirationCheckCycleTimeInMilliSeconds = expirationCheckCycleTimeInMilliSeconds;
+  }
+
+
+  /**
+   * Returns the number of seat hold shards of events created by the
+   * registry
+   */
+  public int getShardCount() { return shardCount; }
+
+  /**
+   * Sets the number of seat hold shards of events created by the registry
+   */
+  public void setShardCount(int shardCount) { this.shardCount = shardCount; }
+
+
+  /**
+   * Creates and registers an event in the venue provided, with its own
+   * optimistic seat locator and in-memory seat holding service
+   * @return the engine of the new event
+   * @throws IllegalArgumentException if the event id is blank or
+   * already registered
+   */
+  public EventEngine createEvent(String eventId, Venue venue) throws Exception {
+    if (StringUtils.isBlank(eventId)) {
+      throw new IllegalArgumentException(EVENT_ID_IS_NULL_OR_BLANK);
+    }
+    if (events.containsKey(eventId)) {
+      throw new IllegalArgumentException(EVENT_ID_ALREADY_REGISTERED);
+    }
+
+    OptimisticSeatLocatorService seatLocatorService = new OptimisticSeatLocatorService();
+    seatLocatorService.setVenue(venue);
+    seatLocatorService.setComparator(new ComprehensiveSeatComparator());
+
+    ExpiringTransientSeatHoldingService seatHoldingService = new ExpiringTransientSeatHoldingService();
+    seatHoldingService.setVenue(venue);
+    seatHoldingService.setExpirationTimeInMilliSeconds(expirationTimeInMilliSeconds);
+    seatHoldingService.setExpirationCheckCycleTimeInMilliSeconds(expirationCheckCycleTimeInMilliSeconds);
+    seatHoldingService.setShardCount(shardCount);
+
+    GenericTicketService ticketService = new GenericTicketService();
+    ticketService.setVenue(venue);
+    ticketService.setSeatLocatorService(seatLocatorService);
+    ticketService.setSeatHoldingService(seatHoldingService);
+
+    EventEngine engine = new EventEngine();
+    engine.setEventId(eventId);
+    engine.setVenue(venue);
+    engine.setSeatLocatorService(seatLocatorService);
+    engine.setSeatHoldingService(seatHoldingService);
+    engine.setTicketService(ticketService);
+
+    seatHoldingService.init();
+    try {
+      registerEvent(engine);
+    } catch (IllegalArgumentException e) {
+      engine.stop();
+      throw e;
+    }
+
+    return engine;
+  }
+
+
+  /**
+   * Registers an engine built by the caller under its event id
+   * @throws IllegalArgumentException if the event id is blank or
+   * already registered
+   */
+  public void registerEvent(EventEngine engine) {
+    if (StringUtils.isBlank(engine.getEventId())) {
+      throw new IllegalArgumentException(EVENT_ID_IS_NULL_OR_BLANK);
+    }
+    if (events.putIfAbsent(engine.getEventId(), engine) != null) {
+      throw new IllegalArgumentException(EVENT_ID_ALREADY_REGISTERED);
+    }
+  }
+
+
+  /**
+   * Returns the engine of the event with the id provided
+   * @throws NoSuchEventException if no event has the id provided
+   */
+  public EventEngine getEvent(String eventId) throws NoSuchEventException {
+    EventEngine engine = (eventId == null) ? null : events.get(eventId);
+    if (engine == null) {
+      throw new NoSuchEventException(EVENT_ID_UNKNOWN);
+    }
+
+    return engine;
+  }
+
+
+  /**
+   * Returns the TicketService of the event with the id provided
+   * @throws NoSuchEventException if no event has the id provided
+   */
+  public TicketService getTicketService(String eventId) throws NoSuchEventException {
+    return getEvent(eventId).getTicketService();
+  }
+
+
+  /**
+   * Returns the ids of the registered events in order
+   */
+  public Set<String> getEventIds() {
+    return new TreeSet<>(events.keySet());
+  }
+
+
+  /**
+   * Unregisters the event with the id provided and stops its engine
+   * @throws NoSuchEventException if no event has the id provided
+   */
+  public void removeEvent(String eventId) throws NoSuchEventException {
+    EventEngine engine = (eventId == null) ? null : events.remove(eventId);
+    if (engine == null) {
+      throw new NoSuchEventException(EVENT_ID_UNKNOWN);
+    }
+
+    engine.stop();
+  }
+
+
+  @PreDestroy
+  public void destroy() {
+    for (String eventId : events.keySet()) {
+      EventEngine engine = events.remove(eventId);
+      if (engine != null) {
+        engine.stop();
+      }
+    }
+  }
+
+}
@@ -0,0 +1,190 @@
+package seats.services;
+
+import java.util.List;
+import java.util.ArrayList;
+
+
+/**
+ * <p>
+ * A hashed timing wheel that releases items once their deadlines pass.
+ * </p>
+ *
+ * <p>
+ * Time is divided into ticks of a fixed length and each tick maps to one
+ * of a fixed number of slots.  An item is linked into the slot of the
+ * tick in which its deadline falls, so scheduling and canceling take
+ * constant time and expiring only visits the slots of the ticks that
+ * have passed.  When the wheel covers the longest deadline in use every
+ * item visited is due; items further out share slots with earlier ticks
+ * and are skipped until their own tick comes around.
+ * </p>
+ *
+ * <p>
+ * All methods are synchronized on the wheel.
+ * </p>
+ */
+class ExpirationWheel<T> {
+  // the length of each tick in milliseconds
+  private final long tickMillis;
+
+  // the head of the list of expirations in each slot
+  private final Expiration<T>[] slots;
+
+  // the next tick that has not been expired
+  private long nextTick;
+
+  // the number of expirations that are scheduled
+  private int size;
+
+  // an item that has been scheduled to expire; the handle used to cancel it
+  static final class Expiration<T> {
+    // the item that expires
+    private final T item;
+
+    // the tick in which the item expires
+    private final long tick;
+
+    // the neighbours in the slot's list
+    private Expiration<T> previous;
+    private Expiration<T> next;
+
+    // true while the expiration is linked into a slot
+    private boolean scheduled;
+
+    Expiration(T item, long tick) {
+      this.item = item;
+      this.tick = tick;
+    }
+
+    /**
+     * Returns the item that expires
+     */
+    T getItem() { return item; }
+  }
+
+
+  /**
+   * Creates an ExpirationWheel
+   * @param tickMillis the length of each tick in milliseconds
+   * @param spanMillis the longest delay before a deadline that the wheel
+   * should cover in a single rotation
+   * @param nowMillis the current time in milliseconds
+   */
+  @SuppressWarnings("unchecked")
+  ExpirationWheel(long tickMillis, long spanMillis, long nowMillis) {
+    this.tickMillis = Math.max(1L, tickMillis);
+
+    // round the slot count up to a power of two, within reasonable bounds
+    long ticks = Math.min((spanMillis / this.tickMillis) + 2, 1 << 16);
+    int slotCount = 16;
+    while (slotCount < ticks) {
+      slotCount <<= 1;
+    }
+
+    slots = (Expiration<T>[]) new Expiration[slotCount];
+    nextTick = nowMillis / this.tickMillis;
+  }
+
+
+  /**
+   * Schedules the item provided to expire at the deadline provided
+   * @return a handle with which the expiration can be canceled
+   */
+  synchronized Expiration<T> schedule(T item, long deadlineMillis) {
+    // round up so items never expire early; past deadlines expire next
+    long tick = Math.max((deadlineMillis + tickMillis - 1) / tickMillis, nextTick);
+
+    Expiration<T> expiration = new Expiration<>(item, tick);
+    int slot = slotOf(tick);
+    expiration.next = slots[slot];
+    if (slots[slot] != null) {
+      slots[slot].previous = expiration;
+    }
+    slots[slot] = expiration;
+    expiration.scheduled = true;
+    size++;
+
+    return expiration;
+  }
+
+
+  /**
+   * Cancels the expiration provided
+   * @return true if the expiration was canceled, false if it had already
+   * expired or been canceled
+   */
+  synchronized boolean cancel(Expiration<T> expiration) {
+    if (! expiration.scheduled) {
+      return false;
+    }
+
+    unlink(expiration);
+    return true;
+  }
+
+
+  /**
+   * Removes and returns the items whose deadlines are at or before the
+   * time provided
+   */
+  synchronized List<T> expire(long nowMillis) {
+    List<T> expired = new ArrayList<>();
+
+    // the last tick that has completely passed
+    long lastTick = nowMillis / tickMillis;
+    if (lastTick < nextTick) {
+      return expired;
+    }
+
+    // visit each slot at most once however many ticks have passed
+    long lastVisited = Math.min(lastTick, nextTick + slots.length - 1);
+    for (long tick = nextTick; tick <= lastVisited; tick++) {
+      Expiration<T> expiration = slots[slotOf(tick)];
+      while (expiration != null) {
+        Expiration<T> next = expiration.next;
+        if (expiration.tick <= lastTick) {
+          unlink(expiration);
+          expired.add(expiration.item);
+        }
+        expiration = next;
+      }
+    }
+
+    nextTick = lastTick + 1;
+
+    return expired;
+  }
+
+
+  /**
+   * Returns the number of items waiting to expire
+   */
+  synchronized int size() { return size; }
+
+
+  /**
+   * Returns the slot of the tick provided
+   */
+  private int slotOf(long tick) { return (int) (tick & (slots.length - 1)); }
+
+
+  /**
+   * Removes the expiration provided from its slot
+   */
+  private void unlink(Expiration<T> expiration) {
+    if (expiration.previous != null) {
+      expiration.previous.next = expiration.next;
+    } else {
+      slots[slotOf(expiration.tick)] = expiration.next;
+    }
+    if (expiration.next != null) {
+      expiration.next.previous = expiration.previous;
+    }
+
+    expiration.previous = null;
+    expiration.next = null;
+    expiration.scheduled = false;
+    size--;
+  }
+
+}
@@ -1,7 +1,32 @@
 package seats.services;
 
+import java.util.List;
+import java.util.ArrayList;
+import java.util.Map;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Set;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.Deque;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+
 import org.joda.time.DateTime;
 
+import org.apache.log4j.Logger;
+
+import org.apache.commons.lang.StringUtils;
+
 import seats.model.Venue;
 import seats.model.Seat;
 import seats.model.SeatHold;
@@ -10,6 +35,8 @@ import seats.model.SeatNotHeldException;
 import seats.dao.repositories.SeatHoldRepository;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
 
 import static seats.common.Messages.*;
 
@@ -21,14 +48,43 @@ import static seats.common.Messages.*;
  * </p>
  *
  * <p>
- * TODO: Add periodic refresh of Venue based on a periodic query to 
- * the mongo for the current set of held seats.  This would allow for 
- * the SeatLocatorService to offer seats that were held (but not reserved)
- * that have then expired.
+ * When an expiration time is set, a sweeper periodically asks the
+ * repository for a batch of the holds created before the expiration
+ * time, deletes them in bulk and releases their seats in the venue with
+ * a single batch, repeating until no expired holds remain.  The lookup
+ * is a range query on an index of the creation time, so each sweep only
+ * visits the holds that have expired.  The same index is a TTL index
+ * that lets the repository remove holds left behind by an instance
+ * that stopped; its expiry is well beyond the expiration time so that
+ * the sweeper sees every hold first.
+ * </p>
+ *
+ * <p>
+ * On startup the seats of the reservations and then the holds in the
+ * repository are restored in the venue, so a restarted instance does not
+ * offer seats that are still held or reserved.  Both are read a page at
+ * a time in id order, so memory use is bounded by the page size, and
+ * each hold is restored with a single venue update.
+ * </p>
+ *
+ * <p>
+ * By default every change is written to the repository on the calling
+ * thread.  In write-behind mode changes are appended to a local buffer
+ * instead and a background thread flushes the buffer to the repository
+ * every flush interval, inserting the added holds and deleting the
+ * removed holds of up to a batch size of changes at a time with one
+ * bulk operation each.  A hold that is added and removed within the
+ * same batch never reaches the repository.  Lookups consult the
+ * unflushed changes before the repository, so callers see their own
+ * writes, and the hold count adds the unflushed changes to the
+ * repository's count rather than flushing.  Unflushed changes are lost
+ * if the process stops abruptly; they are flushed when the service is
+ * shut down.
  * </p>
  */
 public class ExpiringDurableSeatHoldingService
   implements DurableSeatHoldingService {
+  private static final Logger logger = Logger.getLogger(ExpiringDurableSeatHoldingService.class);
 
   // the venue in which the seats are held
   private Venue venue;
@@ -37,6 +93,108 @@ public class ExpiringDurableSeatHoldingService
   @Autowired
   private SeatHoldRepository repository;
 
+  // how long (in milliseconds) holds last; 0 if they never expire
+  private volatile int expirationTimeInMilliSeconds;
+
+  // how often we should look for seat holds that have expired
+  private volatile int expirationCheckCycleTimeInMilliSeconds = 1000;
+
+  // the most seat holds expired in a single batch
+  private volatile int expirationBatchSize = 500;
+
+  // an executor that will periodically expire seat holds
+  private ScheduledExecutorService expirationCheckExecutor;
+
+  // true to restore the venue from the repository on startup
+  private volatile boolean recoverOnStartup = true;
+
+  // the number of holds or reservations read from the repository at a time
+  private volatile int recoveryPageSize = 1000;
+
+  // the outcome of the most recent recovery, if any
+  private volatile VenueRecoveryReport lastRecoveryReport;
+
+  // the number of seat hold ids leased from the repository at a time
+  private volatile int idBlockSize = 1000;
+
+  // allocates seat hold ids from blocks leased from the repository
+  private volatile LeasedIdAllocator idAllocator;
+
+  // true to write changes to the repository from a background thread
+  private volatile boolean writeBehind = false;
+
+  // how often the write-behind buffer is flushed
+  private volatile long flushIntervalInMilliSeconds = 100;
+
+  // the most changes written to the repository in a single batch
+  private volatile int flushBatchSize = 500;
+
+  // the changes that have not been flushed, oldest first
+  private final Deque<PendingChange> writeBehindBuffer = new ConcurrentLinkedDeque<>();
+
+  // the holds that have been added but not flushed, by id
+  private final Map<Integer, SeatHold> unflushedSeatHolds = new ConcurrentHashMap<>();
+
+  // the ids of the holds that have been removed but not flushed
+  private final Set<Integer> unflushedRemovals = ConcurrentHashMap.newKeySet();
+
+  // the number of unflushed removals of holds that are in the repository
+  private final AtomicInteger unflushedRepositoryRemovals = new AtomicInteger();
+
+  // an executor that periodically flushes the write-behind buffer
+  private ScheduledExecutorService flushExecutor;
+
+  // a change to the repository waiting in the write-behind buffer
+  static class PendingChange {
+    // the id of the hold that changed
+    final int seatHoldId;
+
+    // the hold that was added, or null if the hold was removed
+    final SeatHold addedSeatHold;
+
+    // the hold that was reserved as it was removed, if any
+    final SeatHold reservedSeatHold;
+
+    // true if the removed hold had already been flushed to the repository
+    final boolean flushedSeatHold;
+
+    PendingChange(int seatHoldId, SeatHold addedSeatHold, SeatHold reservedSeatHold,
+                  boolean flushedSeatHold) {
+      this.seatHoldId = seatHoldId;
+      this.addedSeatHold = addedSeatHold;
+      this.reservedSeatHold = reservedSeatHold;
+      this.flushedSeatHold = flushedSeatHold;
+    }
+  }
+
+  // a Runnable that expires seat holds when called
+  class SeatHoldExpirationTask implements Runnable {
+    /**
+     * @Override
+     */
+    public void run() {
+      try {
+        expireSeatHoldings();
+      } catch (Throwable t) {
+        logger.fatal(t);
+      }
+    }
+  }
+
+  // a Runnable that flushes the write-behind buffer when called
+  class WriteBehindFlushTask implements Runnable {
+    /**
+     * @Override
+     */
+    public void run() {
+      try {
+        flush();
+      } catch (Throwable t) {
+        logger.fatal(t);
+      }
+    }
+  }
+
 
   /**
    * Creates an ExpiringDurableSeatHoldingService
@@ -68,22 +226,392 @@ public class ExpiringDurableSeatHoldingService
   }
 
 
+  /**
+   * Returns the amount of time (in milliseconds) that SeatHold instances
+   * are held before they are expired, or 0 if they never expire
+   */
+  public int getExpirationTimeInMilliSeconds() {
+    return expirationTimeInMilliSeconds;
+  }
+
+  /**
+   * Sets the amount of time (in milliseconds) that SeatHold instances
+   * are held before they are expired; 0 if they should never expire.
+   * This must be set before the service is initialized.
+   */
+  public void setExpirationTimeInMilliSeconds(int expirationTimeInMilliSeconds) {
+    this.expirationTimeInMilliSeconds = expirationTimeInMilliSeconds;
+  }
+
+
+  /**
+   * Returns the cycle time for how often we look for expired seat holds
+   */
+  public int getExpirationCheckCycleTimeInMilliSeconds() {
+    return expirationCheckCycleTimeInMilliSeconds;
+  }
+
+  /**
+   * Sets the cycle time for how often we look for expired seat holds
+   */
+  public void setExpirationCheckCycleTimeInMilliSeconds(int expirationCheckCycleTimeInMilliSeconds) {
+    this.expirationCheckCycleTimeInMilliSeconds = expirationCheckCycleTimeInMilliSeconds;
+  }
+
+
+  /**
+   * Returns the most seat holds expired in a single batch
+   */
+  public int getExpirationBatchSize() { return expirationBatchSize; }
+
+  /**
+   * Sets the most seat holds expired in a single batch
+   * @throws IllegalArgumentException if the batch size is 0 or negative
+   */
+  public void setExpirationBatchSize(int expirationBatchSize) {
+    if (expirationBatchSize <= 0) {
+      throw new IllegalArgumentException(EXPIRATION_BATCH_SIZE_MUST_BE_GREATER_THAN_ZERO);
+    }
+
+    this.expirationBatchSize = expirationBatchSize;
+  }
+
+
+  /**
+   * Returns true if the venue is restored from the repository on startup
+   */
+  public boolean isRecoverOnStartup() { return recoverOnStartup; }
+
+  /**
+   * Sets whether the venue is restored from the repository on startup
+   */
+  public void setRecoverOnStartup(boolean recoverOnStartup) {
+    this.recoverOnStartup = recoverOnStartup;
+  }
+
+
+  /**
+   * Returns the number of holds or reservations read from the repository
+   * at a time during recovery
+   */
+  public int getRecoveryPageSize() { return recoveryPageSize; }
+
+  /**
+   * Sets the number of holds or reservations read from the repository at
+   * a time during recovery
+   * @throws IllegalArgumentException if the page size is 0 or negative
+   */
+  public void setRecoveryPageSize(int recoveryPageSize) {
+    if (recoveryPageSize <= 0) {
+      throw new IllegalArgumentException(RECOVERY_PAGE_SIZE_MUST_BE_GREATER_THAN_ZERO);
+    }
+
+    this.recoveryPageSize = recoveryPageSize;
+  }
+
+
+  /**
+   * Returns the outcome of the most recent recovery, or null if the
+   * venue has not been recovered
+   */
+  public VenueRecoveryReport getLastRecoveryReport() { return lastRecoveryReport; }
+
+
+  /**
+   * Returns the number of seat hold ids leased from the repository at a
+   * time
+   */
+  public int getIdBlockSize() { return idBlockSize; }
+
+  /**
+   * Sets the number of seat hold ids leased from the repository at a
+   * time.  Larger blocks need fewer round trips to the repository but
+   * leave more ids unused when the service stops.
+   * @throws IllegalArgumentException if the block size is 0 or negative
+   */
+  public void setIdBlockSize(int idBlockSize) {
+    if (idBlockSize <= 0) {
+      throw new IllegalArgumentException(ID_BLOCK_SIZE_MUST_BE_GREATER_THAN_ZERO);
+    }
+
+    this.idBlockSize = idBlockSize;
+    this.idAllocator = null;
+  }
+
+
+  /**
+   * Returns the allocator of seat hold ids, creating it if necessary
+   */
+  LeasedIdAllocator getIdAllocator() {
+    LeasedIdAllocator current = idAllocator;
+    if (current != null) {
+      return current;
+    }
+
+    synchronized (this) {
+      if (idAllocator == null) {
+        idAllocator = new LeasedIdAllocator(count -> repository.leaseSeatHoldIds(count),
+                                            idBlockSize);
+      }
+      return idAllocator;
+    }
+  }
+
+
+  /**
+   * Returns true if changes are written to the repository from a
+   * background thread
+   */
+  public boolean isWriteBehind() { return writeBehind; }
+
+  /**
+   * Sets whether changes are written to the repository from a background
+   * thread.  This must be set before the service is initialized.
+   */
+  public void setWriteBehind(boolean writeBehind) {
+    this.writeBehind = writeBehind;
+  }
+
+
+  /**
+   * Returns how often (in milliseconds) the write-behind buffer is flushed
+   */
+  public long getFlushIntervalInMilliSeconds() {
+    return flushIntervalInMilliSeconds;
+  }
+
+  /**
+   * Sets how often (in milliseconds) the write-behind buffer is flushed
+   * @throws IllegalArgumentException if the interval is 0 or negative
+   */
+  public void setFlushIntervalInMilliSeconds(long flushIntervalInMilliSeconds) {
+    if (flushIntervalInMilliSeconds <= 0) {
+      throw new IllegalArgumentException(FLUSH_INTERVAL_MUST_BE_GREATER_THAN_ZERO);
+    }
+
+    this.flushIntervalInMilliSeconds = flushIntervalInMilliSeconds;
+  }
+
+
+  /**
+   * Returns the most changes written to the repository in a single batch
+   */
+  public int getFlushBatchSize() { return flushBatchSize; }
+
+  /**
+   * Sets the most changes written to the repository in a single batch
+   * @throws IllegalArgumentException if the batch size is 0 or negative
+   */
+  public void setFlushBatchSize(int flushBatchSize) {
+    if (flushBatchSize <= 0) {
+      throw new IllegalArgumentException(FLUSH_BATCH_SIZE_MUST_BE_GREATER_THAN_ZERO);
+    }
+
+    this.flushBatchSize = flushBatchSize;
+  }
+
+
+  @PostConstruct
+  public void init() throws Exception {
+    // restore the seats that were held or reserved before a restart
+    if (recoverOnStartup) {
+      recoverVenue();
+    }
+
+    // index the holds for expiry and periodically expire them
+    if (expirationTimeInMilliSeconds > 0) {
+      repository.ensureExpiryIndex(getExpiryIndexSeconds());
+      expirationCheckExecutor = Executors.newSingleThreadScheduledExecutor();
+      expirationCheckExecutor.scheduleWithFixedDelay(new SeatHoldExpirationTask(),
+                                                     expirationCheckCycleTimeInMilliSeconds,
+                                                     expirationCheckCycleTimeInMilliSeconds,
+                                                     TimeUnit.MILLISECONDS);
+    }
+
+    // periodically flush the write-behind buffer on its own thread
+    if (writeBehind) {
+      flushExecutor = Executors.newSingleThreadScheduledExecutor();
+      flushExecutor.scheduleWithFixedDelay(new WriteBehindFlushTask(),
+                                           flushIntervalInMilliSeconds,
+                                           flushIntervalInMilliSeconds,
+                                           TimeUnit.MILLISECONDS);
+    }
+  }
+
+  @PreDestroy
+  public void destroy() throws Exception {
+    if (expirationCheckExecutor != null) {
+      expirationCheckExecutor.shutdownNow();
+      expirationCheckExecutor = null;
+    }
+
+    // stop the flush thread and write whatever remains
+    if (flushExecutor != null) {
+      flushExecutor.shutdown();
+      flushExecutor.awaitTermination(flushIntervalInMilliSeconds, TimeUnit.MILLISECONDS);
+      flushExecutor = null;
+    }
+
+    flush();
+  }
+
+
+  /**
+   * Restores the seats of the reservations and then the holds in the
+   * repository in the venue, which is expected to have every seat open
+   * or, if the venue was recovered from a SeatJournal, only its
+   * reservations restored; the journal opens every held seat, so this
+   * service owns the holds.  Reservations the journal already restored
+   * are not reported as conflicts.  Reservations are restored first so
+   * that a seat recorded by both a reservation and a hold ends up
+   * reserved.
+   * @return the outcome of the recovery
+   */
+  public VenueRecoveryReport recoverVenue() {
+    long start = System.nanoTime();
+    int conflictingSeatCount = 0;
+
+    // page through the reservations by id
+    int reservationCount = 0;
+    int lastId = Integer.MIN_VALUE;
+    List<SeatHold> page;
+    do {
+      page = repository.findReservationsAfter(lastId, recoveryPageSize);
+      for (SeatHold reservation : page) {
+        conflictingSeatCount += restoreSeats(reservation, true);
+        lastId = reservation.getId();
+      }
+      reservationCount += page.size();
+    } while (page.size() == recoveryPageSize);
+
+    // page through the holds by id
+    int seatHoldCount = 0;
+    lastId = Integer.MIN_VALUE;
+    do {
+      PageRequest nextPage = new PageRequest(0, recoveryPageSize, Sort.Direction.ASC, "id");
+      page = repository.findByIdGreaterThan(lastId, nextPage);
+      for (SeatHold seatHold : page) {
+        conflictingSeatCount += restoreSeats(seatHold, false);
+        lastId = seatHold.getId();
+      }
+      seatHoldCount += page.size();
+    } while (page.size() == recoveryPageSize);
+
+    long elapsed = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+    lastRecoveryReport = new VenueRecoveryReport(seatHoldCount,
+                                                 reservationCount,
+                                                 conflictingSeatCount,
+                                                 elapsed);
+    logger.info(String.format(VENUE_RECOVERED, seatHoldCount, reservationCount,
+                              conflictingSeatCount, elapsed));
+
+    return lastRecoveryReport;
+  }
+
+
+  /**
+   * Restores the seats of the hold provided in the venue
+   * @return the number of seats that were already taken
+   */
+  private int restoreSeats(SeatHold seatHold, boolean reserved) {
+    int[] heldSeats = seatHold.getHeldSeats();
+    if ((heldSeats.length == 0) || StringUtils.isBlank(seatHold.getCustomerEmailAddress())) {
+      logger.warn(String.format(SEAT_HOLD_NOT_RESTORED, seatHold.getId()));
+      return 0;
+    }
+
+    List<Seat> notOpenSeats = venue.restorePackedSeats(heldSeats.clone(),
+                                                       seatHold.getCustomerEmailAddress(),
+                                                       reserved);
+    if (! notOpenSeats.isEmpty()) {
+      logger.warn(String.format(SEAT_STATES_ALTERED, notOpenSeats.size()));
+    }
+
+    return notOpenSeats.size();
+  }
+
+
+  /**
+   * Returns the age (in seconds) at which the repository removes holds
+   * itself.  The repository only removes expired documents about once a
+   * minute, and that removal does not release any seats, so the age is
+   * twice the expiration time plus that minute.
+   */
+  long getExpiryIndexSeconds() {
+    long expirationSeconds = TimeUnit.MILLISECONDS.toSeconds(expirationTimeInMilliSeconds);
+    return (2 * expirationSeconds) + 60;
+  }
+
+
+  /**
+   * Expires the seat holds created before the expiration time, a batch
+   * at a time.  Each batch is deleted from the repository with a single
+   * operation and its seats are released with a single venue update.
+   */
+  protected void expireSeatHoldings() {
+    DateTime cutoff = new DateTime().minus(expirationTimeInMilliSeconds);
+    PageRequest firstPage = new PageRequest(0, expirationBatchSize,
+                                            Sort.Direction.ASC, "creationTime");
+
+    // the deleted holds leave the first page so it is always requested
+    List<SeatHold> expiredSeatHolds;
+    do {
+      expiredSeatHolds = repository.findByCreationTimeLessThan(cutoff, firstPage);
+      if (expiredSeatHolds.isEmpty()) {
+        return;
+      }
+
+      List<Integer> ids = new ArrayList<>(expiredSeatHolds.size());
+      for (SeatHold seatHold : expiredSeatHolds) {
+        ids.add(seatHold.getId());
+      }
+      repository.deleteByIdIn(ids);
+
+      // unhold the seats in the venue, a row at a time
+      List<Seat> notHeldSeats = venue.releaseSeatHolds(expiredSeatHolds);
+
+      /*
+       * a seat is not held when its hold was reserved while the hold
+       * expired; the reservation stands and the seat stays reserved
+       */
+      if (! notHeldSeats.isEmpty()) {
+        logger.warn(String.format(SEAT_STATES_ALTERED, notHeldSeats.size()));
+      }
+    } while (expiredSeatHolds.size() == expirationBatchSize);
+  }
+
+
   /**
    * @see SeatHoldingService#addSeatHold
    */
   public SeatHold addSeatHold(SeatHold holding) {
-    long now = System.currentTimeMillis();
-    holding.setId(Long.valueOf(now).intValue());
-    return repository.save(holding);
+    holding.setId(getIdAllocator().nextId());
+
+    if (! writeBehind) {
+      return repository.save(holding);
+    }
+
+    unflushedSeatHolds.put(holding.getId(), holding);
+    writeBehindBuffer.addLast(new PendingChange(holding.getId(), holding, null, false));
+
+    return holding;
   }
   
 
   /**
+   * In write-behind mode a hold that has already been flushed is looked
+   * up in the repository before its removal is buffered, so unknown ids
+   * are rejected in both modes.
    * @see SeatHoldingService#removeSeatHoldById
    */
   public void removeSeatHoldById(int seatHoldId)
     throws NoSuchSeatHoldException {
 
+    if (writeBehind) {
+      bufferRemoval(seatHoldId, null);
+      return;
+    }
+
     SeatHold existing = repository.findById(seatHoldId);
     if (existing == null) {
       throw new NoSuchSeatHoldException(SEAT_HOLD_ID_UNKNOWN);
@@ -92,12 +620,113 @@ public class ExpiringDurableSeatHoldingService
     repository.delete(seatHoldId);
   }
 
+  /**
+   * Reservations are kept in the repository apart from the holds so the
+   * venue can be recovered from them.
+   * @see SeatHoldingService#reserveSeatHold
+   */
+  public void reserveSeatHold(SeatHold seatHold)
+    throws NoSuchSeatHoldException {
+
+    if (writeBehind) {
+      bufferRemoval(seatHold.getId(), seatHold);
+      return;
+    }
+
+    repository.saveReservations(Collections.singletonList(seatHold));
+    removeSeatHoldById(seatHold.getId());
+  }
+
+
+  /**
+   * The reservations are saved with a single bulk write and the holds
+   * removed with a single bulk delete, or both are buffered in
+   * write-behind mode.
+   * @see SeatHoldingService#reserveSeatHolds
+   */
+  public int reserveSeatHolds(List<SeatHold> seatHolds) {
+    if (seatHolds.isEmpty()) {
+      return 0;
+    }
+
+    if (writeBehind) {
+      int removedCount = 0;
+      for (SeatHold seatHold : seatHolds) {
+        try {
+          bufferRemoval(seatHold.getId(), seatHold);
+          removedCount++;
+        } catch (NoSuchSeatHoldException e) {
+          // the hold expired; the reservation is still buffered
+        }
+      }
+      return removedCount;
+    }
+
+    List<Integer> ids = new ArrayList<>(seatHolds.size());
+    for (SeatHold seatHold : seatHolds) {
+      ids.add(seatHold.getId());
+    }
+
+    repository.saveReservations(seatHolds);
+    Long removedCount = repository.deleteByIdIn(ids);
+
+    return (removedCount == null) ? 0 : removedCount.intValue();
+  }
+
+
+  /**
+   * Appends the removal of a hold, and its reservation if one is
+   * provided, to the write-behind buffer.  The reservation is recorded
+   * even if the hold has already been removed.
+   * @throws NoSuchSeatHoldException if the hold has already been removed
+   * or is unknown
+   */
+  private void bufferRemoval(int seatHoldId, SeatHold reservation)
+    throws NoSuchSeatHoldException {
+
+    boolean unflushed = (unflushedSeatHolds.remove(seatHoldId) != null);
+    boolean removed;
+    boolean flushed = false;
+    if (unflushed) {
+      unflushedRemovals.add(seatHoldId);
+      removed = true;
+    } else {
+      // a hold that is not buffered must be in the repository
+      flushed = ! unflushedRemovals.contains(seatHoldId) && repository.exists(seatHoldId)
+        && unflushedRemovals.add(seatHoldId);
+      removed = flushed;
+    }
+
+    if (flushed) {
+      unflushedRepositoryRemovals.incrementAndGet();
+    }
+    if (removed || (reservation != null)) {
+      writeBehindBuffer.addLast(new PendingChange(seatHoldId, null, reservation, flushed));
+    }
+
+    if (! removed) {
+      throw new NoSuchSeatHoldException(SEAT_HOLD_ID_UNKNOWN);
+    }
+  }
+
+
   /**
    * @see SeatHoldingService#getSeatHoldById
    */
   public SeatHold getSeatHoldById(int seatHoldId)
     throws NoSuchSeatHoldException {
-    SeatHold seatHold = repository.findById(seatHoldId);
+
+    // unflushed changes take precedence over the repository
+    SeatHold seatHold = null;
+    if (! writeBehind) {
+      seatHold = repository.findById(seatHoldId);
+    } else if (! unflushedRemovals.contains(seatHoldId)) {
+      seatHold = unflushedSeatHolds.get(seatHoldId);
+      if (seatHold == null) {
+        seatHold = repository.findById(seatHoldId);
+      }
+    }
+
     if (seatHold == null) {
       throw new NoSuchSeatHoldException(SEAT_HOLD_ID_UNKNOWN);
     }
@@ -107,11 +736,152 @@ public class ExpiringDurableSeatHoldingService
 
   
   /**
+   * The holds that are not buffered are located with a single query.
+   * @see SeatHoldingService#getSeatHoldsById
+   */
+  public List<SeatHold> getSeatHoldsById(int[] seatHoldIds) {
+    // unflushed changes take precedence over the repository
+    SeatHold[] seatHolds = new SeatHold[seatHoldIds.length];
+    Set<Integer> queriedIds = new HashSet<>();
+    for (int i = 0; i < seatHoldIds.length; i++) {
+      int seatHoldId = seatHoldIds[i];
+      if (writeBehind) {
+        if (unflushedRemovals.contains(seatHoldId)) {
+          continue;
+        }
+        seatHolds[i] = unflushedSeatHolds.get(seatHoldId);
+      }
+      if (seatHolds[i] == null) {
+        queriedIds.add(seatHoldId);
+      }
+    }
+
+    if (! queriedIds.isEmpty()) {
+      Map<Integer, SeatHold> found = new HashMap<>();
+      for (SeatHold seatHold : repository.findByIdIn(queriedIds)) {
+        found.put(seatHold.getId(), seatHold);
+      }
+      for (int i = 0; i < seatHoldIds.length; i++) {
+        if ((seatHolds[i] == null) && queriedIds.contains(seatHoldIds[i])) {
+          seatHolds[i] = found.get(seatHoldIds[i]);
+        }
+      }
+    }
+
+    return Arrays.asList(seatHolds);
+  }
+
+
+  /**
+   * In write-behind mode the unflushed additions and removals are
+   * applied to the repository's count, so the count may be briefly off
+   * while a flush is in progress.
    * @see SeatHoldingService#getSeatHoldCount
    */
   public int getSeatHoldCount() {
     long count = repository.count();
-    return Long.valueOf(count).intValue();
+    if (writeBehind) {
+      count += unflushedSeatHolds.size() - unflushedRepositoryRemovals.get();
+    }
+
+    return Long.valueOf(Math.max(0, count)).intValue();
+  }
+
+
+  /**
+   * Returns the number of changes waiting in the write-behind buffer
+   */
+  public int getUnflushedChangeCount() { return writeBehindBuffer.size(); }
+
+
+  /**
+   * Writes the changes in the write-behind buffer to the repository, a
+   * batch at a time.  If a batch cannot be written it is returned to the
+   * front of the buffer and retried on the next flush.
+   */
+  public synchronized void flush() {
+    List<PendingChange> batch = new ArrayList<>();
+    while (true) {
+      batch.clear();
+      PendingChange change;
+      while ((batch.size() < flushBatchSize) &&
+             ((change = writeBehindBuffer.pollFirst()) != null)) {
+        batch.add(change);
+      }
+      if (batch.isEmpty()) {
+        return;
+      }
+
+      // a removal cancels an addition in the same batch
+      Map<Integer, SeatHold> additions = new LinkedHashMap<>();
+      Set<Integer> removals = new LinkedHashSet<>();
+      List<SeatHold> reservations = new ArrayList<>();
+      for (PendingChange pending : batch) {
+        if (pending.addedSeatHold != null) {
+          additions.put(pending.seatHoldId, pending.addedSeatHold);
+          continue;
+        }
+
+        if (pending.reservedSeatHold != null) {
+          reservations.add(pending.reservedSeatHold);
+        }
+        if (additions.remove(pending.seatHoldId) == null) {
+          removals.add(pending.seatHoldId);
+        }
+      }
+
+      try {
+        writeBatch(additions, removals, reservations);
+      } catch (RuntimeException e) {
+        logger.error(WRITE_BEHIND_FLUSH_FAILED, e);
+        for (int i = batch.size() - 1; i >= 0; i--) {
+          writeBehindBuffer.addFirst(batch.get(i));
+        }
+        return;
+      }
+
+      // the flushed changes are now visible in the repository
+      for (PendingChange pending : batch) {
+        if (pending.addedSeatHold != null) {
+          unflushedSeatHolds.remove(pending.seatHoldId, pending.addedSeatHold);
+        } else {
+          unflushedRemovals.remove(pending.seatHoldId);
+          if (pending.flushedSeatHold) {
+            unflushedRepositoryRemovals.decrementAndGet();
+          }
+        }
+      }
+    }
+  }
+
+
+  /**
+   * Inserts and deletes a batch of holds and records a batch of
+   * reservations with one bulk operation each.  If the bulk insert
+   * fails, for example because part of the batch was written by an
+   * earlier attempt, the holds are saved individually, which overwrites
+   * rather than duplicates them.  Reservations are recorded before their
+   * holds are deleted so that a reservation is never lost.
+   */
+  void writeBatch(Map<Integer, SeatHold> additions,
+                  Set<Integer> removals,
+                  List<SeatHold> reservations) {
+    if (! reservations.isEmpty()) {
+      repository.saveReservations(reservations);
+    }
+
+    if (! additions.isEmpty()) {
+      List<SeatHold> seatHolds = new ArrayList<>(additions.values());
+      try {
+        repository.insert(seatHolds);
+      } catch (RuntimeException e) {
+        repository.save(seatHolds);
+      }
+    }
+
+    if (! removals.isEmpty()) {
+      repository.deleteByIdIn(removals);
+    }
   }
 
 }
@@ -1,7 +1,7 @@
 package seats.services;
 
-import java.util.concurrent.ConcurrentMap;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.List;
+import java.util.ArrayList;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
@@ -9,15 +9,14 @@ import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
 
 import javax.annotation.PostConstruct;
-
-import org.joda.time.DateTime;
+import javax.annotation.PreDestroy;
 
 import org.apache.log4j.Logger;
 
 import seats.model.Venue;
 import seats.model.Seat;
 import seats.model.SeatHold;
-import seats.model.SeatNotHeldException;
+import seats.services.ExpirationWheel.Expiration;
 
 import static seats.common.Messages.*;
 
@@ -27,6 +26,20 @@ import static seats.common.Messages.*;
  * An in-memory seat holding service that auto-expires seat holdings
  * after a configurable amount of time.
  * </p>
+ *
+ * <p>
+ * Each seat hold is scheduled on an ExpirationWheel when it is added, so
+ * a check cycle only visits the holds that have expired rather than
+ * every hold in the index.  Removing a hold cancels its expiration in
+ * constant time.
+ * </p>
+ *
+ * <p>
+ * The holds are partitioned by id into a configurable number of shards,
+ * each with its own index, wheel, and expiry worker thread, so that a
+ * large number of expirations is spread across several threads.  The
+ * expiry lag of each shard is available from getShardMetrics.
+ * </p>
  */
 public class ExpiringTransientSeatHoldingService
   implements TransientSeatHoldingService {
@@ -35,8 +48,11 @@ public class ExpiringTransientSeatHoldingService
   // the venue in which the seats are held
   private Venue venue;
 
-  // the SeatHold instances that have been created
-  private ConcurrentMap<Integer, SeatHold> index;
+  // the number of shards the seat holds are partitioned into
+  private int shardCount = 1;
+
+  // the seat holds partitioned by id; created on first use
+  private volatile SeatHoldShard[] shards;
 
   // a thread-safe numeric id generator for SeatHold ids
   private AtomicInteger idGenerator;
@@ -50,9 +66,14 @@ public class ExpiringTransientSeatHoldingService
   // an executor that will periodically check for expired seat holds
   private ScheduledExecutorService expirationCheckExecutor;
 
-  // a Runnable that will clean up the index when called
+  // a Runnable that will clean up a shard of the index when called
   class SeatHoldIndexExpirationTask implements Runnable {
-    SeatHoldIndexExpirationTask() { }
+    // the shard to clean up
+    private final SeatHoldShard shard;
+
+    SeatHoldIndexExpirationTask(SeatHoldShard shard) {
+      this.shard = shard;
+    }
     /**
      * @Override
      */
@@ -63,7 +84,7 @@ public class ExpiringTransientSeatHoldingService
        * is an example of TDD influencing the design of code.
        */
       try {
-        expireSeatHoldings();
+        expireSeatHoldings(shard);
       } catch (Throwable t) {
         logger.fatal(t);
       }
@@ -75,66 +96,148 @@ public class ExpiringTransientSeatHoldingService
    */
   public ExpiringTransientSeatHoldingService() {
     idGenerator = new AtomicInteger();
-    index = new ConcurrentHashMap<>();
-    expirationCheckExecutor = Executors.newSingleThreadScheduledExecutor();
   }
 
   
   /**
-   * Expires SeatHold records from the index
+   * Expires SeatHold records from every shard of the index
    */
   protected void expireSeatHoldings() {
-    // determine the maximum age of permitted seat holds
-    DateTime maxAgePermitted = new DateTime();
-    maxAgePermitted.minus(expirationTimeInMilliSeconds);
-    
-    // iterate over the seat holds in the index
-    for (SeatHold seatHold : index.values()) {
-      DateTime seatHoldCreationTime = seatHold.getCreationTime();
-      
+    for (SeatHoldShard shard : getShards()) {
+      expireSeatHoldings(shard);
+    }
+  }
+
+
+  /**
+   * Expires SeatHold records from a shard of the index.  Only the holds
+   * whose expiration time has passed are visited.
+   */
+  protected void expireSeatHoldings(SeatHoldShard shard) {
+    long now = System.currentTimeMillis();
+
+    List<SeatHold> expiredSeatHolds = new ArrayList<>();
+    long lag = 0;
+    for (SeatHold seatHold : shard.expirationWheel.expire(now)) {
+      /*
+       * the hold may have been removed (and its seats reserved) after it
+       * left the wheel; only the thread that removes it from the index
+       * may release its seats
+       */
+      if (shard.index.remove(seatHold.getId()) != null) {
+        expiredSeatHolds.add(seatHold);
+        lag = Math.max(lag, now - getExpirationTime(seatHold));
+      }
+    }
+
+    // unhold the seats in the venue, a row at a time
+    if (! expiredSeatHolds.isEmpty()) {
+      List<Seat> notHeldSeats = venue.releaseSeatHolds(expiredSeatHolds);
+
       /*
-       * if the current seat was created before the maximum age permitted
-       * then remove it from the map
+       * if the application is functioning properly there should be no
+       * such seats as there should only be 1 SeatHoldingService that is
+       * managing the Venue.  if another thread and another service holds
+       * a reference to the same Venue that is within this instance and
+       * is changing the state of the underlying Seat instances from held
+       * to reserved or open then it represents a very seriously logic
+       * error
        */
-      if (seatHoldCreationTime.isBefore(maxAgePermitted)) {
-        
-        // unhold the seats in the venue
-        for (Seat heldSeat : seatHold.getSeatsHeld()) {
-          try {
-            int rowNumber = heldSeat.getRowNumber();
-            int seatNumber = heldSeat.getSeatNumber();
-            venue.unholdSeat(rowNumber, seatNumber);
-          } catch (SeatNotHeldException e) {
-            /*
-             * if the application is functioning properly this catch block
-             * should not be reached as there should only be 1 
-             * SeatHoldingService that is managing the Venue.  if another
-             * thread and another service holds a reference to the same
-             * Venue that is within this instance and is changing the
-             * state of the underlying Seat instances from held to reserved
-             * or open then it represents a very seriously logic error
-             */
-            logger.fatal(SEAT_STATE_ALTERED);
-          }
-          
+      if (! notHeldSeats.isEmpty()) {
+        logger.fatal(String.format(SEAT_STATES_ALTERED, notHeldSeats.size()));
+      }
+
+      shard.recordExpiry(expiredSeatHolds.size(), lag);
+    }
+  }
+
+
+  /**
+   * Returns the time (in milliseconds since the epoch) at which the seat
+   * hold provided expires
+   */
+  private long getExpirationTime(SeatHold seatHold) {
+    return seatHold.getCreationTime().getMillis() + expirationTimeInMilliSeconds;
+  }
+
+
+  /**
+   * Returns the shards of the index, creating them from the current
+   * settings if necessary
+   */
+  SeatHoldShard[] getShards() {
+    SeatHoldShard[] current = shards;
+    if (current != null) {
+      return current;
+    }
+
+    synchronized (this) {
+      if (shards == null) {
+        /*
+         * holds are only expired once per check cycle so there is no
+         * point in a finer tick; size the wheels to cover the expiration
+         * time so each hold is visited once, when it is due
+         */
+        SeatHoldShard[] created = new SeatHoldShard[shardCount];
+        long now = System.currentTimeMillis();
+        for (int i = 0; i < created.length; i++) {
+          ExpirationWheel<SeatHold> wheel = new ExpirationWheel<>(expirationCheckCycleTimeInMilliSeconds,
+                                                                  expirationTimeInMilliSeconds,
+                                                                  now);
+          created[i] = new SeatHoldShard(created.length, wheel);
         }
-        
-        index.remove(seatHold.getId());
+        shards = created;
       }
+      return shards;
     }
   }
+
+
+  /**
+   * Returns the shard that holds the seat hold with the id provided
+   */
+  private SeatHoldShard getShard(int seatHoldId) {
+    SeatHoldShard[] current = getShards();
+    return current[Math.floorMod(seatHoldId, current.length)];
+  }
+
+
+  /**
+   * Returns the current metrics of each shard
+   */
+  public List<SeatHoldShardMetrics> getShardMetrics() {
+    SeatHoldShard[] current = getShards();
+    List<SeatHoldShardMetrics> metrics = new ArrayList<>();
+    for (int i = 0; i < current.length; i++) {
+      metrics.add(current[i].getMetrics(i));
+    }
+
+    return metrics;
+  }
   
   
   @PostConstruct
   public void init() throws Exception {
     /*
-     * schedule a task to periodically walk through the index and expire
-     * old seat hold records
+     * schedule a task per shard to periodically expire old seat hold
+     * records, each on its own thread
      */
-    Runnable task = new SeatHoldIndexExpirationTask();
+    SeatHoldShard[] current = getShards();
+    expirationCheckExecutor = Executors.newScheduledThreadPool(current.length);
     long delay = expirationCheckCycleTimeInMilliSeconds;
     long period = expirationCheckCycleTimeInMilliSeconds;
-    expirationCheckExecutor.scheduleAtFixedRate(task, delay, period, TimeUnit.MILLISECONDS);
+    for (SeatHoldShard shard : current) {
+      Runnable task = new SeatHoldIndexExpirationTask(shard);
+      expirationCheckExecutor.scheduleAtFixedRate(task, delay, period, TimeUnit.MILLISECONDS);
+    }
+  }
+
+  @PreDestroy
+  public void destroy() throws Exception {
+    if (expirationCheckExecutor != null) {
+      expirationCheckExecutor.shutdownNow();
+      expirationCheckExecutor = null;
+    }
   }
 
   /**
@@ -179,10 +282,29 @@ public class ExpiringTransientSeatHoldingService
     this.expirationCheckCycleTimeInMilliSeconds = expirationCheckCycleTimeInMilliSeconds;
   }
 
+  /**
+   * Returns the number of shards the seat holds are partitioned into
+   */
+  public int getShardCount() { return shardCount; }
+
+  /**
+   * Sets the number of shards the seat holds are partitioned into.  This
+   * must be set before any seat holds are added.
+   * @throws IllegalArgumentException if the shardCount is 0 or negative
+   */
+  public void setShardCount(int shardCount) {
+    if (shardCount <= 0) {
+      throw new IllegalArgumentException(SHARD_COUNT_MUST_BE_GREATER_THAN_ZERO);
+    }
+
+    this.shardCount = shardCount;
+  }
+
+
   /**
    * Returns the total number of seats that are presently held
    */
-  public int getSeatHoldingCount() { return index.keySet().size(); }
+  public int getSeatHoldingCount() { return getSeatHoldCount(); }
 
   
   /**
@@ -193,8 +315,9 @@ public class ExpiringTransientSeatHoldingService
     int seatHoldId = idGenerator.incrementAndGet();
     holding.setId(seatHoldId);
 
-    // store the holding in the index
-    index.put(seatHoldId, holding);
+    // schedule the holding to expire and store it in its shard
+    SeatHoldShard shard = getShard(seatHoldId);
+    shard.index.put(shard.expirationWheel.schedule(holding, getExpirationTime(holding)));
 
     // return the holding with the new id
     return holding;
@@ -207,23 +330,32 @@ public class ExpiringTransientSeatHoldingService
   public void removeSeatHoldById(int seatHoldId)
     throws NoSuchSeatHoldException {
 
+    // remove the seat hold requested
+    SeatHoldShard shard = getShard(seatHoldId);
+    Expiration<SeatHold> expiration = shard.index.remove(seatHoldId);
+
     /*
      * throw an exception of the index does not have the id in question
      * (this would occur if the seat hold ages off)
      */
-    if (! index.containsKey(seatHoldId)) {
+    if (expiration == null) {
       throw new NoSuchSeatHoldException(SEAT_HOLD_ID_UNKNOWN);
     }
 
-    // remove the seat hold requested
-    index.remove(seatHoldId);
+    // the hold will not expire now that it has been removed
+    shard.expirationWheel.cancel(expiration);
   }
 
   /**
    * @see SeatHoldingService#getSeatHoldCount
    */
   public int getSeatHoldCount() {
-    return index.keySet().size();
+    int seatHoldCount = 0;
+    for (SeatHoldShard shard : getShards()) {
+      seatHoldCount += shard.index.size();
+    }
+
+    return seatHoldCount;
   }
 
 
@@ -232,13 +364,13 @@ public class ExpiringTransientSeatHoldingService
    */
   public SeatHold getSeatHoldById(int id) throws NoSuchSeatHoldException {
     // if the id does not exist through an exception
-    if (! index.containsKey(id)) {
+    Expiration<SeatHold> expiration = getShard(id).index.get(id);
+    if (expiration == null) {
       throw new NoSuchSeatHoldException(SEAT_HOLD_ID_UNKNOWN);
     }
 
-    // locate the seat hold and return it
-    SeatHold seatHold = index.get(id);
-    return seatHold;
+    // return the seat hold
+    return expiration.getItem();
   }
   
 }
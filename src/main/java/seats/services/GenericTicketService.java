@@ -2,14 +2,23 @@ package seats.services;
 
 import seats.model.Venue;
 import seats.model.SeatHold;
+import seats.model.SeatHoldRequest;
+import seats.model.SeatReservation;
+import seats.model.SeatReservationRequest;
+import seats.model.SeatReservationStatusEnum;
 import seats.model.Seat;
 import seats.model.SeatUnavailableException;
 import static seats.model.SeatHoldRequestStatusEnum.*;
 import static seats.common.Messages.*;
 
+import java.io.IOException;
+import java.util.Arrays;
 import java.util.List;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
 import java.util.Set;
+import java.util.HashSet;
 import java.util.TreeSet;
 import java.util.UUID;
 
@@ -36,6 +45,9 @@ public class GenericTicketService implements TicketService {
 
   private static Logger logger = Logger.getLogger(GenericTicketService.class);
 
+  // how many times located seats may all be lost to other requests
+  protected static final int MAX_HOLD_ATTEMPTS = 3;
+
   
   /**
    * Creates a StatefuleTransientTicketService
@@ -91,8 +103,7 @@ public class GenericTicketService implements TicketService {
       return 0;
     }
     
-    List<Seat> openSeats = venue.getOpenSeats();
-    return openSeats.size();
+    return venue.getOpenSeatCount();
   }
 
   
@@ -101,29 +112,15 @@ public class GenericTicketService implements TicketService {
    */
   public SeatHold findAndHoldSeats(int numSeats,
                                    String customerEmailAddress) {
-    // create a SeatHold 
-    SeatHold seatHold = new SeatHold();
-    seatHold.setCustomerEmailAddress(customerEmailAddress);
-    seatHold.setNumberOfSeatsRequested(numSeats);
-
-    // fast-fail on empty or null customerEmailAddress
-    if (StringUtils.isBlank(customerEmailAddress)) {
-      seatHold.setStatus(FAILURE_DUE_TO_INVALID_PARAMETERS);
-      seatHold.setStatusDetails("customerEmailAddress");
-
+    // create a SeatHold, failing fast on an invalid customerEmailAddress
+    SeatHold seatHold = createSeatHold(numSeats, customerEmailAddress);
+    if (seatHold.getStatus() != null) {
       return seatHold;
     }
 
-    // locate the seats, updating the SeatHold if errors occurr
-    boolean seatsLocated = false;
-    List<Seat> seatsToHold = new ArrayList<>();
+    // locate and hold the seats, updating the SeatHold if errors occurr
     try {
-      List<Seat> locatedSeats = seatLocatorService.locateSeats(numSeats);
-      seatsToHold.addAll(locatedSeats);
-      seatsLocated = true;
-      seatHold.setStatus(SUCCESS);
-      seatHold.setSeatsHeld(seatsToHold);
-      seatHold.setNumberOfSeatsHeld(seatsToHold.size());
+      recordHeldSeats(seatHold, locateAndHoldSeats(numSeats, customerEmailAddress));
     } catch (InsufficientAvailableSeatsException e) {
       seatHold.setStatus(FAILURE_DUE_TO_INSUFFICIENT_OPEN_SEATS);
       seatHold.setStatusDetails(e.getMessage());
@@ -132,9 +129,9 @@ public class GenericTicketService implements TicketService {
       seatHold.setStatusDetails(e.getMessage());
     }
 
-    // hold the seats
-    for (Seat seat : seatsToHold) {
-      seat.hold(customerEmailAddress);
+    // make the held seats durable before the hold is handed out
+    if (seatHold.getStatus() == SUCCESS) {
+      syncJournal();
     }
 
     // notify the seat holding service
@@ -144,7 +141,285 @@ public class GenericTicketService implements TicketService {
     return seatHold;
   }
 
-  
+
+  /**
+   * Holds seats for each of a batch of requests.  The seats for the
+   * whole batch are located with a single call to the seat locator, so
+   * the open seats are gathered and ranked once rather than once per
+   * request, and are handed out in request order: the first request
+   * gets the best seats, the next request the next best, and so on.  A
+   * request whose seats were taken by a concurrent request, or that the
+   * batch's seats cannot cover, locates seats on its own.  Locators of
+   * seat groups place each request separately.  The journal is synced
+   * once for the batch.  A request that fails unexpectedly, whether its
+   * seats could not be held or its hold could not be added to the seat
+   * holding service, has its seats released and is reported in its
+   * status; the other requests of the batch are unaffected.
+   * @see TicketService#findAndHoldSeats(List)
+   */
+  public List<SeatHold> findAndHoldSeats(List<SeatHoldRequest> requests) {
+    // create the SeatHolds, failing fast on invalid customerEmailAddresses
+    List<SeatHold> seatHolds = new ArrayList<>(requests.size());
+    boolean[] accepted = new boolean[requests.size()];
+    long batchSeatCount = 0;
+    for (SeatHoldRequest request : requests) {
+      SeatHold seatHold = createSeatHold(request.getNumSeats(), request.getCustomerEmailAddress());
+      if (seatHold.getStatus() == null) {
+        accepted[seatHolds.size()] = true;
+        batchSeatCount += Math.max(0, request.getNumSeats());
+      }
+      seatHolds.add(seatHold);
+    }
+
+    // locate the best seats for the whole batch at once
+    Iterator<Seat> batchSeats = Collections.emptyIterator();
+    int remainingBatchSeats = 0;
+    if (! seatLocatorService.locatesSeatGroups()) {
+      int seatCount = (int) Math.min(batchSeatCount, venue.getOpenSeatCount());
+      try {
+        if (seatCount > 0) {
+          batchSeats = seatLocatorService.locateSeats(seatCount).iterator();
+          remainingBatchSeats = seatCount;
+        }
+      } catch (InsufficientAvailableSeatsException e) {
+        // seats were taken while locating; each request locates its own
+      }
+    }
+
+    // hand the located seats out in request order
+    boolean anySeatsHeld = false;
+    for (int i = 0; i < seatHolds.size(); i++) {
+      SeatHold seatHold = seatHolds.get(i);
+      if (! accepted[i]) {
+        continue;
+      }
+
+      int numSeats = seatHold.getNumberOfSeatsRequested();
+      String customerEmailAddress = seatHold.getCustomerEmailAddress();
+      try {
+        if ((numSeats > 0) && (numSeats <= remainingBatchSeats)) {
+          List<Seat> locatedSeats = new ArrayList<>(numSeats);
+          while (locatedSeats.size() < numSeats) {
+            locatedSeats.add(batchSeats.next());
+          }
+          remainingBatchSeats -= numSeats;
+          recordHeldSeats(seatHold, claimLocatedSeats(locatedSeats, customerEmailAddress));
+        } else {
+          recordHeldSeats(seatHold, locateAndHoldSeats(numSeats, customerEmailAddress));
+        }
+        anySeatsHeld = true;
+      } catch (InsufficientAvailableSeatsException e) {
+        seatHold.setStatus(FAILURE_DUE_TO_INSUFFICIENT_OPEN_SEATS);
+        seatHold.setStatusDetails(e.getMessage());
+      } catch (IllegalArgumentException e) {
+        seatHold.setStatus(FAILURE_DUE_TO_INVALID_PARAMETERS);
+        seatHold.setStatusDetails(e.getMessage());
+      } catch (RuntimeException e) {
+        failSeatHold(seatHold, e);
+      }
+    }
+
+    // make the held seats durable before the holds are handed out
+    if (anySeatsHeld) {
+      syncJournal();
+    }
+
+    // notify the seat holding service of every accepted request
+    for (int i = 0; i < seatHolds.size(); i++) {
+      SeatHold seatHold = seatHolds.get(i);
+      if (! accepted[i] || (seatHold.getStatus() == FAILURE_DUE_TO_UNEXPECTED_ERROR)) {
+        continue;
+      }
+
+      try {
+        seatHolds.set(i, seatHoldingService.addSeatHold(seatHold));
+      } catch (RuntimeException e) {
+        releaseSeats(seatHold.getSeatsHeld(venue));
+        failSeatHold(seatHold, e);
+      }
+    }
+
+    return seatHolds;
+  }
+
+
+  /**
+   * Marks a SeatHold of a batch as failed by an unexpected exception.
+   * Any seats it recorded must already have been released.
+   */
+  private void failSeatHold(SeatHold seatHold, RuntimeException e) {
+    logger.error(SEAT_HOLD_REQUEST_FAILED, e);
+    seatHold.setStatus(FAILURE_DUE_TO_UNEXPECTED_ERROR);
+    seatHold.setStatusDetails(e.getMessage());
+    seatHold.setHeldSeats(null);
+    seatHold.setNumberOfSeatsHeld(0);
+  }
+
+
+  /**
+   * Creates the SeatHold for a request.  A request without a
+   * customerEmailAddress is marked as failed; otherwise the status is
+   * left unset.
+   */
+  protected SeatHold createSeatHold(int numSeats, String customerEmailAddress) {
+    SeatHold seatHold = new SeatHold();
+    seatHold.setCustomerEmailAddress(customerEmailAddress);
+    seatHold.setNumberOfSeatsRequested(numSeats);
+
+    if (StringUtils.isBlank(customerEmailAddress)) {
+      seatHold.setStatus(FAILURE_DUE_TO_INVALID_PARAMETERS);
+      seatHold.setStatusDetails("customerEmailAddress");
+    }
+
+    return seatHold;
+  }
+
+
+  /**
+   * Records the seats provided as held by the SeatHold provided
+   */
+  private void recordHeldSeats(SeatHold seatHold, List<Seat> heldSeats) {
+    seatHold.setStatus(SUCCESS);
+    seatHold.setSeatsHeld(heldSeats);
+    seatHold.setNumberOfSeatsHeld(heldSeats.size());
+  }
+
+
+  /**
+   * Claims seats that were located on behalf of a customer, locating
+   * replacements for any that another request claimed first.  If the
+   * replacements cannot be found the claimed seats are released.
+   * @return the held seats
+   * @throws InsufficientAvailableSeatsException if replacements could
+   * not be located
+   */
+  protected List<Seat> claimLocatedSeats(List<Seat> locatedSeats,
+                                         String customerEmailAddress)
+    throws InsufficientAvailableSeatsException {
+
+    List<Seat> conflictingSeats = venue.claimSeats(locatedSeats, customerEmailAddress);
+    if (conflictingSeats.isEmpty()) {
+      return locatedSeats;
+    }
+
+    List<Seat> heldSeats = new ArrayList<>(locatedSeats);
+    heldSeats.removeAll(conflictingSeats);
+    try {
+      heldSeats.addAll(locateAndHoldSeats(conflictingSeats.size(), customerEmailAddress));
+    } catch (InsufficientAvailableSeatsException | RuntimeException e) {
+      releaseSeats(heldSeats);
+      throw e;
+    }
+
+    return heldSeats;
+  }
+
+
+  /**
+   * Locates the best seats and claims them in the venue without taking
+   * any locks.  Another request may claim some of the located seats
+   * first, in which case only the conflicting seats are located again.
+   * The request fails once MAX_HOLD_ATTEMPTS attempts have claimed no
+   * seats at all.  If the request cannot be satisfied
+   * the seats that were claimed are released.
+   * @param numSeats the number of seats to hold
+   * @param customerEmailAddress the email address of the customer
+   * @return the held seats
+   * @throws InsufficientAvailableSeatsException if the seats could not
+   * be located or were repeatedly taken by other requests
+   * @throws IllegalArgumentException if the numSeats is 0 or negative
+   */
+  protected List<Seat> locateAndHoldSeats(int numSeats,
+                                          String customerEmailAddress)
+    throws InsufficientAvailableSeatsException {
+
+    // make sure callers request a positive number of seats
+    if (numSeats <= 0) {
+      throw new IllegalArgumentException(UNABLE_TO_LOCATE_ZERO_OR_NEGATIVE_SEATS);
+    }
+
+    // grouped seats are only useful together
+    if (seatLocatorService.locatesSeatGroups()) {
+      return locateAndHoldSeatGroup(numSeats, customerEmailAddress);
+    }
+
+    List<Seat> heldSeats = new ArrayList<>();
+    try {
+      int failedAttempts = 0;
+      while (heldSeats.size() < numSeats) {
+        // locate the seats still needed and keep the ones we claim
+        List<Seat> locatedSeats = seatLocatorService.locateSeats(numSeats - heldSeats.size());
+        List<Seat> conflictingSeats = venue.claimSeats(locatedSeats, customerEmailAddress);
+        locatedSeats.removeAll(conflictingSeats);
+        heldSeats.addAll(locatedSeats);
+
+        // give up after repeatedly losing every located seat
+        if (locatedSeats.isEmpty() && (++failedAttempts >= MAX_HOLD_ATTEMPTS)) {
+          throw new InsufficientAvailableSeatsException(INSUFFICIENT_OPEN_SEATS);
+        }
+      }
+    } catch (InsufficientAvailableSeatsException | RuntimeException e) {
+      releaseSeats(heldSeats);
+      throw e;
+    }
+
+    return heldSeats;
+  }
+
+
+  /**
+   * Locates a group of seats and holds all of them or none of them.  If
+   * another request takes any of the located seats the whole group is
+   * located again, up to MAX_HOLD_ATTEMPTS times.
+   * @param numSeats the number of seats to hold
+   * @param customerEmailAddress the email address of the customer
+   * @return the held seats
+   * @throws InsufficientAvailableSeatsException if the seats could not
+   * be located or were repeatedly taken by other requests
+   */
+  protected List<Seat> locateAndHoldSeatGroup(int numSeats,
+                                              String customerEmailAddress)
+    throws InsufficientAvailableSeatsException {
+
+    for (int attempt = 0; attempt < MAX_HOLD_ATTEMPTS; attempt++) {
+      List<Seat> locatedSeats = seatLocatorService.locateSeats(numSeats);
+      try {
+        return venue.holdSeats(locatedSeats, customerEmailAddress);
+      } catch (SeatUnavailableException e) {
+        // another request took part of the group; locate it again
+      }
+    }
+
+    throw new InsufficientAvailableSeatsException(INSUFFICIENT_OPEN_SEATS);
+  }
+
+
+  /**
+   * Returns seats that were claimed for a request that could not be
+   * satisfied to the open state
+   */
+  protected void releaseSeats(List<Seat> seats) {
+    List<Seat> notHeldSeats = venue.unholdSeats(seats);
+    if (! notHeldSeats.isEmpty()) {
+      logger.fatal(String.format(SEAT_STATES_ALTERED, notHeldSeats.size()));
+    }
+  }
+
+
+  /**
+   * Waits until the venue's journal, if any, has made every seat state
+   * change durable.  A journal that cannot be written is logged rather
+   * than failing requests whose seats have already changed in memory.
+   */
+  protected void syncJournal() {
+    try {
+      venue.syncJournal();
+    } catch (IOException e) {
+      logger.fatal(JOURNAL_NOT_DURABLE, e);
+    }
+  }
+
+
   /**
    * @see TransientTicketService#reserveSeats
    * @throws IllegalArgumentException if the seatHoldId is negative or
@@ -166,20 +441,24 @@ public class GenericTicketService implements TicketService {
     }
 
     // get the underlying seats that should be reserved
-    List<Seat> heldSeats = seatHold.getSeatsHeld();
+    int[] heldSeats = seatHold.getHeldSeats();
 
     // verify the customerEmail address matches on all seats
-    boolean emailAddressesMatch = validateEmailAddressesMatch(customerEmailAddress, heldSeats);
+    boolean emailAddressesMatch = validateEmailAddressesMatch(customerEmailAddress,
+                                                              seatHold.getSeatsHeld(venue));
     if (!emailAddressesMatch) {
       throw new IllegalArgumentException(SEAT_HOLD_CUSTOMER_EMAIL_ADDRESS_MISMATCH);
     }
 
-    // reserve each held seat
-    for (Seat seat : heldSeats) {
-      int rowNumber = seat.getRowNumber();
-      int seatNumber = seat.getSeatNumber();
+    // reserve each held seat, keeping track of those that were reserved
+    int[] reservedSeats = new int[heldSeats.length];
+    int reservedCount = 0;
+    for (int packedSeat : heldSeats) {
+      int rowNumber = SeatHold.unpackRowNumber(packedSeat);
+      int seatNumber = SeatHold.unpackSeatNumber(packedSeat);
       try {
         venue.reserveSeat(rowNumber, seatNumber, customerEmailAddress);
+        reservedSeats[reservedCount++] = packedSeat;
       } catch (SeatUnavailableException e) {
         /*
          * a race condition occurs between the thread that removes the
@@ -196,9 +475,17 @@ public class GenericTicketService implements TicketService {
       }
     }
 
-    // release the seat hold
+    // record only the seats that were reserved and release the seat hold
     try {
-      seatHoldingService.removeSeatHoldById(seatHoldId);
+      if (reservedCount == 0) {
+        seatHoldingService.removeSeatHoldById(seatHoldId);
+      } else {
+        if (reservedCount < heldSeats.length) {
+          seatHold.setHeldSeats(Arrays.copyOf(reservedSeats, reservedCount));
+          seatHold.setNumberOfSeatsHeld(reservedCount);
+        }
+        seatHoldingService.reserveSeatHold(seatHold);
+      }
     } catch (NoSuchSeatHoldException e) {
       /*
        * a race condition occurs between the thread that removes the
@@ -210,11 +497,140 @@ public class GenericTicketService implements TicketService {
       logger.warn(SEAT_HOLD_EXPIRED);
     }
 
+    // make the reserved seats durable before confirming
+    syncJournal();
+
     // the confirmation code isn't used elsewhere so just return a UUID
     return UUID.randomUUID().toString();
   }
 
 
+  /**
+   * Reserves the seats of each of a batch of seat holds in one pass.  The
+   * holds are looked up together, the seats of every valid hold are
+   * reserved a row at a time through Venue#reserveSeatHolds, and the
+   * holds are recorded as reserved and removed with a single call to the
+   * seat holding service.  As with a single hold, only the seats that
+   * were reserved are recorded; a hold none of whose seats could be
+   * reserved fails and is simply removed.  The outcome of each request
+   * is reported in its result rather than thrown.
+   * @see TicketService#reserveSeats(List)
+   */
+  public List<SeatReservation> reserveSeats(List<SeatReservationRequest> requests) {
+    // look up every seat hold at once
+    int[] seatHoldIds = new int[requests.size()];
+    for (int i = 0; i < seatHoldIds.length; i++) {
+      seatHoldIds[i] = requests.get(i).getSeatHoldId();
+    }
+    List<SeatHold> seatHolds = seatHoldingService.getSeatHoldsById(seatHoldIds);
+
+    // validate each request against its seat hold
+    List<SeatReservation> reservations = new ArrayList<>(requests.size());
+    List<SeatHold> seatHoldsToReserve = new ArrayList<>();
+    List<SeatReservation> pendingReservations = new ArrayList<>();
+    Set<Integer> reservedSeatHoldIds = new HashSet<>();
+    for (int i = 0; i < seatHoldIds.length; i++) {
+      SeatReservation reservation = new SeatReservation(seatHoldIds[i]);
+      SeatHold seatHold = seatHolds.get(i);
+      String customerEmailAddress = requests.get(i).getCustomerEmailAddress();
+      if (seatHoldIds[i] < 0) {
+        reservation.setStatus(SeatReservationStatusEnum.FAILURE_DUE_TO_INVALID_PARAMETERS);
+        reservation.setStatusDetails(INVALID_SEAT_HOLD_ID);
+      } else if ((seatHold == null) || reservedSeatHoldIds.contains(seatHoldIds[i])) {
+        reservation.setStatus(SeatReservationStatusEnum.FAILURE_DUE_TO_UNKNOWN_SEAT_HOLD);
+        reservation.setStatusDetails(SEAT_HOLD_ID_UNKNOWN);
+      } else if (! emailAddressesMatch(customerEmailAddress, seatHold)) {
+        reservation.setStatus(SeatReservationStatusEnum.FAILURE_DUE_TO_INVALID_PARAMETERS);
+        reservation.setStatusDetails(SEAT_HOLD_CUSTOMER_EMAIL_ADDRESS_MISMATCH);
+      } else {
+        reservedSeatHoldIds.add(seatHoldIds[i]);
+        seatHoldsToReserve.add(seatHold);
+        pendingReservations.add(reservation);
+      }
+      reservations.add(reservation);
+    }
+
+    if (seatHoldsToReserve.isEmpty()) {
+      return reservations;
+    }
+
+    // reserve the seats of every valid hold, a row at a time
+    int[][] reservedSeats = venue.reserveSeatHolds(seatHoldsToReserve);
+
+    // narrow each hold to the seats that were reserved
+    List<SeatHold> reservedSeatHolds = new ArrayList<>(seatHoldsToReserve.size());
+    for (int i = 0; i < reservedSeats.length; i++) {
+      SeatHold seatHold = seatHoldsToReserve.get(i);
+      SeatReservation reservation = pendingReservations.get(i);
+      int unavailableCount = seatHold.getHeldSeats().length - reservedSeats[i].length;
+      if (unavailableCount > 0) {
+        // see reserveSeats(int, String) for how this race occurs
+        logger.warn(String.format(SEATS_UNAVAILABLE_FOR_RESERVATION, unavailableCount));
+        reservation.setStatusDetails(String.format(SEATS_UNAVAILABLE_FOR_RESERVATION, unavailableCount));
+      }
+
+      if (reservedSeats[i].length == 0) {
+        reservation.setStatus(SeatReservationStatusEnum.FAILURE_DUE_TO_UNAVAILABLE_SEATS);
+        try {
+          seatHoldingService.removeSeatHoldById(seatHold.getId());
+        } catch (NoSuchSeatHoldException e) {
+          logger.warn(SEAT_HOLD_EXPIRED);
+        }
+        continue;
+      }
+
+      if (unavailableCount > 0) {
+        seatHold.setHeldSeats(reservedSeats[i]);
+        seatHold.setNumberOfSeatsHeld(reservedSeats[i].length);
+      }
+      reservedSeatHolds.add(seatHold);
+      reservation.setStatus(SeatReservationStatusEnum.SUCCESS);
+      reservation.setConfirmationCode(UUID.randomUUID().toString());
+    }
+
+    if (reservedSeatHolds.isEmpty()) {
+      return reservations;
+    }
+
+    // record the reservations and release the seat holds together
+    int removedCount = seatHoldingService.reserveSeatHolds(reservedSeatHolds);
+    if (removedCount < reservedSeatHolds.size()) {
+      logger.warn(SEAT_HOLD_EXPIRED);
+    }
+
+    // make the reserved seats durable before confirming
+    syncJournal();
+
+    return reservations;
+  }
+
+
+  /**
+   * Returns true if every seat of the hold provided is held by the
+   * customer with the email address provided
+   */
+  protected boolean emailAddressesMatch(String emailAddressToMatch,
+                                        SeatHold seatHold) {
+    List<Seat> seats;
+    try {
+      seats = seatHold.getSeatsHeld(venue);
+    } catch (IllegalArgumentException e) {
+      return false;
+    }
+
+    if (seats.isEmpty() || (emailAddressToMatch == null)) {
+      return false;
+    }
+    for (Seat seat : seats) {
+      if (! emailAddressToMatch.equals(seat.getCustomerEmailAddress())) {
+        return false;
+      }
+    }
+
+    return true;
+  }
+
+
   /**
    * Validate that all of the seats provided contain an email address that
    * matches the emailAddressToMatch parameter
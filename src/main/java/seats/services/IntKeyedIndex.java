@@ -0,0 +1,216 @@
+package seats.services;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.ToIntFunction;
+
+
+/**
+ * <p>
+ * A concurrent index of values by primitive int key, for keys drawn from
+ * a dense increasing sequence such as seat hold ids.
+ * </p>
+ *
+ * <p>
+ * Values are stored in a ring whose slot is the key divided by a stride
+ * (for indexes that only receive every stride-th key), modulo the
+ * capacity.  Each value knows its own key, so a lookup is a single probe
+ * that neither boxes the key nor allocates.  When a new key lands on a
+ * slot that is still in use the ring doubles until every live key has a
+ * slot of its own; because live keys fall in a window of recent ids the
+ * ring stays proportional to that window.
+ * </p>
+ *
+ * <p>
+ * The ring never grows beyond a maximum capacity, so a few long-lived
+ * keys far behind the window cannot make it grow with the span of keys.
+ * Once the ring is at its maximum a new key whose slot is taken moves
+ * the older key in the slot to an overflow map; lookups only consult the
+ * map when it is not empty.
+ * </p>
+ *
+ * <p>
+ * Lookups take no lock.  Insertions and removals are synchronized on the
+ * index.
+ * </p>
+ */
+class IntKeyedIndex<V> {
+  // the largest number of slots of an index by default
+  static final int MAX_CAPACITY = 1 << 20;
+
+  // the values indexed by slot
+  private volatile AtomicReferenceArray<V> slots;
+
+  // the distance between consecutive keys this index receives
+  private final int stride;
+
+  // returns the key of a value
+  private final ToIntFunction<V> keyOf;
+
+  // the largest number of slots
+  private final int maxCapacity;
+
+  // the values moved out of the ring once it could not grow
+  private final ConcurrentMap<Integer, V> overflow = new ConcurrentHashMap<>();
+
+  // the number of values in the index
+  private volatile int size;
+
+
+  /**
+   * Creates an IntKeyedIndex
+   * @param initialCapacity the number of slots to begin with
+   * @param stride the distance between consecutive keys
+   * @param keyOf returns the key of a value
+   */
+  IntKeyedIndex(int initialCapacity, int stride, ToIntFunction<V> keyOf) {
+    this(initialCapacity, stride, keyOf, MAX_CAPACITY);
+  }
+
+  /**
+   * Creates an IntKeyedIndex
+   * @param initialCapacity the number of slots to begin with
+   * @param stride the distance between consecutive keys
+   * @param keyOf returns the key of a value
+   * @param maxCapacity the largest number of slots; it is rounded down
+   * to a power of two
+   */
+  IntKeyedIndex(int initialCapacity, int stride, ToIntFunction<V> keyOf, int maxCapacity) {
+    this.maxCapacity = Integer.highestOneBit(Math.max(16, Math.min(maxCapacity, MAX_CAPACITY)));
+
+    int capacity = 16;
+    while (capacity < Math.min(initialCapacity, this.maxCapacity)) {
+      capacity <<= 1;
+    }
+
+    this.slots = new AtomicReferenceArray<>(capacity);
+    this.stride = Math.max(1, stride);
+    this.keyOf = keyOf;
+  }
+
+
+  /**
+   * Returns the value with the key provided, or null if there is none
+   */
+  V get(int key) {
+    AtomicReferenceArray<V> current = slots;
+    V value = current.get(slotOf(key, current.length()));
+    if ((value != null) && (keyOf.applyAsInt(value) == key)) {
+      return value;
+    }
+
+    return overflow.isEmpty() ? null : overflow.get(key);
+  }
+
+
+  /**
+   * Adds the value provided under its key, replacing any value with the
+   * same key
+   * @return the value that was replaced, or null if there was none
+   */
+  synchronized V put(V value) {
+    int key = keyOf.applyAsInt(value);
+
+    // a key that has overflowed stays in the overflow map
+    if (! overflow.isEmpty() && overflow.containsKey(key)) {
+      return overflow.put(key, value);
+    }
+
+    // make room if another live key occupies the slot
+    V occupant = slots.get(slotOf(key, slots.length()));
+    while ((occupant != null) && (keyOf.applyAsInt(occupant) != key)) {
+      if (slots.length() >= maxCapacity) {
+        // keys increase, so the occupant is the older key
+        overflow.put(keyOf.applyAsInt(occupant), occupant);
+        slots.set(slotOf(key, slots.length()), value);
+        size++;
+        return null;
+      }
+      grow();
+      occupant = slots.get(slotOf(key, slots.length()));
+    }
+
+    slots.set(slotOf(key, slots.length()), value);
+    if (occupant == null) {
+      size++;
+    }
+
+    return occupant;
+  }
+
+
+  /**
+   * Removes the value with the key provided
+   * @return the value that was removed, or null if there was none
+   */
+  synchronized V remove(int key) {
+    int slot = slotOf(key, slots.length());
+    V value = slots.get(slot);
+    if ((value == null) || (keyOf.applyAsInt(value) != key)) {
+      value = overflow.isEmpty() ? null : overflow.remove(key);
+      if (value != null) {
+        size--;
+      }
+      return value;
+    }
+
+    slots.set(slot, null);
+    size--;
+
+    return value;
+  }
+
+
+  /**
+   * Returns the number of values in the index
+   */
+  int size() { return size; }
+
+
+  /**
+   * Returns the number of values kept in the overflow map
+   */
+  int overflowSize() { return overflow.size(); }
+
+
+  /**
+   * Doubles the ring until every live value has a slot of its own and
+   * publishes the new ring
+   */
+  private void grow() {
+    AtomicReferenceArray<V> current = slots;
+    int capacity = current.length();
+    AtomicReferenceArray<V> grown;
+    boolean collided;
+    do {
+      capacity <<= 1;
+      grown = new AtomicReferenceArray<>(capacity);
+      collided = false;
+      for (int i = 0; (i < current.length()) && ! collided; i++) {
+        V value = current.get(i);
+        if (value == null) {
+          continue;
+        }
+
+        int slot = slotOf(keyOf.applyAsInt(value), capacity);
+        if (grown.get(slot) != null) {
+          collided = true;
+        } else {
+          grown.set(slot, value);
+        }
+      }
+    } while (collided);
+
+    slots = grown;
+  }
+
+
+  /**
+   * Returns the slot of the key provided in a ring of the capacity provided
+   */
+  private int slotOf(int key, int capacity) {
+    return (key / stride) & (capacity - 1);
+  }
+
+}
@@ -0,0 +1,91 @@
+package seats.services;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.IntToLongFunction;
+
+import static seats.common.Messages.*;
+
+
+/**
+ * <p>
+ * Allocates positive int ids from blocks leased from a shared source,
+ * such as a counter in a durable store.  Every block is handed out once
+ * by the source, so ids are unique across restarts and across every
+ * allocator leasing from the same source, while only one lease in every
+ * block size ids leaves the process.
+ * </p>
+ *
+ * <p>
+ * The current block is packed into a single long, the end of the block
+ * in the high 32 bits and the next id in the low 32 bits, so an id is
+ * taken with one compare-and-set.  Only the thread that finds the block
+ * exhausted leases the next one.  Ids left over in a block when the
+ * process stops are never used.
+ * </p>
+ */
+class LeasedIdAllocator {
+  // leases a block of the size provided and returns its first id
+  private final IntToLongFunction leaseBlock;
+
+  // the number of ids leased at a time
+  private final int blockSize;
+
+  // the end (high 32 bits) and next id (low 32 bits) of the current block
+  private final AtomicLong block = new AtomicLong();
+
+
+  /**
+   * Creates a LeasedIdAllocator
+   * @param leaseBlock leases a block of the size provided and returns
+   * its first id
+   * @param blockSize the number of ids leased at a time
+   */
+  LeasedIdAllocator(IntToLongFunction leaseBlock, int blockSize) {
+    this.leaseBlock = leaseBlock;
+    this.blockSize = Math.max(1, blockSize);
+  }
+
+
+  /**
+   * Returns an id that has not been returned before
+   * @throws IllegalStateException if the source has no more ids
+   */
+  int nextId() {
+    while (true) {
+      long current = block.get();
+      int next = (int) current;
+      int end = (int) (current >>> 32);
+      if (next < end) {
+        if (block.compareAndSet(current, current + 1)) {
+          return next;
+        }
+        continue;
+      }
+
+      // the block is exhausted; lease another unless a peer already has
+      synchronized (this) {
+        if (block.get() == current) {
+          block.set(lease());
+        }
+      }
+    }
+  }
+
+
+  /**
+   * Leases a block from the source and returns it packed
+   */
+  private long lease() {
+    long first = leaseBlock.applyAsLong(blockSize);
+    long end = first + blockSize;
+
+    // ids are positive ints; 0 marks a hold without an id
+    first = Math.max(first, 1L);
+    if (end > Integer.MAX_VALUE) {
+      throw new IllegalStateException(SEAT_HOLD_IDS_EXHAUSTED);
+    }
+
+    return (end << 32) | first;
+  }
+
+}
@@ -0,0 +1,29 @@
+package seats.services;
+
+/**
+ * <p>
+ * A checked exception that is meant to indicate that the event
+ * in question does not exist.
+ * </p>
+ */
+public class NoSuchEventException extends Exception {
+
+  /**
+   * Creates an NoSuchEventException based on a message
+   * and cause
+   * @param message the exception message
+   * @param cause the underlying cause
+   */
+  public NoSuchEventException(String message, Throwable cause) {
+    super(message, cause);
+  }
+
+  
+  /**
+   * Creates an NoSuchEventException based on a message
+   * @param message the exception message
+   */
+  public NoSuchEventException(String message) {
+    super(message);
+  }
+}
@@ -0,0 +1,311 @@
+package seats.services;
+
+import seats.model.Venue;
+import seats.model.Row;
+import seats.model.Seat;
+import seats.model.SeatStateListener;
+
+import static seats.common.Messages.*;
+
+import java.util.List;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+
+/**
+ * <p>
+ * An implementation of the SeatLocatorService that lets many request
+ * threads search for the best seats at the same time.
+ * </p>
+ *
+ * <p>
+ * Seat attributes never change once a venue is built, so the seats are
+ * ranked by the comparator once and the resulting snapshot is shared by
+ * every request.  A request walks the snapshot and picks the first open
+ * seats it finds without taking any lock.  Concurrent requests may pick
+ * the same seats; they are expected to claim the seats through
+ * Venue#claimSeats and locate again only for the seats they lost, as
+ * GenericTicketService does.
+ * </p>
+ *
+ * <p>
+ * To avoid rescanning the seats that are already taken the service
+ * keeps a hint of the first rank that may still be open.  Requests move
+ * the hint forward past the taken seats they observe and unheld seats
+ * move it back.  The hint is paired with a version that changes on
+ * every unhold so a request can never move the hint past a seat that
+ * was released while it was scanning.
+ * </p>
+ *
+ * @see ComparatorBasedSeatLocatorService
+ */
+public class OptimisticSeatLocatorService implements SeatLocatorService {
+  // the venue to use
+  private volatile Venue venue;
+
+  // the comparator to use
+  private volatile Comparator<Seat> comparator;
+
+  // every seat in the venue in comparator order; built on first use
+  private volatile Snapshot snapshot;
+
+  // the seat ranking shared by all requests
+  static class Snapshot {
+    // the seats ordered best first
+    final Seat[] rankedSeats;
+
+    // the rank of each seat indexed by row number and seat number
+    final int[][] ranks;
+
+    // the version (high 32 bits) and first possibly open rank (low 32 bits)
+    final AtomicLong firstCandidate = new AtomicLong();
+
+    // keeps the hint current; registered with the venue
+    SeatStateListener listener;
+
+    Snapshot(Seat[] rankedSeats, int[][] ranks) {
+      this.rankedSeats = rankedSeats;
+      this.ranks = ranks;
+    }
+
+    /**
+     * Returns the rank of the seat provided or -1 if it is not part of
+     * the snapshot
+     */
+    int rankOf(Seat seat) {
+      int rowIndex = seat.getRowNumber() - 1;
+      int seatIndex = seat.getSeatNumber() - 1;
+      if ((rowIndex < 0) || (rowIndex >= ranks.length)) {
+        return -1;
+      }
+      if ((seatIndex < 0) || (seatIndex >= ranks[rowIndex].length)) {
+        return -1;
+      }
+
+      return ranks[rowIndex][seatIndex];
+    }
+  }
+
+  // a listener that moves the hint back when seats become open again
+  class FirstCandidateListener implements SeatStateListener {
+    // the snapshot whose hint is maintained
+    private final Snapshot target;
+
+    FirstCandidateListener(Snapshot target) {
+      this.target = target;
+    }
+
+    /**
+     * @see SeatStateListener#seatHeld
+     */
+    public void seatHeld(Seat seat) { }
+
+    /**
+     * @see SeatStateListener#seatUnheld
+     */
+    public void seatUnheld(Seat seat) {
+      lowerHint(target.rankOf(seat));
+    }
+
+    /**
+     * @see SeatStateListener#seatsUnheld
+     */
+    public void seatsUnheld(List<Seat> seats) {
+      // a single update covers the best ranked seat in the batch
+      int lowestRank = -1;
+      for (Seat seat : seats) {
+        int rank = target.rankOf(seat);
+        if ((rank >= 0) && ((lowestRank < 0) || (rank < lowestRank))) {
+          lowestRank = rank;
+        }
+      }
+
+      lowerHint(lowestRank);
+    }
+
+    /**
+     * Bumps the version and lowers the hint to the rank provided, if it
+     * is not negative
+     */
+    private void lowerHint(int rank) {
+      if (rank < 0) {
+        return;
+      }
+
+      // bump the version and lower the hint to the released seat
+      long current;
+      long updated;
+      do {
+        current = target.firstCandidate.get();
+        int version = (int) (current >>> 32) + 1;
+        int hint = Math.min((int) current, rank);
+        updated = ((long) version << 32) | (hint & 0xFFFFFFFFL);
+      } while (! target.firstCandidate.compareAndSet(current, updated));
+    }
+
+    /**
+     * @see SeatStateListener#seatReserved
+     */
+    public void seatReserved(Seat seat) { }
+  }
+
+
+  /**
+   * Returns the Venue that is used
+   */
+  public Venue getVenue() { return venue; }
+
+  /**
+   * Sets the Venue to use
+   */
+  public synchronized void setVenue(Venue venue) {
+    discardSnapshot();
+    this.venue = venue;
+  }
+
+
+  /**
+   * Returns the Comparator that is used
+   */
+  public Comparator<Seat> getComparator() { return comparator; }
+
+  /**
+   * Sets the Comparator to use
+   */
+  public synchronized void setComparator(Comparator<Seat> comparator) {
+    discardSnapshot();
+    this.comparator = comparator;
+  }
+
+
+  /**
+   * Unregisters from the venue and drops the snapshot so that it is
+   * rebuilt on the next request
+   */
+  synchronized void discardSnapshot() {
+    if ((venue != null) && (snapshot != null)) {
+      venue.removeSeatStateListener(snapshot.listener);
+    }
+
+    snapshot = null;
+  }
+
+
+  /**
+   * Returns the shared ranking of the seats, building it if necessary.
+   * The monitor is only taken when the snapshot does not exist yet.
+   */
+  Snapshot getSnapshot() {
+    Snapshot current = snapshot;
+    if (current != null) {
+      return current;
+    }
+
+    synchronized (this) {
+      if (snapshot == null) {
+        snapshot = buildSnapshot();
+      }
+      return snapshot;
+    }
+  }
+
+
+  /**
+   * Ranks every seat in the venue with the comparator and registers for
+   * notification of seats that are unheld
+   */
+  Snapshot buildSnapshot() {
+    List<Seat> seats = new ArrayList<>();
+    int[][] ranks = new int[venue.getRowCount()][];
+    for (Row row : venue.getRows()) {
+      seats.addAll(row.getSeats());
+      ranks[row.getRowNumber() - 1] = new int[row.getSeatCount()];
+    }
+
+    /*
+     * ties are broken by row and seat number so that the order matches a
+     * stable sort of the venue's open seats
+     */
+    Seat[] rankedSeats = seats.toArray(new Seat[seats.size()]);
+    Arrays.sort(rankedSeats, comparator
+                .thenComparingInt(Seat::getRowNumber)
+                .thenComparingInt(Seat::getSeatNumber));
+
+    for (int rank = 0; rank < rankedSeats.length; rank++) {
+      Seat seat = rankedSeats[rank];
+      ranks[seat.getRowNumber() - 1][seat.getSeatNumber() - 1] = rank;
+    }
+
+    Snapshot built = new Snapshot(rankedSeats, ranks);
+    built.listener = new FirstCandidateListener(built);
+    venue.addSeatStateListener(built.listener);
+
+    return built;
+  }
+
+
+  /**
+   * @see SeatLocatorService#locateSeats
+   * @throws IllegalArgumentException if the numSeats is 0 or negative
+   */
+  public List<Seat> locateSeats(int numSeats)
+    throws InsufficientAvailableSeatsException {
+
+    // make sure callers request a positive number of seats
+    if (numSeats <= 0) {
+      throw new IllegalArgumentException(UNABLE_TO_LOCATE_ZERO_OR_NEGATIVE_SEATS);
+    }
+
+    // throw an exception if there are not sufficient open seats
+    if (numSeats > venue.getOpenSeatCount()) {
+      throw new InsufficientAvailableSeatsException(INSUFFICIENT_OPEN_SEATS);
+    }
+
+    Snapshot ranking = getSnapshot();
+    Seat[] rankedSeats = ranking.rankedSeats;
+
+    // start at the first rank that may still be open
+    long candidate = ranking.firstCandidate.get();
+    int firstRank = (int) candidate;
+
+    // take the first open seats in rank order
+    List<Seat> locatedSeats = new ArrayList<>();
+    int firstOpenRank = -1;
+    for (int rank = firstRank; rank < rankedSeats.length; rank++) {
+      Seat seat = rankedSeats[rank];
+      if (! seat.isOpen()) {
+        continue;
+      }
+
+      if (firstOpenRank < 0) {
+        firstOpenRank = rank;
+      }
+
+      locatedSeats.add(seat);
+      if (locatedSeats.size() == numSeats) {
+        break;
+      }
+    }
+
+    /*
+     * move the hint past the taken seats we skipped.  this fails if
+     * another request moved it or a seat was unheld in the meantime,
+     * either of which is fine
+     */
+    if (firstOpenRank > firstRank) {
+      long advanced = (candidate & 0xFFFFFFFF00000000L) | firstOpenRank;
+      ranking.firstCandidate.compareAndSet(candidate, advanced);
+    }
+
+    // throw an exception if there are not sufficient open seats
+    if (locatedSeats.size() < numSeats) {
+      throw new InsufficientAvailableSeatsException(INSUFFICIENT_OPEN_SEATS);
+    }
+
+    return locatedSeats;
+  }
+
+}
@@ -0,0 +1,73 @@
+package seats.services;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import seats.model.SeatHold;
+import seats.services.ExpirationWheel.Expiration;
+
+
+/**
+ * <p>
+ * One partition of the seat holds kept by an
+ * ExpiringTransientSeatHoldingService.  Each shard has its own index and
+ * ExpirationWheel so that shards are expired independently, and keeps
+ * track of how late its expirations run.
+ * </p>
+ */
+class SeatHoldShard {
+  // the number of slots each shard's index begins with
+  static final int INITIAL_INDEX_CAPACITY = 1024;
+
+  // the seat holds in this shard with their expirations, keyed by id
+  final IntKeyedIndex<Expiration<SeatHold>> index;
+
+  // orders the seat holds in this shard by expiration time
+  final ExpirationWheel<SeatHold> expirationWheel;
+
+  // the number of seat holds that have expired
+  private final AtomicLong expiredSeatHoldCount = new AtomicLong();
+
+  // how late (in milliseconds) the most recent and the latest expirations ran
+  private final AtomicLong lastExpiryLag = new AtomicLong();
+  private final AtomicLong maxExpiryLag = new AtomicLong();
+
+
+  /**
+   * Creates a SeatHoldShard
+   * @param shardCount the number of shards; the shard receives every
+   * shardCount-th seat hold id
+   * @param expirationWheel the wheel that orders the shard's seat holds
+   */
+  SeatHoldShard(int shardCount, ExpirationWheel<SeatHold> expirationWheel) {
+    this.index = new IntKeyedIndex<>(INITIAL_INDEX_CAPACITY, shardCount,
+                                     expiration -> expiration.getItem().getId());
+    this.expirationWheel = expirationWheel;
+  }
+
+
+  /**
+   * Records a check cycle that expired seat holds
+   * @param expiredCount the number of seat holds that expired
+   * @param lagInMilliSeconds how long after its expiration time the
+   * most overdue of those seat holds was released
+   */
+  void recordExpiry(int expiredCount, long lagInMilliSeconds) {
+    expiredSeatHoldCount.addAndGet(expiredCount);
+    lastExpiryLag.set(lagInMilliSeconds);
+    maxExpiryLag.accumulateAndGet(lagInMilliSeconds, Math::max);
+  }
+
+
+  /**
+   * Returns the current metrics of this shard
+   * @param shardNumber the number of this shard within its service
+   */
+  SeatHoldShardMetrics getMetrics(int shardNumber) {
+    return new SeatHoldShardMetrics(shardNumber,
+                                    index.size(),
+                                    expiredSeatHoldCount.get(),
+                                    lastExpiryLag.get(),
+                                    maxExpiryLag.get());
+  }
+
+}
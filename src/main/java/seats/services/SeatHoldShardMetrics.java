@@ -0,0 +1,78 @@
+package seats.services;
+
+
+/**
+ * <p>
+ * A snapshot of the state of one shard of an
+ * ExpiringTransientSeatHoldingService.
+ * </p>
+ *
+ * <p>
+ * The expiry lag is how long after its expiration time a seat hold was
+ * actually released.  A lag that keeps growing means the shard's expiry
+ * worker is falling behind.
+ * </p>
+ */
+public class SeatHoldShardMetrics {
+  // the number of the shard, starting at 0
+  private final int shardNumber;
+
+  // the number of seat holds presently in the shard
+  private final int seatHoldCount;
+
+  // the number of seat holds the shard has expired
+  private final long expiredSeatHoldCount;
+
+  // the expiry lag of the most recent check cycle that expired seat holds
+  private final long lastExpiryLagInMilliSeconds;
+
+  // the largest expiry lag the shard has seen
+  private final long maxExpiryLagInMilliSeconds;
+
+
+  /**
+   * Creates a SeatHoldShardMetrics
+   */
+  public SeatHoldShardMetrics(int shardNumber,
+                              int seatHoldCount,
+                              long expiredSeatHoldCount,
+                              long lastExpiryLagInMilliSeconds,
+                              long maxExpiryLagInMilliSeconds) {
+    this.shardNumber = shardNumber;
+    this.seatHoldCount = seatHoldCount;
+    this.expiredSeatHoldCount = expiredSeatHoldCount;
+    this.lastExpiryLagInMilliSeconds = lastExpiryLagInMilliSeconds;
+    this.maxExpiryLagInMilliSeconds = maxExpiryLagInMilliSeconds;
+  }
+
+  /**
+   * Returns the number of the shard, starting at 0
+   */
+  public int getShardNumber() { return shardNumber; }
+
+  /**
+   * Returns the number of seat holds presently in the shard
+   */
+  public int getSeatHoldCount() { return seatHoldCount; }
+
+  /**
+   * Returns the number of seat holds the shard has expired
+   */
+  public long getExpiredSeatHoldCount() { return expiredSeatHoldCount; }
+
+  /**
+   * Returns the expiry lag of the most recent check cycle that expired
+   * seat holds
+   */
+  public long getLastExpiryLagInMilliSeconds() {
+    return lastExpiryLagInMilliSeconds;
+  }
+
+  /**
+   * Returns the largest expiry lag the shard has seen
+   */
+  public long getMaxExpiryLagInMilliSeconds() {
+    return maxExpiryLagInMilliSeconds;
+  }
+
+}
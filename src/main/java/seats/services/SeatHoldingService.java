@@ -3,6 +3,9 @@ package seats.services;
 import seats.model.SeatHold;
 import seats.model.Venue;
 
+import java.util.List;
+import java.util.ArrayList;
+
 
 /**
  * <p>
@@ -41,6 +44,42 @@ public interface SeatHoldingService {
     throws NoSuchSeatHoldException;
 
   
+  /**
+   * Records that the seats of the SeatHold provided have been reserved
+   * and removes the hold.  Services that do not keep reservations simply
+   * remove the hold.
+   * @throws NoSuchSeatHoldException if the seat hold can no longer be
+   * located; the reservation is still recorded
+   */
+  public default void reserveSeatHold(SeatHold seatHold)
+    throws NoSuchSeatHoldException {
+    removeSeatHoldById(seatHold.getId());
+  }
+
+  
+  /**
+   * Records that the seats of each of the SeatHolds provided have been
+   * reserved and removes the holds.  Services backed by a store do this
+   * with a single bulk write.
+   * @return the number of holds that were removed; holds that could no
+   * longer be located are not counted, though their reservations are
+   * still recorded
+   */
+  public default int reserveSeatHolds(List<SeatHold> seatHolds) {
+    int removedCount = 0;
+    for (SeatHold seatHold : seatHolds) {
+      try {
+        reserveSeatHold(seatHold);
+        removedCount++;
+      } catch (NoSuchSeatHoldException e) {
+        // the hold expired; the reservation stands
+      }
+    }
+
+    return removedCount;
+  }
+
+
   /**
    * Returns the SeatHold with the id provided
    * @throws NoSuchSeatHoldException if a seat hold with the id
@@ -50,9 +89,35 @@ public interface SeatHoldingService {
     throws NoSuchSeatHoldException;
 
 
+  /**
+   * Returns the SeatHold with each of the ids provided, in the same
+   * order, with null for ids that cannot be located.  Services backed by
+   * a store look them up with a single query.
+   */
+  public default List<SeatHold> getSeatHoldsById(int[] seatHoldIds) {
+    List<SeatHold> seatHolds = new ArrayList<>(seatHoldIds.length);
+    for (int seatHoldId : seatHoldIds) {
+      try {
+        seatHolds.add(getSeatHoldById(seatHoldId));
+      } catch (NoSuchSeatHoldException e) {
+        seatHolds.add(null);
+      }
+    }
+
+    return seatHolds;
+  }
+
+
   /**
    * Returns the number of seat hold instances
    */
   public int getSeatHoldCount();
 
+
+  /**
+   * Stops any background work of the service, such as expiring holds.
+   * Services without any background work do nothing.
+   */
+  public default void destroy() throws Exception { }
+
 }
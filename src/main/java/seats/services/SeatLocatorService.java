@@ -41,6 +41,14 @@ public interface SeatLocatorService {
   public List<Seat> locateSeats(int numSeats)
     throws InsufficientAvailableSeatsException;
 
+
+  /**
+   * Returns true if the located seats are arranged as a group, such as
+   * a block of adjacent seats, that must be held all together or not at
+   * all.  Seats that are not grouped may be held piecemeal.
+   */
+  public default boolean locatesSeatGroups() { return false; }
+
     
 }
 
@@ -1,6 +1,14 @@
 package seats.services;
 
 import seats.model.SeatHold;
+import seats.model.SeatHoldRequest;
+import seats.model.SeatReservation;
+import seats.model.SeatReservationRequest;
+import seats.model.SeatHoldRequestStatusEnum;
+import static seats.model.SeatReservationStatusEnum.*;
+
+import java.util.List;
+import java.util.ArrayList;
 
 
 /**
@@ -36,6 +44,34 @@ public interface TicketService {
   */
   SeatHold findAndHoldSeats(int numSeats, String customerEmail);
 
+
+  /**
+   * Find and hold the best available seats for each of a batch of
+   * requests, assigning seats in the order the requests appear.  A
+   * request that cannot be held is reported in its result rather than
+   * thrown, and does not keep any seats.
+   *
+   * @param requests the number of seats and customer of each request
+   * @return a SeatHold for each request, in the same order
+   */
+  default List<SeatHold> findAndHoldSeats(List<SeatHoldRequest> requests) {
+    List<SeatHold> seatHolds = new ArrayList<>(requests.size());
+    for (SeatHoldRequest request : requests) {
+      try {
+        seatHolds.add(findAndHoldSeats(request.getNumSeats(), request.getCustomerEmailAddress()));
+      } catch (RuntimeException e) {
+        SeatHold seatHold = new SeatHold();
+        seatHold.setCustomerEmailAddress(request.getCustomerEmailAddress());
+        seatHold.setNumberOfSeatsRequested(request.getNumSeats());
+        seatHold.setStatus(SeatHoldRequestStatusEnum.FAILURE_DUE_TO_UNEXPECTED_ERROR);
+        seatHold.setStatusDetails(e.getMessage());
+        seatHolds.add(seatHold);
+      }
+    }
+
+    return seatHolds;
+  }
+
   
   /**
    * Commit seats held for a specific customer
@@ -46,5 +82,38 @@ public interface TicketService {
    * @return a reservation confirmation code
    */
   String reserveSeats(int seatHoldId, String customerEmail);
-  
+
+
+  /**
+   * Commit the seats of each of a batch of seat holds.  A request that
+   * cannot be committed is reported in its result rather than thrown.
+   *
+   * @param requests the seat hold id and customer of each request
+   * @return a SeatReservation for each request, in the same order
+   */
+  default List<SeatReservation> reserveSeats(List<SeatReservationRequest> requests) {
+    List<SeatReservation> reservations = new ArrayList<>(requests.size());
+    for (SeatReservationRequest request : requests) {
+      SeatReservation reservation = new SeatReservation(request.getSeatHoldId());
+      try {
+        reservation.setConfirmationCode(reserveSeats(request.getSeatHoldId(),
+                                                     request.getCustomerEmailAddress()));
+        reservation.setStatus(SUCCESS);
+      } catch (IllegalArgumentException e) {
+        reservation.setStatus(FAILURE_DUE_TO_INVALID_PARAMETERS);
+        reservation.setStatusDetails(e.getMessage());
+      }
+      reservations.add(reservation);
+    }
+
+    return reservations;
+  }
+
+
+  /**
+   * Stops any background work of the service.  Services without any
+   * background work do nothing.
+   */
+  default void destroy() throws Exception { }
+
 }
@@ -0,0 +1,65 @@
+package seats.services;
+
+
+/**
+ * <p>
+ * The outcome of rebuilding the seat state of a venue from the holds and
+ * reservations in a durable store.
+ * </p>
+ *
+ * <p>
+ * Conflicting seats were recorded by more than one hold or reservation;
+ * the first one restored keeps the seat.  Reservations are restored
+ * before holds.
+ * </p>
+ */
+public class VenueRecoveryReport {
+  // the number of seat holds whose seats were held again
+  private final int seatHoldCount;
+
+  // the number of reservations whose seats were reserved again
+  private final int reservationCount;
+
+  // the number of seats that were already taken when restored
+  private final int conflictingSeatCount;
+
+  // how long the recovery took
+  private final long recoveryTimeInMilliSeconds;
+
+
+  /**
+   * Creates a VenueRecoveryReport
+   */
+  public VenueRecoveryReport(int seatHoldCount,
+                             int reservationCount,
+                             int conflictingSeatCount,
+                             long recoveryTimeInMilliSeconds) {
+    this.seatHoldCount = seatHoldCount;
+    this.reservationCount = reservationCount;
+    this.conflictingSeatCount = conflictingSeatCount;
+    this.recoveryTimeInMilliSeconds = recoveryTimeInMilliSeconds;
+  }
+
+  /**
+   * Returns the number of seat holds whose seats were held again
+   */
+  public int getSeatHoldCount() { return seatHoldCount; }
+
+  /**
+   * Returns the number of reservations whose seats were reserved again
+   */
+  public int getReservationCount() { return reservationCount; }
+
+  /**
+   * Returns the number of seats that were already taken when restored
+   */
+  public int getConflictingSeatCount() { return conflictingSeatCount; }
+
+  /**
+   * Returns how long the recovery took
+   */
+  public long getRecoveryTimeInMilliSeconds() {
+    return recoveryTimeInMilliSeconds;
+  }
+
+}
@@ -5,51 +5,104 @@ import org.springframework.web.bind.annotation.RequestMapping;
 
 import org.springframework.beans.factory.annotation.Autowired;
 
+import org.springframework.http.HttpStatus;
+
 import org.springframework.web.bind.annotation.*;
 
-import javax.annotation.PostConstruct;
+import java.util.List;
+import java.util.Set;
 
-import seats.services.TicketService;
+import seats.services.EventRegistry;
+import seats.services.NoSuchEventException;
 
 import seats.model.SeatHold;
+import seats.model.SeatHoldRequest;
+import seats.model.SeatReservation;
+import seats.model.SeatReservationRequest;
 
 
 /**
  * <p>
- * ReST controller for the TicketService
+ * ReST controller for the TicketService of each event in the
+ * EventRegistry.  Every request names its event in the path.
  * </p>
  */
 @RestController
-@RequestMapping("/ticketservice")
+@RequestMapping("/ticketservice/events")
 public class TicketServiceController {
   @Autowired
-  private TicketService service;
+  private EventRegistry registry;
+
+  /**
+   * @see EventRegistry#getEventIds
+   */
+  @RequestMapping(value="")
+  public Set<String> events() {
+    return registry.getEventIds();
+  }
 
   /**
    * @see TicketService#numSeatsAvailable
    */
-  @RequestMapping(value="/numSeatsAvailable")
-  public int numSeatsAvailable() {
-    return service.numSeatsAvailable();
+  @RequestMapping(value="/{eventId}/numSeatsAvailable")
+  public int numSeatsAvailable(@PathVariable("eventId") String eventId)
+    throws NoSuchEventException {
+    return registry.getTicketService(eventId).numSeatsAvailable();
   }
 
   /**
    * @see TicketService#findAndHoldSeats
    */
-  @RequestMapping(value="/findAndHoldSeats", method=RequestMethod.POST)
-  public SeatHold findAndHoldSeats(@RequestParam("numSeats") int numSeats,
-                                   @RequestParam("customerEmail") String customerEmail) {
-    return service.findAndHoldSeats(numSeats, customerEmail);
+  @RequestMapping(value="/{eventId}/findAndHoldSeats", method=RequestMethod.POST)
+  public SeatHold findAndHoldSeats(@PathVariable("eventId") String eventId,
+                                   @RequestParam("numSeats") int numSeats,
+                                   @RequestParam("customerEmail") String customerEmail)
+    throws NoSuchEventException {
+    return registry.getTicketService(eventId).findAndHoldSeats(numSeats, customerEmail);
   }
 
-  
+
+  /**
+   * @see TicketService#findAndHoldSeats(List)
+   */
+  @RequestMapping(value="/{eventId}/findAndHoldSeatBatch", method=RequestMethod.POST)
+  public List<SeatHold> findAndHoldSeatBatch(@PathVariable("eventId") String eventId,
+                                             @RequestBody List<SeatHoldRequest> requests)
+    throws NoSuchEventException {
+    return registry.getTicketService(eventId).findAndHoldSeats(requests);
+  }
+
+
   /**
    * @see TicketService#reserveSeats
    */
-  @RequestMapping(value="/reserveSeats", method=RequestMethod.POST)
-  public String reserveSeats(@RequestParam("seatHoldId") int seatHoldId,
-                             @RequestParam("customerEmail") String customerEmail) {
-    return service.reserveSeats(seatHoldId, customerEmail);
+  @RequestMapping(value="/{eventId}/reserveSeats", method=RequestMethod.POST)
+  public String reserveSeats(@PathVariable("eventId") String eventId,
+                             @RequestParam("seatHoldId") int seatHoldId,
+                             @RequestParam("customerEmail") String customerEmail)
+    throws NoSuchEventException {
+    return registry.getTicketService(eventId).reserveSeats(seatHoldId, customerEmail);
   }
-  
+
+
+  /**
+   * @see TicketService#reserveSeats(List)
+   */
+  @RequestMapping(value="/{eventId}/reserveSeatBatch", method=RequestMethod.POST)
+  public List<SeatReservation> reserveSeatBatch(@PathVariable("eventId") String eventId,
+                                                @RequestBody List<SeatReservationRequest> requests)
+    throws NoSuchEventException {
+    return registry.getTicketService(eventId).reserveSeats(requests);
+  }
+
+
+  /**
+   * Answers requests for an event that is not registered with 404
+   */
+  @ExceptionHandler(NoSuchEventException.class)
+  @ResponseStatus(HttpStatus.NOT_FOUND)
+  public String noSuchEvent(NoSuchEventException e) {
+    return e.getMessage();
+  }
+
 }
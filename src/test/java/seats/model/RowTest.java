@@ -3,6 +3,8 @@ package seats.model;
 import org.junit.Test;
 import static org.junit.Assert.*;
 
+import java.util.List;
+
 /**
  * <p>
  * Unit tests for the Row class
@@ -46,4 +48,94 @@ public class RowTest {
     }
     
   }
+
+
+  @Test
+  public void testOpenSeatBitmap() {
+    // use more seats than fit in a single word of the bitmap
+    int seatCount = 40;
+    Row row = RowFactory.createRow(1, seatCount, 4);
+
+    // verify a new row is entirely open
+    assertEquals("incorrect open seat count", seatCount, row.getOpenSeatCount());
+    assertEquals("incorrect first open seat", 1, row.getFirstOpenSeatNumber());
+    assertTrue("seat not open", row.isSeatOpen(1));
+
+    // hold every seat in the first word and reserve one in the second
+    for (int seatNumber = 1; seatNumber <= 32; seatNumber++) {
+      row.getSeat(seatNumber).hold("customer@gmail.com");
+    }
+    row.getSeat(33).hold("customer@gmail.com");
+    row.getSeat(33).reserve();
+
+    assertEquals("incorrect open seat count", seatCount - 33, row.getOpenSeatCount());
+    assertEquals("incorrect first open seat", 34, row.getFirstOpenSeatNumber());
+    assertFalse("reserved seat is open", row.isSeatOpen(33));
+
+    List<Seat> openSeats = row.getOpenSeats();
+    assertEquals("incorrect open seats", seatCount - 33, openSeats.size());
+    assertEquals("incorrect open seat", 34, openSeats.get(0).getSeatNumber());
+    assertEquals("incorrect open seat", seatCount, openSeats.get(openSeats.size() - 1).getSeatNumber());
+
+    // verify unheld seats are open again
+    row.getSeat(2).unhold();
+    assertEquals("incorrect open seat count", seatCount - 32, row.getOpenSeatCount());
+    assertEquals("incorrect first open seat", 2, row.getFirstOpenSeatNumber());
+
+    // verify a full row has no open seats
+    for (Seat seat : row.getOpenSeats()) {
+      seat.hold("customer@gmail.com");
+    }
+    assertEquals("incorrect open seat count", 0, row.getOpenSeatCount());
+    assertEquals("incorrect first open seat", 0, row.getFirstOpenSeatNumber());
+  }
+
+
+  @Test
+  public void testOpenRuns() {
+    int seatCount = 40;
+    Row row = RowFactory.createRow(1, seatCount, 4);
+    assertEquals("incorrect longest run", seatCount, row.getLongestOpenRun());
+
+    // leave runs of 1-4, 6-19, 21-32 and 37-40
+    row.getSeat(5).hold("customer@gmail.com");
+    row.getSeat(20).hold("customer@gmail.com");
+    for (int seatNumber = 33; seatNumber <= 36; seatNumber++) {
+      row.getSeat(seatNumber).hold("customer@gmail.com");
+    }
+
+    assertEquals("incorrect longest run", 14, row.getLongestOpenRun());
+    assertEquals("incorrect run", 1, row.findOpenRun(4, 1));
+    assertEquals("incorrect run", 6, row.findOpenRun(10, 1));
+    assertEquals("incorrect run", 7, row.findOpenRun(13, 7));
+    assertEquals("incorrect run", 0, row.findOpenRun(14, 7));
+    assertEquals("incorrect run", 21, row.findOpenRun(4, 20));
+    assertEquals("incorrect run", 37, row.findOpenRun(4, 30));
+    assertEquals("incorrect run", 0, row.findOpenRun(5, 30));
+
+    assertEquals("incorrect run end", 19, row.getOpenRunEnd(6));
+    assertEquals("incorrect run end", 32, row.getOpenRunEnd(21));
+    assertEquals("incorrect run end", 40, row.getOpenRunEnd(37));
+    assertEquals("incorrect run end", 0, row.getOpenRunEnd(5));
+
+    // verify unheld seats join the runs around them
+    row.getSeat(20).unhold();
+    assertEquals("incorrect longest run", 27, row.getLongestOpenRun());
+    assertEquals("incorrect run end", 32, row.getOpenRunEnd(6));
+
+    // verify the seat past the end of a row of whole words does not exist
+    Row fullWordRow = RowFactory.createRow(2, 32, 4);
+    try {
+      fullWordRow.isSeatOpen(33);
+      fail("located a seat past the end of the row");
+    } catch (IllegalArgumentException e) {
+      // do nothing;  this is what we expect to happen
+    }
+    try {
+      row.getOpenRunEnd(seatCount + 1);
+      fail("located a run past the end of the row");
+    } catch (IllegalArgumentException e) {
+      // do nothing;  this is what we expect to happen
+    }
+  }
 }
@@ -0,0 +1,206 @@
+package seats.model;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import static org.junit.Assert.*;
+
+import java.nio.channels.FileChannel;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+
+
+/**
+ * <p>
+ * Unit tests for the SeatJournal class
+ * </p>
+ */
+public class SeatJournalTest {
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+
+  @Test
+  public void testRecover() throws Exception {
+    Path directory = folder.getRoot().toPath();
+    SeatJournal journal = new SeatJournal(directory);
+    Venue venue = journal.recover(() -> VenueFactory.createVenue(10, 20, 6));
+    venue.holdSeat(1, 1, "first@gmail.com");
+    venue.holdSeat(1, 2, "first@gmail.com");
+    venue.holdSeat(2, 5, "second@gmail.com");
+    venue.reserveSeat(2, 5, "second@gmail.com");
+    venue.unholdSeat(1, 2);
+    venue.holdSeat(1, 2, "third@gmail.com");
+    venue.reserveSeat(1, 2, "third@gmail.com");
+    venue.claimSeats(Arrays.asList(venue.getRow(3).getSeat(7), venue.getRow(3).getSeat(8)),
+                     "fourth@gmail.com");
+    venue.syncJournal();
+    journal.close();
+
+    // verify the reservations are rebuilt from the journal and the holds opened
+    Venue recovered = new SeatJournal(directory).recover(() -> VenueFactory.createVenue(10, 20, 6));
+    assertSameReservations(venue, recovered);
+    assertEquals("incorrect held count", 0, recovered.getHeldSeatCount());
+    assertEquals("incorrect reserved count", 2, recovered.getReservedSeatCount());
+    assertEquals("incorrect open count", 198, recovered.getOpenSeatCount());
+    assertEquals("incorrect customer", "third@gmail.com",
+                 recovered.getRow(1).getSeat(2).getCustomerEmailAddress());
+    assertTrue("hold recovered", recovered.getRow(3).getSeat(7).isOpen());
+  }
+
+  @Test
+  public void testSegmentRollingAndCompaction() throws Exception {
+    Path directory = folder.getRoot().toPath();
+    SeatJournal journal = new SeatJournal(directory);
+    journal.setSegmentSize(1024);
+    Venue venue = journal.recover(() -> VenueFactory.createVenue(10, 20, 6));
+    for (int rowNumber = 1; rowNumber <= 10; rowNumber++) {
+      for (int seatNumber = 1; seatNumber <= 20; seatNumber += 2) {
+        venue.holdSeat(rowNumber, seatNumber, "first@gmail.com");
+        venue.reserveSeat(rowNumber, seatNumber, "first@gmail.com");
+      }
+    }
+
+    // verify full segments were rolled
+    assertTrue("segments not rolled", listFiles(directory, SeatJournal.SEGMENT_SUFFIX).size() > 1);
+
+    // verify compaction leaves a snapshot and only the segments after it
+    journal.compact();
+    List<Path> snapshots = listFiles(directory, SeatJournal.SNAPSHOT_SUFFIX);
+    assertEquals("incorrect snapshot count", 1, snapshots.size());
+    long snapshotIndex = indexOf(snapshots.get(0), SeatJournal.SNAPSHOT_PREFIX, SeatJournal.SNAPSHOT_SUFFIX);
+    for (Path segment : listFiles(directory, SeatJournal.SEGMENT_SUFFIX)) {
+      assertTrue("replaced segment kept",
+                 indexOf(segment, SeatJournal.SEGMENT_PREFIX, SeatJournal.SEGMENT_SUFFIX) >= snapshotIndex);
+    }
+
+    // verify changes after the snapshot are replayed on top of it
+    venue.holdSeat(5, 6, "second@gmail.com");
+    venue.reserveSeat(5, 6, "second@gmail.com");
+    venue.holdSeat(6, 8, "third@gmail.com");
+    journal.close();
+
+    Venue recovered = new SeatJournal(directory).recover(() -> VenueFactory.createVenue(10, 20, 6));
+    assertSameReservations(venue, recovered);
+    assertEquals("incorrect held count", 0, recovered.getHeldSeatCount());
+    assertEquals("incorrect reserved count", 101, recovered.getReservedSeatCount());
+  }
+
+  @Test
+  public void testTornRecord() throws Exception {
+    Path directory = folder.getRoot().toPath();
+    SeatJournal journal = new SeatJournal(directory);
+    Venue venue = journal.recover(() -> VenueFactory.createVenue(5, 10, 4));
+    reserveSeat(venue, 1, 1, "first@gmail.com");
+    reserveSeat(venue, 1, 2, "second@gmail.com");
+    journal.close();
+
+    // corrupt the customer of the hold of the second seat
+    tearThirdRecord(listFiles(directory, SeatJournal.SEGMENT_SUFFIX).get(0));
+
+    // verify replay stops before the torn record
+    Venue recovered = new SeatJournal(directory).recover(() -> VenueFactory.createVenue(5, 10, 4));
+    assertTrue("intact record not replayed", recovered.getRow(1).getSeat(1).isReserved());
+    assertTrue("torn record replayed", recovered.getRow(1).getSeat(2).isOpen());
+    assertEquals("incorrect reserved count", 1, recovered.getReservedSeatCount());
+  }
+
+  @Test
+  public void testAppendAfterTornRecord() throws Exception {
+    Path directory = folder.getRoot().toPath();
+    SeatJournal journal = new SeatJournal(directory);
+    Venue venue = journal.recover(() -> VenueFactory.createVenue(5, 10, 4));
+    reserveSeat(venue, 1, 1, "first@gmail.com");
+    reserveSeat(venue, 1, 2, "second@gmail.com");
+    journal.close();
+
+    // tear the hold of the second seat in the first segment
+    tearThirdRecord(listFiles(directory, SeatJournal.SEGMENT_SUFFIX).get(0));
+
+    // recover past the torn record and keep journaling in a new segment
+    journal = new SeatJournal(directory);
+    venue = journal.recover(() -> VenueFactory.createVenue(5, 10, 4));
+    reserveSeat(venue, 2, 1, "third@gmail.com");
+    venue.syncJournal();
+    journal.close();
+
+    // verify the changes made after the torn record survive recovery
+    Venue recovered = new SeatJournal(directory).recover(() -> VenueFactory.createVenue(5, 10, 4));
+    assertSameReservations(venue, recovered);
+    assertTrue("appended record not replayed", recovered.getRow(2).getSeat(1).isReserved());
+    assertEquals("incorrect reserved count", 2, recovered.getReservedSeatCount());
+  }
+
+  @Test
+  public void testInvalidSegmentSize() {
+    try {
+      new SeatJournal(folder.getRoot().toPath()).setSegmentSize(16);
+      fail("accepted a segment too small for a record");
+    } catch (IllegalArgumentException e) {
+      // do nothing;  this is what we expect to happen
+    }
+  }
+
+
+  /**
+   * Holds and reserves a seat for the customer provided
+   */
+  private void reserveSeat(Venue venue, int rowNumber, int seatNumber, String customerEmailAddress)
+    throws Exception {
+    venue.holdSeat(rowNumber, seatNumber, customerEmailAddress);
+    venue.reserveSeat(rowNumber, seatNumber, customerEmailAddress);
+  }
+
+  /**
+   * Corrupts the customer of the third record of the segment provided,
+   * whose first two records have the customer "first@gmail.com"
+   */
+  private void tearThirdRecord(Path segment) throws Exception {
+    int thirdRecord = SeatJournal.SEGMENT_HEADER_SIZE
+      + 2 * (SeatJournal.RECORD_OVERHEAD + "first@gmail.com".length());
+    try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.WRITE)) {
+      channel.write(ByteBuffer.wrap(new byte[] { 'X' }), thirdRecord + 7);
+    }
+  }
+
+  /**
+   * Asserts the seats reserved in the expected venue are reserved by the
+   * same customer in the actual venue, and every other seat is open
+   */
+  private void assertSameReservations(Venue expected, Venue actual) {
+    for (Row row : expected.getRows()) {
+      for (Seat seat : row.getSeats()) {
+        Seat actualSeat = actual.getRow(row.getRowNumber()).getSeat(seat.getSeatNumber());
+        assertEquals("incorrect reserved flag", seat.isReserved(), actualSeat.isReserved());
+        if (seat.isReserved()) {
+          assertEquals("incorrect customer", seat.getCustomerEmailAddress(), actualSeat.getCustomerEmailAddress());
+        } else {
+          assertTrue("seat not open", actualSeat.isOpen());
+        }
+      }
+    }
+  }
+
+  /**
+   * Returns the index in the name of the segment or snapshot provided
+   */
+  private long indexOf(Path path, String prefix, String suffix) {
+    String name = path.getFileName().toString();
+    return Long.parseLong(name.substring(prefix.length(), name.length() - suffix.length()));
+  }
+
+  /**
+   * Returns the files in the directory with the suffix provided, in
+   * name order
+   */
+  private List<Path> listFiles(Path directory, String suffix) throws Exception {
+    return Files.list(directory)
+      .filter(path -> path.getFileName().toString().endsWith(suffix))
+      .sorted()
+      .collect(Collectors.toList());
+  }
+}
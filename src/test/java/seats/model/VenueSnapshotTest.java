@@ -0,0 +1,98 @@
+package seats.model;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import static org.junit.Assert.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+
+/**
+ * <p>
+ * Unit tests for the VenueSnapshot class
+ * </p>
+ */
+public class VenueSnapshotTest {
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+
+  @Test
+  public void testWriteAndRead() throws Exception {
+    Venue venue = VenueFactory.createVenue(10, 20, 6);
+    venue.holdSeat(1, 1, "first@gmail.com");
+    venue.holdSeat(4, 10, "second@gmail.com");
+    venue.holdSeat(4, 11, "first@gmail.com");
+    venue.reserveSeat(4, 11, "first@gmail.com");
+
+    Path path = folder.getRoot().toPath().resolve("venue.snapshot");
+    VenueSnapshot.write(venue, path);
+    Venue restored = VenueSnapshot.read(path);
+
+    // verify the layout, flags, states, and customers survive
+    assertEquals("incorrect row count", venue.getRowCount(), restored.getRowCount());
+    for (Row row : venue.getRows()) {
+      Row restoredRow = restored.getRow(row.getRowNumber());
+      assertEquals("incorrect seat count", row.getSeatCount(), restoredRow.getSeatCount());
+      for (Seat seat : row.getSeats()) {
+        Seat restoredSeat = restoredRow.getSeat(seat.getSeatNumber());
+        assertEquals("incorrect row number", seat.getRowNumber(), restoredSeat.getRowNumber());
+        assertEquals("incorrect aisle flag", seat.isAisleSeat(), restoredSeat.isAisleSeat());
+        assertEquals("incorrect center row flag", seat.isCenterRow(), restoredSeat.isCenterRow());
+        assertEquals("incorrect center seat flag", seat.isCenterSeat(), restoredSeat.isCenterSeat());
+        assertEquals("incorrect held flag", seat.isHeld(), restoredSeat.isHeld());
+        assertEquals("incorrect reserved flag", seat.isReserved(), restoredSeat.isReserved());
+        assertEquals("incorrect customer", seat.getCustomerEmailAddress(), restoredSeat.getCustomerEmailAddress());
+      }
+    }
+
+    // verify the counts and indexes were rebuilt
+    assertEquals("incorrect open count", 197, restored.getOpenSeatCount());
+    assertEquals("incorrect held count", 2, restored.getHeldSeatCount());
+    assertEquals("incorrect reserved count", 1, restored.getReservedSeatCount());
+    assertEquals("incorrect longest run", 9, restored.getRow(4).getLongestOpenRun());
+
+    // verify the restored venue behaves like any other
+    restored.unholdSeat(1, 1);
+    assertEquals("incorrect open count", 198, restored.getOpenSeatCount());
+  }
+
+  @Test
+  public void testReadInvalidSnapshot() throws Exception {
+    Path path = folder.getRoot().toPath().resolve("venue.snapshot");
+    VenueSnapshot.write(VenueFactory.createVenue(2, 2, 1), path);
+
+    // verify a truncated snapshot is rejected
+    byte[] bytes = Files.readAllBytes(path);
+    Files.write(path, Arrays.copyOf(bytes, bytes.length - 1));
+    try {
+      VenueSnapshot.read(path);
+      fail("read a truncated snapshot");
+    } catch (IOException e) {
+      // do nothing;  this is what we expect to happen
+    }
+
+    // verify a snapshot in an unknown version is rejected
+    bytes[5] = 99;
+    Files.write(path, bytes);
+    try {
+      VenueSnapshot.read(path);
+      fail("read an unsupported version");
+    } catch (IOException e) {
+      // do nothing;  this is what we expect to happen
+    }
+    // verify a negative customer count is rejected
+    bytes[5] = 1;
+    Arrays.fill(bytes, 8, 12, (byte) 0xFF);
+    Files.write(path, bytes);
+    try {
+      VenueSnapshot.read(path);
+      fail("read a negative count");
+    } catch (IOException e) {
+      // do nothing;  this is what we expect to happen
+    }
+  }
+}
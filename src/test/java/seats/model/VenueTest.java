@@ -4,6 +4,20 @@ import org.junit.Test;
 import static org.junit.Assert.*;
 
 import java.util.List;
+import java.util.ArrayList;
+import java.util.Arrays;
+
+import static org.mockito.Mockito.*;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import com.mongodb.BasicDBList;
+import com.mongodb.BasicDBObject;
+
+import org.springframework.data.mongodb.core.convert.DbRefResolver;
+import org.springframework.data.mongodb.core.convert.MappingMongoConverter;
+import org.springframework.data.mongodb.core.mapping.MongoMappingContext;
 
 
 /**
@@ -500,4 +514,268 @@ public class VenueTest {
     actual = venue.getSeatCount();
     assertEquals("incorrect number of seats", 20, actual);
   }
+
+
+  @Test
+  public void testSeatStateCounts() {
+    Venue venue = VenueFactory.createVenue(10, 10, 4);
+    String customerEmailAddress = "customer@gmail.com";
+
+    // verify a new venue is entirely open
+    assertEquals("incorrect open count", 100, venue.getOpenSeatCount());
+    assertEquals("incorrect held count", 0, venue.getHeldSeatCount());
+    assertEquals("incorrect reserved count", 0, venue.getReservedSeatCount());
+
+    try {
+      // verify holds through the venue and directly on seats are counted
+      venue.holdSeat(1, 1, customerEmailAddress);
+      venue.holdSeat(1, 2, customerEmailAddress);
+      venue.getRow(2).getSeat(1).hold(customerEmailAddress);
+      assertEquals("incorrect open count", 97, venue.getOpenSeatCount());
+      assertEquals("incorrect held count", 3, venue.getHeldSeatCount());
+      assertEquals("incorrect row open count", 8, venue.getRow(1).getOpenSeatCount());
+
+      // verify reservations move seats from held to reserved
+      venue.reserveSeat(1, 1, customerEmailAddress);
+      assertEquals("incorrect held count", 2, venue.getHeldSeatCount());
+      assertEquals("incorrect reserved count", 1, venue.getReservedSeatCount());
+
+      // verify unheld seats are open again
+      venue.unholdSeat(1, 2);
+      assertEquals("incorrect open count", 98, venue.getOpenSeatCount());
+      assertEquals("incorrect held count", 1, venue.getHeldSeatCount());
+      assertEquals("counts disagree with seats", venue.getOpenSeats().size(), venue.getOpenSeatCount());
+    } catch (SeatUnavailableException e) {
+      fail("failed to hold or reserve seat");
+    } catch (SeatNotHeldException e) {
+      fail("failed to unhold seat");
+    }
+
+    // verify rows added after seats are held are counted
+    Venue assembled = new Venue();
+    Row row = RowFactory.createRow(1, 10, 4);
+    row.getSeat(1).hold(customerEmailAddress);
+    assembled.addRow(row);
+    assertEquals("incorrect open count", 9, assembled.getOpenSeatCount());
+    assertEquals("incorrect held count", 1, assembled.getHeldSeatCount());
+  }
+
+
+  @Test
+  public void testHoldSeats() {
+    Venue venue = VenueFactory.createVenue(10, 10, 4);
+    String customerEmailAddress = "customer@gmail.com";
+
+    // choose seats that span rows, deliberately out of row order
+    List<Seat> seats = new ArrayList<>();
+    seats.add(venue.getRow(3).getSeat(1));
+    seats.add(venue.getRow(1).getSeat(1));
+    seats.add(venue.getRow(2).getSeat(1));
+
+    // verify all of the seats are held
+    try {
+      List<Seat> heldSeats = venue.holdSeats(seats, customerEmailAddress);
+      assertEquals("incorrect seat count", 3, heldSeats.size());
+      for (Seat seat : heldSeats) {
+        assertTrue("seat not held", seat.isHeld());
+        assertEquals("email address not set", customerEmailAddress, seat.getCustomerEmailAddress());
+      }
+    } catch (SeatUnavailableException e) {
+      fail("failed to hold seats");
+    }
+
+    // verify none of the seats are held if any of them is unavailable
+    seats.clear();
+    seats.add(venue.getRow(4).getSeat(1));
+    seats.add(venue.getRow(1).getSeat(1));
+    try {
+      venue.holdSeats(seats, "someoneElse@gmail.com");
+      fail("held unavailable seat");
+    } catch (SeatUnavailableException e) {
+      // do nothing; this is what we expect to happen
+    }
+    assertTrue("seat held", venue.getRow(4).getSeat(1).isOpen());
+    assertEquals("incorrect open count", 97, venue.getOpenSeatCount());
+  }
+
+
+  @Test
+  public void testClaimSeats() {
+    Venue venue = VenueFactory.createVenue(10, 10, 4);
+
+    // claim a seat directly so the venue sees a conflict
+    Seat takenSeat = venue.getRow(1).getSeat(2);
+    assertTrue("failed to hold open seat", takenSeat.hold("someoneElse@gmail.com"));
+    assertFalse("held seat twice", takenSeat.hold("customer@gmail.com"));
+
+    List<Seat> seats = new ArrayList<>();
+    seats.add(venue.getRow(1).getSeat(1));
+    seats.add(takenSeat);
+    seats.add(venue.getRow(1).getSeat(3));
+
+    // verify the open seats are claimed and the conflict is reported
+    List<Seat> conflictingSeats = venue.claimSeats(seats, "customer@gmail.com");
+    assertEquals("incorrect conflicts", 1, conflictingSeats.size());
+    assertSame("incorrect conflict", takenSeat, conflictingSeats.get(0));
+    assertEquals("conflicting seat changed hands", "someoneElse@gmail.com", takenSeat.getCustomerEmailAddress());
+    assertEquals("seat not claimed", "customer@gmail.com", venue.getRow(1).getSeat(3).getCustomerEmailAddress());
+    assertEquals("incorrect open count", 97, venue.getOpenSeatCount());
+
+    // verify only held seats can be reserved or unheld
+    Seat openSeat = venue.getRow(2).getSeat(1);
+    assertFalse("reserved open seat", openSeat.reserve());
+    assertFalse("unheld open seat", openSeat.unhold());
+    assertTrue("failed to reserve held seat", takenSeat.reserve());
+    assertFalse("unheld reserved seat", takenSeat.unhold());
+  }
+
+
+  @Test
+  public void testReleaseSeatHolds() {
+    Venue venue = VenueFactory.createVenue(10, 10, 4);
+
+    // count the batches the listeners receive
+    final List<List<Seat>> batches = new ArrayList<>();
+    venue.addSeatStateListener(new SeatStateListener() {
+        public void seatHeld(Seat seat) { }
+        public void seatUnheld(Seat seat) { fail("notified one seat at a time"); }
+        public void seatsUnheld(List<Seat> seats) { batches.add(seats); }
+        public void seatReserved(Seat seat) { }
+      });
+
+    // hold seats in two rows across two holds and reserve one of them
+    List<SeatHold> seatHolds = new ArrayList<>();
+    for (int rowNumber = 1; rowNumber <= 2; rowNumber++) {
+      List<Seat> seats = new ArrayList<>();
+      for (int seatNumber = 1; seatNumber <= 3; seatNumber++) {
+        Seat seat = venue.getRow(rowNumber).getSeat(seatNumber);
+        assertTrue("failed to hold open seat", seat.hold("customer@gmail.com"));
+        seats.add(seat);
+      }
+
+      SeatHold seatHold = new SeatHold();
+      seatHold.setSeatsHeld(seats);
+      seatHolds.add(seatHold);
+    }
+    Seat reservedSeat = venue.getRow(2).getSeat(2);
+    assertTrue("failed to reserve held seat", reservedSeat.reserve());
+    assertEquals("incorrect open count", 94, venue.getOpenSeatCount());
+
+    // verify the held seats are released and the reserved one is reported
+    List<Seat> notHeldSeats = venue.releaseSeatHolds(seatHolds);
+    assertEquals("incorrect seats not held", 1, notHeldSeats.size());
+    assertSame("incorrect seat not held", reservedSeat, notHeldSeats.get(0));
+    assertEquals("incorrect batches", 1, batches.size());
+    assertEquals("incorrect batch size", 5, batches.get(0).size());
+
+    assertEquals("incorrect open count", 99, venue.getOpenSeatCount());
+    assertEquals("incorrect held count", 0, venue.getHeldSeatCount());
+    assertEquals("incorrect reserved count", 1, venue.getReservedSeatCount());
+    assertEquals("incorrect row open count", 9, venue.getRow(2).getOpenSeatCount());
+    assertEquals("incorrect longest run", 10, venue.getRow(1).getLongestOpenRun());
+    assertNull("email address not cleared", venue.getRow(1).getSeat(1).getCustomerEmailAddress());
+  }
+
+
+  @Test
+  public void testPackedSeatHold() {
+    Venue venue = VenueFactory.createVenue(10, 10, 4);
+
+    // hold seats out of order and verify they are packed in that order
+    List<Seat> seats = new ArrayList<>();
+    seats.add(venue.getRow(3).getSeat(7));
+    seats.add(venue.getRow(1).getSeat(10));
+    SeatHold seatHold = new SeatHold();
+    seatHold.setSeatsHeld(seats);
+
+    int[] heldSeats = seatHold.getHeldSeats();
+    assertEquals("incorrect packed seat count", 2, heldSeats.length);
+    assertEquals("incorrect row number", 3, SeatHold.unpackRowNumber(heldSeats[0]));
+    assertEquals("incorrect seat number", 7, SeatHold.unpackSeatNumber(heldSeats[0]));
+    assertTrue("packed seats not ordered by row", heldSeats[1] < heldSeats[0]);
+
+    // verify the live seats are resolved from the venue
+    List<Seat> resolvedSeats = seatHold.getSeatsHeld(venue);
+    assertSame("incorrect seat resolved", seats.get(0), resolvedSeats.get(0));
+    assertSame("incorrect seat resolved", seats.get(1), resolvedSeats.get(1));
+
+    // verify seats that cannot be packed are rejected
+    try {
+      SeatHold.packSeat(SeatHold.MAXIMUM_PACKED_ROW_NUMBER + 1, 1);
+      fail("packed a row number that is too large");
+    } catch (IllegalArgumentException e) {
+      // do nothing;  this is what we expect to happen
+    }
+    try {
+      SeatHold.packSeat(1, 0);
+      fail("packed a seat number of 0");
+    } catch (IllegalArgumentException e) {
+      // do nothing;  this is what we expect to happen
+    }
+  }
+
+  @Test
+  public void testSerializeSeatHold() throws Exception {
+    Venue venue = VenueFactory.createVenue(10, 10, 4);
+    SeatHold seatHold = new SeatHold();
+    seatHold.setSeatsHeld(Arrays.asList(venue.getRow(3).getSeat(7)));
+
+    // verify JSON carries row and seat numbers rather than packed seats
+    JsonNode json = new ObjectMapper().valueToTree(seatHold);
+    assertFalse("packed seats serialized", json.has("heldSeats"));
+    assertEquals("incorrect seat count", 1, json.get("seatsHeld").size());
+    assertEquals("incorrect row number", 3, json.get("seatsHeld").get(0).get("rowNumber").asInt());
+    assertEquals("incorrect seat number", 7, json.get("seatsHeld").get(0).get("seatNumber").asInt());
+
+    // verify a hold stored before seats were packed is read with its seats
+    MappingMongoConverter converter =
+      new MappingMongoConverter(mock(DbRefResolver.class), new MongoMappingContext());
+    converter.afterPropertiesSet();
+    BasicDBList seatsHeld = new BasicDBList();
+    seatsHeld.add(new BasicDBObject("rowNumber", 2).append("seatNumber", 4));
+    seatsHeld.add(new BasicDBObject("rowNumber", 5).append("seatNumber", 1));
+    BasicDBObject document = new BasicDBObject("_id", 1)
+      .append("customerEmailAddress", "customer@gmail.com")
+      .append("seatsHeld", seatsHeld);
+    SeatHold storedSeatHold = converter.read(SeatHold.class, document);
+    int[] heldSeats = storedSeatHold.getHeldSeats();
+    assertEquals("legacy seats not read", 2, heldSeats.length);
+    assertEquals("incorrect packed seat", SeatHold.packSeat(2, 4), heldSeats[0]);
+    assertEquals("incorrect packed seat", SeatHold.packSeat(5, 1), heldSeats[1]);
+  }
+
+  @Test
+  public void testRestorePackedSeats() {
+    Venue venue = VenueFactory.createVenue(10, 10, 4);
+    assertTrue("failed to hold open seat", venue.getRow(2).getSeat(1).hold("other@gmail.com"));
+
+    // restore seats across two rows, one of which is already taken
+    int[] packedSeats = new int[] { SeatHold.packSeat(2, 1),
+                                    SeatHold.packSeat(2, 2),
+                                    SeatHold.packSeat(1, 5) };
+    List<Seat> notOpenSeats = venue.restorePackedSeats(packedSeats, "customer@gmail.com", true);
+    assertEquals("incorrect seats not open", 1, notOpenSeats.size());
+    assertSame("incorrect seat not open", venue.getRow(2).getSeat(1), notOpenSeats.get(0));
+
+    // verify the restored seats are reserved and counted
+    Seat restoredSeat = venue.getRow(1).getSeat(5);
+    assertTrue("seat not reserved", restoredSeat.isReserved());
+    assertEquals("incorrect email address", "customer@gmail.com", restoredSeat.getCustomerEmailAddress());
+    assertEquals("incorrect reserved count", 2, venue.getReservedSeatCount());
+    assertEquals("incorrect held count", 1, venue.getHeldSeatCount());
+    assertEquals("incorrect open count", 97, venue.getOpenSeatCount());
+    assertEquals("incorrect row open count", 8, venue.getRow(2).getOpenSeatCount());
+    assertEquals("incorrect longest run", 5, venue.getRow(1).getLongestOpenRun());
+
+    // verify restoring a reservation the customer already has is not a conflict
+    packedSeats = new int[] { SeatHold.packSeat(1, 5) };
+    assertTrue("own reservation reported", venue.restorePackedSeats(packedSeats, "customer@gmail.com", true).isEmpty());
+    packedSeats = new int[] { SeatHold.packSeat(1, 5) };
+    assertEquals("other reservation not reported", 1,
+                 venue.restorePackedSeats(packedSeats, "other@gmail.com", true).size());
+    packedSeats = new int[] { SeatHold.packSeat(1, 5) };
+    assertEquals("hold of a reserved seat not reported", 1,
+                 venue.restorePackedSeats(packedSeats, "customer@gmail.com", false).size());
+    assertEquals("incorrect reserved count", 2, venue.getReservedSeatCount());
+  }
 }
@@ -0,0 +1,146 @@
+package seats.services;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+import java.util.Arrays;
+import java.util.List;
+
+import seats.model.Venue;
+import seats.model.VenueFactory;
+import seats.model.SeatHold;
+import seats.model.SeatHoldRequest;
+import seats.model.RowPrioritizedSeatComparator;
+
+import static seats.model.SeatHoldRequestStatusEnum.*;
+
+import static org.mockito.Mockito.*;
+
+
+/**
+ * <p>
+ * Unit tests for the CoalescingTicketService class
+ * </p>
+ */
+public class CoalescingTicketServiceTest {
+  private CoalescingTicketService createTicketService(Venue venue) {
+    GenericTicketService delegate = new GenericTicketService();
+    delegate.setVenue(venue);
+
+    ComparatorBasedSeatLocatorService seatLocatorService = new ComparatorBasedSeatLocatorService();
+    seatLocatorService.setVenue(venue);
+    seatLocatorService.setComparator(new RowPrioritizedSeatComparator());
+    delegate.setSeatLocatorService(seatLocatorService);
+
+    SeatHoldingService seatHoldingService = new ExpiringTransientSeatHoldingService();
+    seatHoldingService.setVenue(venue);
+    delegate.setSeatHoldingService(seatHoldingService);
+
+    CoalescingTicketService ticketService = new CoalescingTicketService();
+    ticketService.setDelegate(delegate);
+    ticketService.setMaxBatchSize(16);
+
+    return ticketService;
+  }
+
+  @Test
+  public void testConcurrentFindAndHoldSeats() throws Exception {
+    Venue venue = VenueFactory.createVenue(10, 10, 4);
+    CoalescingTicketService service = createTicketService(venue);
+    service.init();
+
+    // have many customers compete for the seats in the venue at once
+    int customerCount = 40;
+    List<SeatHold> seatHolds = ConcurrentHoldAssertions.assertConcurrentHolds(service, venue, customerCount, 2);
+    service.destroy();
+
+    // verify every request was placed
+    assertEquals("incorrect successful hold count", customerCount, seatHolds.size());
+
+    // verify the metrics account for every request
+    AllocationQueueMetrics metrics = service.getMetrics();
+    assertEquals("incorrect queue depth", 0, metrics.getQueueDepth());
+    assertEquals("incorrect request count", customerCount, metrics.getRequestCount());
+    assertTrue("incorrect batch count", (metrics.getBatchCount() > 0) && (metrics.getBatchCount() <= customerCount));
+    assertTrue("batch too large", metrics.getLargestBatchSize() <= 16);
+    assertTrue("incorrect max queue depth", metrics.getMaxQueueDepth() >= 1);
+  }
+
+  @Test
+  public void testStopped() throws Exception {
+    CoalescingTicketService service = createTicketService(VenueFactory.createVenue(10, 10, 4));
+    try {
+      service.findAndHoldSeats(1, "customer@gmail.com");
+      fail("placed a request without an allocator");
+    } catch (IllegalStateException e) {
+      // do nothing;  this is what we expect to happen
+    }
+
+    service.init();
+    assertEquals("incorrect status", SUCCESS, service.findAndHoldSeats(1, "customer@gmail.com").getStatus());
+    service.destroy();
+
+    try {
+      service.findAndHoldSeats(1, "customer@gmail.com");
+      fail("placed a request after the allocator stopped");
+    } catch (IllegalStateException e) {
+      // do nothing;  this is what we expect to happen
+    }
+
+    // verify a batch reports every request rather than throwing
+    List<SeatHold> seatHolds = service.findAndHoldSeats(Arrays.asList(new SeatHoldRequest(1, "first@gmail.com"),
+                                                                      new SeatHoldRequest(1, "second@gmail.com")));
+    assertEquals("incorrect result count", 2, seatHolds.size());
+    for (SeatHold seatHold : seatHolds) {
+      assertEquals("incorrect status", FAILURE_DUE_TO_UNEXPECTED_ERROR, seatHold.getStatus());
+    }
+  }
+
+  @Test
+  @SuppressWarnings("unchecked")
+  public void testFailedBatch() throws Exception {
+    Venue venue = VenueFactory.createVenue(10, 10, 4);
+    CoalescingTicketService service = createTicketService(venue);
+    TicketService delegate = service.getDelegate();
+
+    // a delegate that fails its first batch with an exception and its
+    // second with an error
+    TicketService failingDelegate = mock(TicketService.class);
+    when(failingDelegate.findAndHoldSeats(anyListOf(SeatHoldRequest.class)))
+      .thenThrow(new IllegalStateException("unable to place batch"))
+      .thenThrow(new StackOverflowError())
+      .thenAnswer(invocation -> delegate.findAndHoldSeats((List<SeatHoldRequest>) invocation.getArguments()[0]));
+    service.setDelegate(failingDelegate);
+    service.init();
+
+    try {
+      // verify the exception is reported in the caller's hold
+      SeatHold seatHold = service.findAndHoldSeats(1, "customer@gmail.com");
+      assertEquals("incorrect status", FAILURE_DUE_TO_UNEXPECTED_ERROR, seatHold.getStatus());
+      assertEquals("incorrect status details", "unable to place batch", seatHold.getStatusDetails());
+
+      // verify the caller sees the error rather than waiting forever
+      try {
+        service.findAndHoldSeats(1, "customer@gmail.com");
+        fail("placed a request of a failed batch");
+      } catch (StackOverflowError e) {
+        // do nothing;  this is what we expect to happen
+      }
+
+      // verify the allocator survives to place the next batch
+      assertEquals("incorrect status", SUCCESS, service.findAndHoldSeats(1, "customer@gmail.com").getStatus());
+    } finally {
+      service.destroy();
+    }
+  }
+
+  @Test
+  public void testInvalidMaxBatchSize() {
+    try {
+      new CoalescingTicketService().setMaxBatchSize(0);
+      fail("accepted an empty batch size");
+    } catch (IllegalArgumentException e) {
+      // do nothing;  this is what we expect to happen
+    }
+  }
+}
@@ -9,7 +9,10 @@ import seats.model.Venue;
 import seats.model.VenueFactory;
 import seats.model.Seat;
 import seats.model.SeatUnavailableException;
+import seats.model.SeatNotHeldException;
 import seats.model.RowPrioritizedSeatComparator;
+import seats.model.ComprehensiveSeatComparator;
+import seats.model.SeatScores;
 
 
 /**
@@ -113,4 +116,159 @@ public class ComparatorBasedSeatLocatorServiceTest {
     }
     
   }
+
+
+  @Test
+  public void testLocateIndexedSeats() {
+    Venue venue = VenueFactory.createVenue(10, 10, 4);
+
+    ComparatorBasedSeatLocatorService sortingService = new ComparatorBasedSeatLocatorService();
+    sortingService.setVenue(venue);
+    sortingService.setComparator(new ComprehensiveSeatComparator());
+
+    ComparatorBasedSeatLocatorService indexedService = new ComparatorBasedSeatLocatorService();
+    indexedService.setVenue(venue);
+    indexedService.setComparator(new ComprehensiveSeatComparator());
+    indexedService.setIndexed(true);
+
+    try {
+      // verify the index produces the same seats as sorting
+      List<Seat> expected = sortingService.locateSeats(15);
+      List<Seat> actual = indexedService.locateSeats(15);
+      assertEquals("index differs from sort", expected, actual);
+
+      // hold the best seats through the venue and directly on the seat
+      for (int i = 0; i < 5; i++) {
+        Seat seat = expected.get(i);
+        venue.holdSeat(seat.getRowNumber(), seat.getSeatNumber(), "customer@gmail.com");
+      }
+      expected.get(5).hold("customer@gmail.com");
+
+      // verify held seats are no longer located
+      expected = sortingService.locateSeats(15);
+      actual = indexedService.locateSeats(15);
+      assertEquals("index differs from sort after hold", expected, actual);
+
+      // verify unheld seats are located again
+      Seat bestSeat = sortingService.locateSeats(1).get(0);
+      venue.unholdSeat(1, 5);
+      expected = sortingService.locateSeats(15);
+      actual = indexedService.locateSeats(15);
+      assertEquals("index differs from sort after unhold", expected, actual);
+      assertNotEquals("unheld seat not located", bestSeat, actual.get(0));
+
+      // verify we can't locate more seats than are available
+      indexedService.locateSeats(1000);
+      fail("located 1000 seats");
+    } catch (InsufficientAvailableSeatsException e) {
+      // do nothing;  this is what we expect to happen
+    } catch (SeatUnavailableException e) {
+      fail("failed to hold seat");
+    } catch (SeatNotHeldException e) {
+      fail("failed to unhold seat");
+    }
+  }
+
+
+  @Test
+  public void testLocateScoredSeats() {
+    Venue venue = VenueFactory.createVenue(10, 10, 4);
+    ComprehensiveSeatComparator comparator = new ComprehensiveSeatComparator();
+
+    // the scores are cached per seat ordinal in row and seat order
+    SeatScores scores = new SeatScores(venue, comparator);
+    Seat seat = venue.getRow(3).getSeat(5);
+    assertEquals("incorrect seat count", 100, scores.getSeatCount());
+    assertEquals("incorrect ordinal", 24, scores.getOrdinal(seat));
+    assertSame("incorrect seat", seat, scores.getSeat(24));
+    assertEquals("incorrect score", comparator.scoreSeat(seat), scores.getScore(seat));
+
+    // a plain comparator is sorted on; a static score comparator is not
+    ComparatorBasedSeatLocatorService sortingService = new ComparatorBasedSeatLocatorService();
+    sortingService.setVenue(venue);
+    sortingService.setComparator((seat1, seat2) -> comparator.compare(seat1, seat2));
+
+    ComparatorBasedSeatLocatorService scoringService = new ComparatorBasedSeatLocatorService();
+    scoringService.setVenue(venue);
+    scoringService.setComparator(comparator);
+
+    try {
+      List<Seat> expected = sortingService.locateSeats(30);
+      assertEquals("scored seats differ from sort", expected, scoringService.locateSeats(30));
+
+      // verify held seats are skipped
+      venue.claimSeats(expected.subList(0, 10), "customer@gmail.com");
+      expected = sortingService.locateSeats(30);
+      assertEquals("scored seats differ from sort after hold", expected, scoringService.locateSeats(30));
+
+      // verify the index orders seats by the cached scores as well
+      scoringService.setIndexed(true);
+      assertEquals("indexed seats differ from sort", expected, scoringService.locateSeats(30));
+    } catch (InsufficientAvailableSeatsException e) {
+      fail("failed to locate seats");
+    }
+  }
+
+
+  @Test
+  public void testPartialSelection() {
+    Venue venue = VenueFactory.createVenue(10, 10, 4);
+    ComprehensiveSeatComparator comparator = new ComprehensiveSeatComparator();
+
+    ComparatorBasedSeatLocatorService sortingService = new ComparatorBasedSeatLocatorService();
+    sortingService.setVenue(venue);
+    sortingService.setComparator((seat1, seat2) -> comparator.compare(seat1, seat2));
+
+    // select with both the comparator and the cached scores
+    ComparatorBasedSeatLocatorService selectingService = new ComparatorBasedSeatLocatorService();
+    selectingService.setVenue(venue);
+    selectingService.setComparator((seat1, seat2) -> comparator.compare(seat1, seat2));
+    selectingService.setPartialSelection(true);
+
+    ComparatorBasedSeatLocatorService scoredSelectingService = new ComparatorBasedSeatLocatorService();
+    scoredSelectingService.setVenue(venue);
+    scoredSelectingService.setComparator(comparator);
+    scoredSelectingService.setPartialSelection(true);
+
+    try {
+      venue.claimSeats(sortingService.locateSeats(7), "customer@gmail.com");
+
+      // verify selection matches sort-then-take, including ties
+      for (int numSeats : new int[] { 1, 4, 25, 93 }) {
+        List<Seat> expected = sortingService.locateSeats(numSeats);
+        assertEquals("selected seats differ from sort", expected, selectingService.locateSeats(numSeats));
+        assertEquals("selected scored seats differ from sort", expected, scoredSelectingService.locateSeats(numSeats));
+      }
+
+      // verify we can't select more seats than are available
+      selectingService.locateSeats(94);
+      fail("selected 94 seats");
+    } catch (InsufficientAvailableSeatsException e) {
+      // do nothing;  this is what we expect to happen
+    }
+  }
+
+
+  @Test
+  public void testLateHeldNotification() {
+    Venue venue = VenueFactory.createVenue(10, 10, 4);
+    ComparatorBasedSeatLocatorService locatorService = new ComparatorBasedSeatLocatorService();
+    locatorService.setVenue(venue);
+    locatorService.setComparator(new ComprehensiveSeatComparator());
+    locatorService.setIndexed(true);
+
+    try {
+      Seat seat = locatorService.locateSeats(1).get(0);
+      venue.claimSeats(locatorService.locateSeats(1), "customer@gmail.com");
+      venue.unholdSeat(seat.getRowNumber(), seat.getSeatNumber());
+
+      // deliver the seatHeld notification after the seatUnheld that followed it
+      locatorService.new OpenSeatIndexListener().seatHeld(seat);
+
+      // verify the open seat was kept in the index
+      assertEquals("lost an open seat", 100, locatorService.locateSeats(100).size());
+    } catch (InsufficientAvailableSeatsException | SeatNotHeldException e) {
+      fail("lost an open seat from the index");
+    }
+  }
 }
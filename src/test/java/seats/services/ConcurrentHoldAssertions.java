@@ -0,0 +1,67 @@
+package seats.services;
+
+import static org.junit.Assert.*;
+
+import java.util.List;
+import java.util.ArrayList;
+import java.util.Set;
+import java.util.HashSet;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import seats.model.Venue;
+import seats.model.Seat;
+import seats.model.SeatHold;
+
+import static seats.model.SeatHoldRequestStatusEnum.*;
+
+
+/**
+ * <p>
+ * Shared check for ticket services whose customers compete for the
+ * seats in a venue at once
+ * </p>
+ */
+final class ConcurrentHoldAssertions {
+  private ConcurrentHoldAssertions() { }
+
+  /**
+   * Has many customers hold seats from the ticket service at once and
+   * verifies that every successful hold has the seats it asked for, that
+   * no seat was given to more than one customer, and that every seat not
+   * held is still open
+   * @return the successful holds
+   */
+  static List<SeatHold> assertConcurrentHolds(TicketService ticketService, Venue venue,
+                                              int customerCount, int numSeats) throws Exception {
+    List<Callable<SeatHold>> requests = new ArrayList<>();
+    for (int i = 0; i < customerCount; i++) {
+      String customerEmailAddress = "customer" + i + "@gmail.com";
+      requests.add(() -> ticketService.findAndHoldSeats(numSeats, customerEmailAddress));
+    }
+
+    ExecutorService executor = Executors.newFixedThreadPool(8);
+    List<Future<SeatHold>> results = executor.invokeAll(requests);
+    executor.shutdown();
+
+    List<SeatHold> seatHolds = new ArrayList<>();
+    Set<Seat> heldSeats = new HashSet<>();
+    for (Future<SeatHold> result : results) {
+      SeatHold seatHold = result.get();
+      if (seatHold.getStatus() != SUCCESS) {
+        continue;
+      }
+      assertEquals("incorrect seat count", numSeats, seatHold.getSeatsHeld(venue).size());
+      for (Seat seat : seatHold.getSeatsHeld(venue)) {
+        assertTrue("seat held twice", heldSeats.add(seat));
+        assertEquals("seat held by another customer", seatHold.getCustomerEmailAddress(), seat.getCustomerEmailAddress());
+      }
+      seatHolds.add(seatHold);
+    }
+    assertEquals("incorrect open seat count", venue.getSeatCount() - heldSeats.size(), venue.getOpenSeatCount());
+
+    return seatHolds;
+  }
+}
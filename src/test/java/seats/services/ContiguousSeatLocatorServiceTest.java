@@ -0,0 +1,140 @@
+package seats.services;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+import java.util.List;
+
+import seats.model.Venue;
+import seats.model.VenueFactory;
+import seats.model.Seat;
+import seats.model.SeatUnavailableException;
+import seats.model.StaticScoreSeatComparator;
+
+
+/**
+ * <p>
+ * Unit tests for the ContiguousSeatLocatorService class
+ * </p>
+ */
+public class ContiguousSeatLocatorServiceTest {
+
+  @Test
+  public void testLocateSeats() {
+    Venue venue = VenueFactory.createVenue(10, 10, 4);
+
+    ContiguousSeatLocatorService service = new ContiguousSeatLocatorService();
+    service.setVenue(venue);
+
+    // verify we can't locate 0 seats
+    try {
+      service.locateSeats(0);
+      fail("located 0 seats");
+    } catch (IllegalArgumentException e) {
+      // do nothing;  this is what we expect to happen
+    } catch (InsufficientAvailableSeatsException e) {
+      fail("should have thrown IllegalArgumentException");
+    }
+
+    try {
+      // verify the block is centered in the first row
+      assertBlock(service.locateSeats(4), 1, 4, 4);
+
+      // split the center of the first row and verify the best remaining block
+      venue.holdSeat(1, 6, "customer@gmail.com");
+      assertBlock(service.locateSeats(4), 1, 2, 4);
+
+      // verify a party too large for the first row's runs moves back a row
+      assertBlock(service.locateSeats(6), 2, 2, 6);
+
+      // verify a party larger than any row can't be located
+      service.locateSeats(11);
+      fail("located 11 contiguous seats");
+    } catch (InsufficientAvailableSeatsException e) {
+      // do nothing;  this is what we expect to happen
+    } catch (SeatUnavailableException e) {
+      fail("failed to hold seat");
+    }
+  }
+
+
+  @Test
+  public void testAdjacentRowFallback() {
+    Venue venue = VenueFactory.createVenue(2, 4, 2);
+
+    ContiguousSeatLocatorService service = new ContiguousSeatLocatorService();
+    service.setVenue(venue);
+
+    try {
+      // leave runs of 1 and 3-4 in the first row and 1-2 and 4 in the second
+      venue.holdSeat(1, 2, "customer@gmail.com");
+      venue.holdSeat(2, 3, "customer@gmail.com");
+    } catch (SeatUnavailableException e) {
+      fail("failed to hold seat");
+    }
+
+    // verify the party can't sit in a single row
+    try {
+      service.locateSeats(3);
+      fail("located 3 contiguous seats");
+    } catch (InsufficientAvailableSeatsException e) {
+      // do nothing;  this is what we expect to happen
+    }
+
+    // verify the party is split across adjacent rows when permitted
+    service.setMaximumRowSpan(2);
+    try {
+      List<Seat> seats = service.locateSeats(3);
+      assertEquals("incorrect seat count", 3, seats.size());
+      assertBlock(seats.subList(0, 2), 1, 3, 2);
+      assertEquals("incorrect row", 2, seats.get(2).getRowNumber());
+    } catch (InsufficientAvailableSeatsException e) {
+      fail("failed to locate seats across rows");
+    }
+
+    // verify the maximum row span must be positive
+    try {
+      service.setMaximumRowSpan(0);
+      fail("set a maximum row span of 0");
+    } catch (IllegalArgumentException e) {
+      // do nothing;  this is what we expect to happen
+    }
+  }
+
+
+  @Test
+  public void testIrregularScores() throws Exception {
+    Venue venue = VenueFactory.createVenue(1, 10, 2);
+
+    // seats 5 and 8 are favored; the scores do not rise away from either
+    ContiguousSeatLocatorService service = new ContiguousSeatLocatorService();
+    service.setVenue(venue);
+    service.setComparator(new StaticScoreSeatComparator() {
+        public int scoreSeat(Seat seat) {
+          return ((seat.getSeatNumber() == 5) || (seat.getSeatNumber() == 8)) ? 0 : 10;
+        }
+
+        public int compare(Seat seat1, Seat seat2) {
+          return Integer.compare(scoreSeat(seat1), scoreSeat(seat2));
+        }
+      });
+
+    // verify the best block away from the ends of the run and the ideal
+    // position is found
+    venue.holdSeat(1, 5, "customer@gmail.com");
+    assertBlock(service.locateSeats(2), 1, 7, 2);
+  }
+
+
+  /**
+   * Verifies the seats provided are the adjacent seats of a row
+   */
+  private void assertBlock(List<Seat> seats, int rowNumber,
+                           int firstSeatNumber, int size) {
+    assertEquals("incorrect seat count", size, seats.size());
+    for (int index = 0; index < size; index++) {
+      assertEquals("incorrect row", rowNumber, seats.get(index).getRowNumber());
+      assertEquals("incorrect seat", firstSeatNumber + index, seats.get(index).getSeatNumber());
+    }
+  }
+}
@@ -0,0 +1,157 @@
+package seats.services;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import static org.junit.Assert.*;
+
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.TreeSet;
+
+import seats.model.Venue;
+import seats.model.VenueFactory;
+import seats.model.SeatHold;
+import seats.model.SeatJournal;
+import seats.model.RowPrioritizedSeatComparator;
+
+import static seats.model.SeatHoldRequestStatusEnum.*;
+
+
+/**
+ * <p>
+ * Unit tests for the EventRegistry class
+ * </p>
+ */
+public class EventRegistryTest {
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+
+  @Test
+  public void testEventsAreIsolated() throws Exception {
+    EventRegistry registry = new EventRegistry();
+    try {
+      registry.createEvent("concert", VenueFactory.createVenue(10, 10, 4));
+      registry.createEvent("play", VenueFactory.createVenue(5, 10, 4));
+      assertEquals("incorrect event ids", new TreeSet<>(Arrays.asList("concert", "play")),
+                   registry.getEventIds());
+
+      // verify holds and reservations only affect their own event
+      TicketService concert = registry.getTicketService("concert");
+      TicketService play = registry.getTicketService("play");
+      SeatHold seatHold = concert.findAndHoldSeats(30, "first@gmail.com");
+      assertEquals("incorrect status", SUCCESS, seatHold.getStatus());
+      assertEquals("incorrect concert seats available", 70, concert.numSeatsAvailable());
+      assertEquals("incorrect play seats available", 50, play.numSeatsAvailable());
+
+      concert.reserveSeats(seatHold.getId(), "first@gmail.com");
+      assertEquals("incorrect play seats available", 50, play.numSeatsAvailable());
+      assertEquals("incorrect play hold count", 0,
+                   registry.getEvent("play").getSeatHoldingService().getSeatHoldCount());
+
+      // verify seat hold ids of one event mean nothing to another
+      try {
+        play.reserveSeats(seatHold.getId(), "first@gmail.com");
+        fail("reserved a seat hold of another event");
+      } catch (IllegalArgumentException e) {
+        // do nothing;  this is what we expect to happen
+      }
+    } finally {
+      registry.destroy();
+    }
+  }
+
+  @Test
+  public void testRegistration() throws Exception {
+    EventRegistry registry = new EventRegistry();
+    try {
+      registry.createEvent("concert", VenueFactory.createVenue(10, 10, 4));
+
+      // verify duplicate and blank event ids are rejected
+      try {
+        registry.createEvent("concert", VenueFactory.createVenue(10, 10, 4));
+        fail("registered an event id twice");
+      } catch (IllegalArgumentException e) {
+        // do nothing;  this is what we expect to happen
+      }
+      try {
+        registry.createEvent(" ", VenueFactory.createVenue(10, 10, 4));
+        fail("registered a blank event id");
+      } catch (IllegalArgumentException e) {
+        // do nothing;  this is what we expect to happen
+      }
+
+      // verify removed and unknown events cannot be found
+      registry.removeEvent("concert");
+      try {
+        registry.getTicketService("concert");
+        fail("found a removed event");
+      } catch (NoSuchEventException e) {
+        // do nothing;  this is what we expect to happen
+      }
+      try {
+        registry.removeEvent("concert");
+        fail("removed an unknown event");
+      } catch (NoSuchEventException e) {
+        // do nothing;  this is what we expect to happen
+      }
+    } finally {
+      registry.destroy();
+    }
+  }
+
+
+  @Test
+  public void testRemoveEventStopsEveryComponent() throws Exception {
+    Path directory = folder.getRoot().toPath();
+    SeatJournal journal = new SeatJournal(directory);
+    Venue venue = journal.recover(() -> VenueFactory.createVenue(10, 10, 4));
+
+    ComparatorBasedSeatLocatorService seatLocatorService = new ComparatorBasedSeatLocatorService();
+    seatLocatorService.setVenue(venue);
+    seatLocatorService.setComparator(new RowPrioritizedSeatComparator());
+
+    ExpiringTransientSeatHoldingService seatHoldingService = new ExpiringTransientSeatHoldingService();
+    seatHoldingService.setVenue(venue);
+    seatHoldingService.setExpirationCheckCycleTimeInMilliSeconds(1000);
+    seatHoldingService.init();
+
+    GenericTicketService delegate = new GenericTicketService();
+    delegate.setVenue(venue);
+    delegate.setSeatLocatorService(seatLocatorService);
+    delegate.setSeatHoldingService(seatHoldingService);
+
+    CoalescingTicketService ticketService = new CoalescingTicketService();
+    ticketService.setDelegate(delegate);
+    ticketService.init();
+
+    EventEngine engine = new EventEngine();
+    engine.setEventId("concert");
+    engine.setVenue(venue);
+    engine.setSeatLocatorService(seatLocatorService);
+    engine.setSeatHoldingService(seatHoldingService);
+    engine.setTicketService(ticketService);
+    engine.setJournal(journal);
+
+    EventRegistry registry = new EventRegistry();
+    registry.registerEvent(engine);
+    SeatHold seatHold = ticketService.findAndHoldSeats(2, "first@gmail.com");
+    assertEquals("incorrect status", SUCCESS, seatHold.getStatus());
+    ticketService.reserveSeats(seatHold.getId(), "first@gmail.com");
+    registry.removeEvent("concert");
+
+    // verify the allocator was stopped
+    try {
+      ticketService.findAndHoldSeats(1, "second@gmail.com");
+      fail("placed a request after the event was removed");
+    } catch (IllegalStateException e) {
+      // do nothing;  this is what we expect to happen
+    }
+
+    // verify the journal was closed after recording the reservation
+    venue.holdSeat(10, 10, "second@gmail.com");
+    venue.reserveSeat(10, 10, "second@gmail.com");
+    Venue recovered = new SeatJournal(directory).recover(() -> VenueFactory.createVenue(10, 10, 4));
+    assertEquals("incorrect reserved count", 2, recovered.getReservedSeatCount());
+  }
+}
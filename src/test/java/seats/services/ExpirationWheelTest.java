@@ -0,0 +1,57 @@
+package seats.services;
+
+import java.util.List;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+import seats.services.ExpirationWheel.Expiration;
+
+
+/**
+ * <p>
+ * Unit tests for the ExpirationWheel class
+ * </p>
+ */
+public class ExpirationWheelTest {
+
+  @Test
+  public void testExpire() {
+    // 10ms ticks covering 100ms, starting at time 1000
+    ExpirationWheel<String> wheel = new ExpirationWheel<>(10, 100, 1000);
+
+    wheel.schedule("first", 1015);
+    Expiration<String> canceled = wheel.schedule("canceled", 1030);
+    wheel.schedule("second", 1050);
+
+    // a deadline beyond the span shares a slot with an earlier tick
+    wheel.schedule("distant", 1000 + (16 * 10) + 15);
+    assertEquals("incorrect size", 4, wheel.size());
+
+    // verify nothing expires before its deadline
+    assertTrue("expired early", wheel.expire(1014).isEmpty());
+
+    List<String> expired = wheel.expire(1020);
+    assertEquals("incorrect expirations", 1, expired.size());
+    assertEquals("incorrect expiration", "first", expired.get(0));
+
+    // verify canceled items never expire and can't be canceled twice
+    assertTrue("failed to cancel", wheel.cancel(canceled));
+    assertFalse("canceled twice", wheel.cancel(canceled));
+
+    expired = wheel.expire(1100);
+    assertEquals("incorrect expirations", 1, expired.size());
+    assertEquals("incorrect expiration", "second", expired.get(0));
+    assertEquals("incorrect size", 1, wheel.size());
+
+    // verify a distant deadline is skipped until it is due
+    assertTrue("expired early", wheel.expire(1170).isEmpty());
+    expired = wheel.expire(1180);
+    assertEquals("incorrect expiration", "distant", expired.get(0));
+    assertEquals("incorrect size", 0, wheel.size());
+
+    // verify past deadlines expire in the next tick
+    wheel.schedule("late", 900);
+    assertEquals("late item not expired", 1, wheel.expire(1190).size());
+  }
+}
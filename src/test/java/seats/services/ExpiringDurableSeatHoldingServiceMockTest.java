@@ -0,0 +1,259 @@
+package seats.services;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+import java.util.List;
+
+import seats.model.SeatHold;
+import seats.model.SeatReservation;
+import seats.model.SeatReservationRequest;
+import seats.model.SeatReservationStatusEnum;
+import seats.model.Venue;
+import seats.model.VenueFactory;
+import seats.model.Seat;
+import seats.dao.repositories.SeatHoldRepository;
+
+import static seats.model.SeatHoldRequestStatusEnum.*;
+
+import static org.mockito.Mockito.*;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+
+import org.joda.time.DateTime;
+
+import org.springframework.data.domain.Pageable;
+
+
+/**
+ * <p>
+ * Unit tests for the ExpiringDurableSeatHoldingService class that run
+ * against a mocked SeatHoldRepository rather than MongoDB
+ * </p>
+ */
+public class ExpiringDurableSeatHoldingServiceMockTest {
+  /**
+   * Creates a service for the venue provided backed by the repository
+   * provided
+   */
+  private ExpiringDurableSeatHoldingService createService(Venue venue,
+                                                          SeatHoldRepository repository) {
+    ExpiringDurableSeatHoldingService service = new ExpiringDurableSeatHoldingService();
+    service.setVenue(venue);
+    service.setRepository(repository);
+
+    return service;
+  }
+
+  /**
+   * Creates a SeatHold for the seats provided
+   */
+  private SeatHold createSeatHold(List<Seat> seatList) {
+    // create a seat holding
+    SeatHold seatHold = new SeatHold();
+    seatHold.setNumberOfSeatsHeld(1);
+    seatHold.setNumberOfSeatsRequested(1);
+    seatHold.setCustomerEmailAddress("customer@gmail.com");
+    seatHold.setSeatsHeld(seatList);
+    seatHold.setStatus(SUCCESS);
+
+    return seatHold;
+  }
+
+  @Test
+  @SuppressWarnings("unchecked")
+  public void testWriteBehind() throws Exception {
+    Venue venue = VenueFactory.createVenue(10, 10, 4);
+    SeatHoldRepository mockedRepository = mock(SeatHoldRepository.class);
+    ExpiringDurableSeatHoldingService service = createService(venue, mockedRepository);
+    service.setWriteBehind(true);
+
+    // verify an added hold is visible before it reaches the repository
+    SeatHold seatHold = service.addSeatHold(createSeatHold(venue.getRow(1).getSeats()));
+    int id = seatHold.getId();
+    assertSame("unflushed seat hold not found", seatHold, service.getSeatHoldById(id));
+    verify(mockedRepository, never()).insert(any(Iterable.class));
+    verify(mockedRepository, never()).save(any(SeatHold.class));
+
+    // verify the unflushed hold is counted without flushing
+    assertEquals("unflushed seat hold not counted", 1, service.getSeatHoldCount());
+    verify(mockedRepository, never()).insert(any(Iterable.class));
+
+    // verify the flush inserts the hold in bulk
+    service.flush();
+    verify(mockedRepository, times(1)).insert(any(Iterable.class));
+    assertEquals("buffer not drained", 0, service.getUnflushedChangeCount());
+
+    // verify an unknown id is rejected and nothing is buffered
+    try {
+      service.removeSeatHoldById(id + 100);
+      fail("removed unknown seat hold");
+    } catch (NoSuchSeatHoldException e) {
+      // do nothing;  this is what we expect to happen
+    }
+    assertEquals("unknown removal buffered", 0, service.getUnflushedChangeCount());
+
+    // verify a removed hold disappears before it is deleted
+    when(mockedRepository.exists(id)).thenReturn(true);
+    when(mockedRepository.count()).thenReturn(1L);
+    service.removeSeatHoldById(id);
+    assertEquals("unflushed removal not counted", 0, service.getSeatHoldCount());
+    try {
+      service.getSeatHoldById(id);
+      fail("located removed seat hold");
+    } catch (NoSuchSeatHoldException e) {
+      // do nothing;  this is what we expect to happen
+    }
+    try {
+      service.removeSeatHoldById(id);
+      fail("removed seat hold twice");
+    } catch (NoSuchSeatHoldException e) {
+      // do nothing;  this is what we expect to happen
+    }
+    service.flush();
+    verify(mockedRepository, times(1)).deleteByIdIn(any(Collection.class));
+    when(mockedRepository.exists(id)).thenReturn(false);
+    when(mockedRepository.count()).thenReturn(0L);
+    assertEquals("flushed removal counted twice", 0, service.getSeatHoldCount());
+
+    // verify a hold added and removed between flushes is never written
+    seatHold = service.addSeatHold(createSeatHold(venue.getRow(2).getSeats()));
+    service.removeSeatHoldById(seatHold.getId());
+    service.flush();
+    verify(mockedRepository, times(1)).insert(any(Iterable.class));
+    verify(mockedRepository, times(1)).deleteByIdIn(any(Collection.class));
+
+    // verify a batch that cannot be written stays in the buffer
+    when(mockedRepository.deleteByIdIn(any(Collection.class))).thenThrow(new RuntimeException());
+    when(mockedRepository.exists(id + 2)).thenReturn(true);
+    service.removeSeatHoldById(id + 2);
+    service.flush();
+    assertEquals("failed batch discarded", 1, service.getUnflushedChangeCount());
+  }
+
+  @Test
+  @SuppressWarnings("unchecked")
+  public void testExpireSeatHoldings() throws Exception {
+    Venue venue = VenueFactory.createVenue(10, 10, 4);
+    SeatHoldRepository mockedRepository = mock(SeatHoldRepository.class);
+    ExpiringDurableSeatHoldingService service = createService(venue, mockedRepository);
+    service.setExpirationTimeInMilliSeconds(1000);
+    service.setExpirationBatchSize(2);
+
+    // hold a seat in each of three rows
+    SeatHold[] seatHolds = new SeatHold[3];
+    for (int i = 0; i < seatHolds.length; i++) {
+      Seat seat = venue.getRow(i + 1).getSeat(1);
+      venue.holdSeat(seat.getRowNumber(), seat.getSeatNumber(), "customer@gmail.com");
+      seatHolds[i] = createSeatHold(Collections.singletonList(seat));
+      seatHolds[i].setId(i + 1);
+    }
+
+    // the repository reports the expired holds a batch at a time
+    when(mockedRepository.findByCreationTimeLessThan(any(DateTime.class), any(Pageable.class)))
+      .thenReturn(Arrays.asList(seatHolds[0], seatHolds[1]),
+                  Arrays.asList(seatHolds[2]));
+
+    // verify every batch is deleted and its seats released
+    service.expireSeatHoldings();
+    verify(mockedRepository, times(2)).findByCreationTimeLessThan(any(DateTime.class), any(Pageable.class));
+    verify(mockedRepository, times(2)).deleteByIdIn(any(Collection.class));
+    assertEquals("incorrect open count", 100, venue.getOpenSeatCount());
+    assertEquals("incorrect held count", 0, venue.getHeldSeatCount());
+
+    // verify the repository removes holds well after the sweeper would
+    assertTrue("expiry index too short", service.getExpiryIndexSeconds() > 60);
+  }
+
+  @Test
+  public void testRecoverVenue() throws Exception {
+    Venue venue = VenueFactory.createVenue(10, 10, 4);
+    SeatHoldRepository mockedRepository = mock(SeatHoldRepository.class);
+    ExpiringDurableSeatHoldingService service = createService(venue, mockedRepository);
+    service.setRecoveryPageSize(2);
+
+    // a reservation and three holds, one of which overlaps the reservation
+    SeatHold reservation = createSeatHold(venue.getRow(1).getSeats().subList(0, 2));
+    reservation.setId(1);
+    SeatHold[] seatHolds = new SeatHold[3];
+    for (int i = 0; i < seatHolds.length; i++) {
+      seatHolds[i] = createSeatHold(venue.getRow(i + 1).getSeats().subList(1, 3));
+      seatHolds[i].setId(i + 2);
+    }
+
+    // the repository returns the holds two at a time
+    when(mockedRepository.findReservationsAfter(anyInt(), anyInt()))
+      .thenReturn(Arrays.asList(reservation));
+    when(mockedRepository.findByIdGreaterThan(anyInt(), any(Pageable.class)))
+      .thenReturn(Arrays.asList(seatHolds[0], seatHolds[1]))
+      .thenReturn(Arrays.asList(seatHolds[2]));
+
+    // verify the seats are restored and the overlap is reported
+    VenueRecoveryReport report = service.recoverVenue();
+    assertEquals("incorrect seat hold count", 3, report.getSeatHoldCount());
+    assertEquals("incorrect reservation count", 1, report.getReservationCount());
+    assertEquals("incorrect conflicting seat count", 1, report.getConflictingSeatCount());
+    assertSame("report not kept", report, service.getLastRecoveryReport());
+
+    assertEquals("incorrect reserved count", 2, venue.getReservedSeatCount());
+    assertEquals("incorrect held count", 5, venue.getHeldSeatCount());
+    assertTrue("reservation not restored", venue.getRow(1).getSeat(2).isReserved());
+    assertTrue("hold not restored", venue.getRow(3).getSeat(3).isHeld());
+  }
+
+  @Test
+  @SuppressWarnings("unchecked")
+  public void testReserveSeatBatch() throws Exception {
+    Venue venue = VenueFactory.createVenue(10, 10, 4);
+    SeatHoldRepository mockedRepository = mock(SeatHoldRepository.class);
+    ExpiringDurableSeatHoldingService service = createService(venue, mockedRepository);
+
+    GenericTicketService ticketService = new GenericTicketService();
+    ticketService.setVenue(venue);
+    ticketService.setSeatHoldingService(service);
+
+    // two holds in different rows; a third id is unknown
+    SeatHold[] seatHolds = new SeatHold[2];
+    for (int i = 0; i < seatHolds.length; i++) {
+      List<Seat> seats = venue.getRow(i + 1).getSeats().subList(0, 3);
+      for (Seat seat : seats) {
+        venue.holdSeat(seat.getRowNumber(), seat.getSeatNumber(), "customer@gmail.com");
+      }
+      seatHolds[i] = createSeatHold(seats);
+      seatHolds[i].setId(i + 1);
+    }
+    when(mockedRepository.findByIdIn(any(Collection.class))).thenReturn(Arrays.asList(seatHolds));
+    when(mockedRepository.deleteByIdIn(any(Collection.class))).thenReturn(2L);
+
+    List<SeatReservation> reservations =
+      ticketService.reserveSeats(Arrays.asList(new SeatReservationRequest(1, "customer@gmail.com"),
+                                               new SeatReservationRequest(2, "other@gmail.com"),
+                                               new SeatReservationRequest(3, "customer@gmail.com"),
+                                               new SeatReservationRequest(1, "customer@gmail.com"),
+                                               new SeatReservationRequest(-1, "customer@gmail.com")));
+
+    // verify every request has its own outcome
+    assertEquals("incorrect status", SeatReservationStatusEnum.SUCCESS, reservations.get(0).getStatus());
+    assertNotNull("confirmation code null", reservations.get(0).getConfirmationCode());
+    assertEquals("incorrect status", SeatReservationStatusEnum.FAILURE_DUE_TO_INVALID_PARAMETERS,
+                 reservations.get(1).getStatus());
+    assertEquals("incorrect status", SeatReservationStatusEnum.FAILURE_DUE_TO_UNKNOWN_SEAT_HOLD,
+                 reservations.get(2).getStatus());
+    assertEquals("incorrect status", SeatReservationStatusEnum.FAILURE_DUE_TO_UNKNOWN_SEAT_HOLD,
+                 reservations.get(3).getStatus());
+    assertEquals("incorrect status", SeatReservationStatusEnum.FAILURE_DUE_TO_INVALID_PARAMETERS,
+                 reservations.get(4).getStatus());
+
+    // verify only the valid hold was reserved
+    assertEquals("incorrect reserved count", 3, venue.getReservedSeatCount());
+    assertEquals("incorrect held count", 3, venue.getHeldSeatCount());
+
+    // verify the repository was used in bulk
+    verify(mockedRepository, times(1)).findByIdIn(any(Collection.class));
+    verify(mockedRepository, never()).findById(anyInt());
+    verify(mockedRepository, times(1)).saveReservations(any(Collection.class));
+    verify(mockedRepository, times(1)).deleteByIdIn(any(Collection.class));
+  }
+}
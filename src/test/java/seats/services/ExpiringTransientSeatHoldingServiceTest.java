@@ -9,6 +9,7 @@ import static org.junit.Assert.*;
 import static org.mockito.Mockito.*;
 
 import seats.model.Venue;
+import seats.model.VenueFactory;
 import seats.model.Seat;
 import seats.model.SeatHold;
 import seats.model.Row;
@@ -258,4 +259,55 @@ public class ExpiringTransientSeatHoldingServiceTest {
     instanceCount = service.getSeatHoldCount();
     assertEquals("failed to expire", 0, instanceCount);
   }
+
+
+  @Test
+  public void testShardedExpiry() {
+    Venue venue = VenueFactory.createVenue(1, 8, 2);
+
+    // create the ExpiringTransientSeatHoldingService with 4 shards
+    ExpiringTransientSeatHoldingService service = new ExpiringTransientSeatHoldingService();
+    service.setVenue(venue);
+    service.setExpirationTimeInMilliSeconds(1);
+    service.setShardCount(4);
+
+    // verify the shard count must be positive
+    try {
+      service.setShardCount(0);
+      fail("set a shard count of 0");
+    } catch (IllegalArgumentException e) {
+      // do nothing; this is what we expect to happen
+    }
+
+    // hold each seat in its own seat hold
+    for (Seat seat : venue.getRow(1).getSeats()) {
+      seat.hold("customer@gmail.com");
+      List<Seat> seatList = new ArrayList<>();
+      seatList.add(seat);
+      service.addSeatHold(createSeatHold(seatList));
+    }
+    assertEquals("failed to add", 8, service.getSeatHoldCount());
+
+    // verify the holds are spread across the shards
+    List<SeatHoldShardMetrics> metrics = service.getShardMetrics();
+    assertEquals("incorrect shard count", 4, metrics.size());
+    for (SeatHoldShardMetrics shardMetrics : metrics) {
+      assertEquals("incorrect shard size", 2, shardMetrics.getSeatHoldCount());
+    }
+
+    try {
+      Thread.sleep(10);
+    } catch (InterruptedException e) {
+      fail("failed to sleep");
+    }
+
+    // manually expire the holdings and verify every shard recorded it
+    service.expireSeatHoldings();
+    assertEquals("failed to expire", 0, service.getSeatHoldCount());
+    assertEquals("seats not released", 8, venue.getOpenSeatCount());
+    for (SeatHoldShardMetrics shardMetrics : service.getShardMetrics()) {
+      assertEquals("incorrect expired count", 2, shardMetrics.getExpiredSeatHoldCount());
+      assertTrue("incorrect expiry lag", shardMetrics.getMaxExpiryLagInMilliSeconds() >= 0);
+    }
+  }
 }
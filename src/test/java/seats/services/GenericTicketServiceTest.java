@@ -4,7 +4,9 @@ import org.junit.Test;
 import static org.junit.Assert.*;
 
 import static org.mockito.Mockito.*;
+import org.mockito.ArgumentCaptor;
 
+import java.util.Arrays;
 import java.util.List;
 import java.util.ArrayList;
 
@@ -12,6 +14,10 @@ import seats.model.Venue;
 import seats.model.VenueFactory;
 import seats.model.Seat;
 import seats.model.SeatHold;
+import seats.model.SeatHoldRequest;
+import seats.model.SeatReservation;
+import seats.model.SeatReservationRequest;
+import seats.model.SeatReservationStatusEnum;
 import seats.model.RowPrioritizedSeatComparator;
 
 import static seats.model.SeatHoldRequestStatusEnum.*;
@@ -74,14 +80,9 @@ public class GenericTicketServiceTest {
     int openSeatCount = service.numSeatsAvailable();
     assertEquals("empty venue has seats", venue.getSeatCount(), openSeatCount);
 
-    // mock the venue's call to getOpenSeats() so it returns 1 open seat
-    Seat seat = new Seat();
-    seat.setRowNumber(1);
-    seat.setSeatNumber(1);
-    List<Seat> openSeats = new ArrayList<>();
-    openSeats.add(seat);
+    // mock the venue's call to getOpenSeatCount() so it returns 1 open seat
     Venue mockedVenue = mock(Venue.class);
-    when(mockedVenue.getOpenSeats()).thenReturn(openSeats);
+    when(mockedVenue.getOpenSeatCount()).thenReturn(1);
     service.setVenue(mockedVenue);
     openSeatCount = service.numSeatsAvailable();
     assertEquals("inaccurate open seat count", 1, openSeatCount);
@@ -248,4 +249,161 @@ public class GenericTicketServiceTest {
     // verify the hold was removed
     assertEquals("seat hold not removed", 0, service.getSeatHoldingService().getSeatHoldCount());
   }
+
+
+  @Test
+  public void testReserveSeatsRecordsOnlyReservedSeats() throws Exception {
+    Venue venue = createVenue();
+    GenericTicketService service = createTransientTicketService(venue);
+    SeatHoldingService seatHoldingService = mock(SeatHoldingService.class);
+    service.setSeatHoldingService(seatHoldingService);
+    String customerEmailAddress = "customer@gmail.com";
+
+    // hold two seats and reserve the first of them behind the service's back
+    venue.holdSeat(1, 1, customerEmailAddress);
+    venue.holdSeat(1, 2, customerEmailAddress);
+    venue.reserveSeat(1, 1, customerEmailAddress);
+    SeatHold seatHold = new SeatHold();
+    seatHold.setId(1);
+    seatHold.setCustomerEmailAddress(customerEmailAddress);
+    seatHold.setHeldSeats(new int[] { SeatHold.packSeat(1, 1), SeatHold.packSeat(1, 2) });
+    seatHold.setNumberOfSeatsHeld(2);
+    when(seatHoldingService.getSeatHoldById(1)).thenReturn(seatHold);
+
+    // verify only the seat reserved by the service is recorded
+    service.reserveSeats(1, customerEmailAddress);
+    ArgumentCaptor<SeatHold> reservation = ArgumentCaptor.forClass(SeatHold.class);
+    verify(seatHoldingService).reserveSeatHold(reservation.capture());
+    assertArrayEquals("incorrect reserved seats", new int[] { SeatHold.packSeat(1, 2) },
+                      reservation.getValue().getHeldSeats());
+
+    // verify nothing is recorded when none of the seats could be reserved
+    venue.holdSeat(2, 1, customerEmailAddress);
+    venue.reserveSeat(2, 1, customerEmailAddress);
+    seatHold = new SeatHold();
+    seatHold.setId(2);
+    seatHold.setCustomerEmailAddress(customerEmailAddress);
+    seatHold.setHeldSeats(new int[] { SeatHold.packSeat(2, 1) });
+    seatHold.setNumberOfSeatsHeld(1);
+    when(seatHoldingService.getSeatHoldById(2)).thenReturn(seatHold);
+
+    service.reserveSeats(2, customerEmailAddress);
+    verify(seatHoldingService).removeSeatHoldById(2);
+    verify(seatHoldingService, times(1)).reserveSeatHold(any(SeatHold.class));
+  }
+
+
+  @Test
+  public void testConcurrentFindAndHoldSeats() throws Exception {
+    Venue venue = createVenue();
+    GenericTicketService service = createTransientTicketService(venue);
+
+    // have many customers compete for the seats in the venue at once
+    ConcurrentHoldAssertions.assertConcurrentHolds(service, venue, 40, 2);
+  }
+
+
+  @Test
+  public void testTransientFindAndHoldSeatBatch() {
+    Venue venue = createVenue();
+    GenericTicketService service = createTransientTicketService(venue);
+
+    List<SeatHoldRequest> requests = Arrays.asList(new SeatHoldRequest(4, "first@gmail.com"),
+                                                   new SeatHoldRequest(2, " "),
+                                                   new SeatHoldRequest(0, "second@gmail.com"),
+                                                   new SeatHoldRequest(12, "third@gmail.com"),
+                                                   new SeatHoldRequest(500, "fourth@gmail.com"),
+                                                   new SeatHoldRequest(1, "fifth@gmail.com"));
+    List<SeatHold> seatHolds = service.findAndHoldSeats(requests);
+
+    // verify each request has its own result in request order
+    assertEquals("incorrect result count", requests.size(), seatHolds.size());
+    assertEquals("incorrect status", SUCCESS, seatHolds.get(0).getStatus());
+    assertEquals("incorrect status", FAILURE_DUE_TO_INVALID_PARAMETERS, seatHolds.get(1).getStatus());
+    assertEquals("incorrect status", FAILURE_DUE_TO_INVALID_PARAMETERS, seatHolds.get(2).getStatus());
+    assertEquals("incorrect status", SUCCESS, seatHolds.get(3).getStatus());
+    assertEquals("incorrect status", FAILURE_DUE_TO_INSUFFICIENT_OPEN_SEATS, seatHolds.get(4).getStatus());
+    assertEquals("incorrect status", SUCCESS, seatHolds.get(5).getStatus());
+
+    // verify seats were assigned best first in request order
+    for (Seat seat : seatHolds.get(0).getSeatsHeld(venue)) {
+      assertEquals("first request not given the best seats", 1, seat.getRowNumber());
+    }
+    for (Seat seat : seatHolds.get(3).getSeatsHeld(venue)) {
+      assertTrue("incorrect row", seat.getRowNumber() <= 2);
+      assertEquals("seat held by another customer", "third@gmail.com", seat.getCustomerEmailAddress());
+    }
+    assertEquals("incorrect row", 2, seatHolds.get(5).getSeatsHeld(venue).get(0).getRowNumber());
+
+    // verify only the seats of successful requests are held
+    assertEquals("incorrect open seat count", 83, service.numSeatsAvailable());
+    assertEquals("incorrect seat hold count", 5, service.getSeatHoldingService().getSeatHoldCount());
+  }
+
+
+  @Test
+  public void testFindAndHoldSeatBatchWithFailedHold() {
+    Venue venue = createVenue();
+    GenericTicketService service = createTransientTicketService(venue);
+    SeatHoldingService seatHoldingService = mock(SeatHoldingService.class);
+    service.setSeatHoldingService(seatHoldingService);
+
+    // the seat holding service fails to add the second hold
+    when(seatHoldingService.addSeatHold(any(SeatHold.class)))
+      .thenAnswer(invocation -> invocation.getArguments()[0])
+      .thenThrow(new RuntimeException("unable to add hold"));
+
+    List<SeatHold> seatHolds = service.findAndHoldSeats(Arrays.asList(new SeatHoldRequest(2, "first@gmail.com"),
+                                                                      new SeatHoldRequest(3, "second@gmail.com")));
+
+    // verify only the failed request is reported and its seats released
+    assertEquals("incorrect status", SUCCESS, seatHolds.get(0).getStatus());
+    assertEquals("incorrect status", FAILURE_DUE_TO_UNEXPECTED_ERROR, seatHolds.get(1).getStatus());
+    assertEquals("incorrect status details", "unable to add hold", seatHolds.get(1).getStatusDetails());
+    assertEquals("failed hold kept seats", 0, seatHolds.get(1).getHeldSeats().length);
+    assertEquals("incorrect open seat count", 98, service.numSeatsAvailable());
+  }
+
+
+  @Test
+  public void testTransientReserveSeatBatch() throws Exception {
+    Venue venue = createVenue();
+    GenericTicketService service = createTransientTicketService(venue);
+
+    SeatHold first = service.findAndHoldSeats(2, "first@gmail.com");
+    SeatHold second = service.findAndHoldSeats(2, "second@gmail.com");
+    SeatHold third = service.findAndHoldSeats(1, "third@gmail.com");
+
+    // reserve a seat of the first hold and the only seat of the third
+    // hold behind the service's back
+    Seat seat = first.getSeatsHeld(venue).get(0);
+    int otherSeat = first.getHeldSeats()[1];
+    venue.reserveSeat(seat.getRowNumber(), seat.getSeatNumber(), "first@gmail.com");
+    seat = third.getSeatsHeld(venue).get(0);
+    venue.reserveSeat(seat.getRowNumber(), seat.getSeatNumber(), "third@gmail.com");
+
+    List<SeatReservation> reservations =
+      service.reserveSeats(Arrays.asList(new SeatReservationRequest(first.getId(), "first@gmail.com"),
+                                         new SeatReservationRequest(second.getId(), "second@gmail.com"),
+                                         new SeatReservationRequest(third.getId(), "third@gmail.com")));
+
+    // verify the partly unavailable hold is narrowed to its reserved seat
+    assertEquals("incorrect status", SeatReservationStatusEnum.SUCCESS, reservations.get(0).getStatus());
+    assertNotNull("confirmation code null", reservations.get(0).getConfirmationCode());
+    assertNotNull("unavailable seat not reported", reservations.get(0).getStatusDetails());
+    assertArrayEquals("incorrect reserved seats", new int[] { otherSeat }, first.getHeldSeats());
+
+    assertEquals("incorrect status", SeatReservationStatusEnum.SUCCESS, reservations.get(1).getStatus());
+    assertNotNull("confirmation code null", reservations.get(1).getConfirmationCode());
+
+    // verify the hold with no reservable seats fails
+    assertEquals("incorrect status", SeatReservationStatusEnum.FAILURE_DUE_TO_UNAVAILABLE_SEATS,
+                 reservations.get(2).getStatus());
+    assertNull("confirmed a failed reservation", reservations.get(2).getConfirmationCode());
+
+    // verify every hold was released and no seat is left held
+    assertEquals("incorrect seat hold count", 0, service.getSeatHoldingService().getSeatHoldCount());
+    assertEquals("incorrect held seat count", 0, venue.getHeldSeatCount());
+    assertEquals("incorrect reserved seat count", 5, venue.getReservedSeatCount());
+  }
 }
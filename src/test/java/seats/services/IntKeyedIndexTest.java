@@ -0,0 +1,76 @@
+package seats.services;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+
+/**
+ * <p>
+ * Unit tests for the IntKeyedIndex class
+ * </p>
+ */
+public class IntKeyedIndexTest {
+
+  @Test
+  public void testIndex() {
+    // the values are their own keys; every other key is used
+    IntKeyedIndex<Integer> index = new IntKeyedIndex<>(16, 2, Integer::intValue);
+
+    for (int key = 0; key < 32; key += 2) {
+      assertNull("replaced a value", index.put(key));
+    }
+    assertEquals("incorrect size", 16, index.size());
+    assertEquals("incorrect value", Integer.valueOf(10), index.get(10));
+    assertNull("located a missing key", index.get(11));
+
+    // verify a key that wraps onto a live slot grows the ring
+    assertNull("replaced a value", index.put(32));
+    assertEquals("incorrect value", Integer.valueOf(32), index.get(32));
+    assertEquals("incorrect value", Integer.valueOf(0), index.get(0));
+    assertEquals("incorrect size", 17, index.size());
+
+    // verify values are removed once
+    assertEquals("incorrect removal", Integer.valueOf(0), index.remove(0));
+    assertNull("removed twice", index.remove(0));
+    assertNull("located a removed key", index.get(0));
+    assertEquals("incorrect size", 16, index.size());
+
+    // verify a wrapped key does not match the value in its slot
+    for (int key = 2; key < 32; key += 2) {
+      index.remove(key);
+    }
+    assertNull("located a missing key", index.get(64 + 32));
+    assertNull("removed a missing key", index.remove(64 + 32));
+    assertEquals("incorrect size", 1, index.size());
+  }
+
+
+  @Test
+  public void testOverflow() {
+    // the values are their own keys; the ring may grow to 32 slots
+    IntKeyedIndex<Integer> index = new IntKeyedIndex<>(16, 1, Integer::intValue, 32);
+
+    for (int key = 0; key < 32; key++) {
+      assertNull("replaced a value", index.put(key));
+    }
+    assertEquals("overflowed below the maximum capacity", 0, index.overflowSize());
+
+    // verify keys far outside the window move older keys to the overflow
+    // map rather than grow the ring
+    assertNull("replaced a value", index.put(1 << 30));
+    assertNull("replaced a value", index.put((1 << 30) + 32));
+    assertEquals("incorrect overflow size", 2, index.overflowSize());
+    assertEquals("incorrect size", 34, index.size());
+    assertEquals("incorrect value", Integer.valueOf((1 << 30) + 32), index.get((1 << 30) + 32));
+    assertEquals("incorrect value", Integer.valueOf(1 << 30), index.get(1 << 30));
+    assertEquals("incorrect value", Integer.valueOf(0), index.get(0));
+
+    // verify overflowed values are replaced and removed in place
+    assertEquals("incorrect replacement", Integer.valueOf(1 << 30), index.put(1 << 30));
+    assertEquals("incorrect removal", Integer.valueOf(1 << 30), index.remove(1 << 30));
+    assertNull("removed twice", index.remove(1 << 30));
+    assertNull("located a removed key", index.get(1 << 30));
+    assertEquals("incorrect overflow size", 1, index.overflowSize());
+    assertEquals("incorrect size", 33, index.size());
+  }
+}
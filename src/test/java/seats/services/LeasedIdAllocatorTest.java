@@ -0,0 +1,78 @@
+package seats.services;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+import java.util.List;
+import java.util.ArrayList;
+import java.util.Set;
+import java.util.HashSet;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+
+
+/**
+ * <p>
+ * Unit tests for the LeasedIdAllocator class
+ * </p>
+ */
+public class LeasedIdAllocatorTest {
+
+  @Test
+  public void testConcurrentAllocation() throws Exception {
+    // two allocators share a counter as two instances share a database
+    AtomicLong counter = new AtomicLong();
+    AtomicLong leases = new AtomicLong();
+    LeasedIdAllocator first = new LeasedIdAllocator(count -> {
+        leases.incrementAndGet();
+        return counter.getAndAdd(count);
+      }, 10);
+    LeasedIdAllocator second = new LeasedIdAllocator(count -> {
+        leases.incrementAndGet();
+        return counter.getAndAdd(count);
+      }, 10);
+
+    List<Callable<List<Integer>>> allocations = new ArrayList<>();
+    for (int i = 0; i < 8; i++) {
+      LeasedIdAllocator allocator = ((i % 2) == 0) ? first : second;
+      allocations.add(() -> {
+          List<Integer> ids = new ArrayList<>();
+          for (int j = 0; j < 500; j++) {
+            ids.add(allocator.nextId());
+          }
+          return ids;
+        });
+    }
+
+    ExecutorService executor = Executors.newFixedThreadPool(8);
+    List<Future<List<Integer>>> results = executor.invokeAll(allocations);
+    executor.shutdown();
+
+    // verify no id was allocated twice and ids start at 1
+    Set<Integer> ids = new HashSet<>();
+    for (Future<List<Integer>> result : results) {
+      for (int id : result.get()) {
+        assertTrue("id allocated twice", ids.add(id));
+        assertTrue("id not positive", id > 0);
+      }
+    }
+    assertEquals("incorrect id count", 4000, ids.size());
+
+    // verify ids were leased a block at a time
+    assertTrue("too many leases", leases.get() <= 402);
+  }
+
+  @Test
+  public void testExhaustion() {
+    LeasedIdAllocator allocator = new LeasedIdAllocator(count -> Integer.MAX_VALUE - 5L, 10);
+    try {
+      allocator.nextId();
+      fail("allocated an id beyond Integer.MAX_VALUE");
+    } catch (IllegalStateException e) {
+      // do nothing;  this is what we expect to happen
+    }
+  }
+}
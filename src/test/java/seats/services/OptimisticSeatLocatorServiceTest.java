@@ -0,0 +1,90 @@
+package seats.services;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+import java.util.List;
+
+import seats.model.Venue;
+import seats.model.VenueFactory;
+import seats.model.Seat;
+import seats.model.SeatUnavailableException;
+import seats.model.SeatNotHeldException;
+import seats.model.ComprehensiveSeatComparator;
+
+
+/**
+ * <p>
+ * Unit tests for the OptimisticSeatLocatorService class
+ * </p>
+ */
+public class OptimisticSeatLocatorServiceTest {
+
+  @Test
+  public void testLocateSeats() {
+    Venue venue = VenueFactory.createVenue(10, 10, 4);
+
+    ComparatorBasedSeatLocatorService sortingService = new ComparatorBasedSeatLocatorService();
+    sortingService.setVenue(venue);
+    sortingService.setComparator(new ComprehensiveSeatComparator());
+
+    OptimisticSeatLocatorService optimisticService = new OptimisticSeatLocatorService();
+    optimisticService.setVenue(venue);
+    optimisticService.setComparator(new ComprehensiveSeatComparator());
+
+    // verify we can't locate 0 seats
+    try {
+      optimisticService.locateSeats(0);
+      fail("located 0 seats");
+    } catch (IllegalArgumentException e) {
+      // do nothing;  this is what we expect to happen
+    } catch (InsufficientAvailableSeatsException e) {
+      fail("should have thrown IllegalArgumentException");
+    }
+
+    try {
+      // verify the snapshot produces the same seats as sorting
+      List<Seat> expected = sortingService.locateSeats(25);
+      assertEquals("snapshot differs from sort", expected, optimisticService.locateSeats(25));
+
+      // hold the best seats and verify they are skipped
+      venue.claimSeats(expected.subList(0, 12), "customer@gmail.com");
+      expected = sortingService.locateSeats(25);
+      assertEquals("snapshot differs from sort after hold", expected, optimisticService.locateSeats(25));
+
+      // verify an unheld seat ahead of the hint is located again
+      Seat releasedSeat = venue.getRow(1).getSeat(5);
+      venue.unholdSeat(1, 5);
+      List<Seat> actual = optimisticService.locateSeats(1);
+      assertSame("unheld seat not located", releasedSeat, actual.get(0));
+
+      // verify we can't locate more seats than are available
+      optimisticService.locateSeats(1000);
+      fail("located 1000 seats");
+    } catch (InsufficientAvailableSeatsException e) {
+      // do nothing;  this is what we expect to happen
+    } catch (SeatNotHeldException e) {
+      fail("failed to unhold seat");
+    }
+  }
+
+
+  @Test
+  public void testConcurrentFindAndHoldSeats() throws Exception {
+    Venue venue = VenueFactory.createVenue(20, 20, 4);
+
+    OptimisticSeatLocatorService locatorService = new OptimisticSeatLocatorService();
+    locatorService.setVenue(venue);
+    locatorService.setComparator(new ComprehensiveSeatComparator());
+
+    GenericTicketService ticketService = new GenericTicketService();
+    ticketService.setVenue(venue);
+    ticketService.setSeatLocatorService(locatorService);
+    SeatHoldingService seatHoldingService = new ExpiringTransientSeatHoldingService();
+    seatHoldingService.setVenue(venue);
+    ticketService.setSeatHoldingService(seatHoldingService);
+
+    // have more customers than there are seats compete at once
+    ConcurrentHoldAssertions.assertConcurrentHolds(ticketService, venue, 250, 2);
+  }
+}